@@ -1,12 +1,28 @@
 
 import javax.swing.*;
 import javax.swing.border.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Path;
+
+import deadlock.BankersAlgorithm;
+import deadlock.GraphReductionDetector;
+import deadlock.Process;
+import deadlock.SafetyTraceBuffer;
+import deadlock.SafetyTraceListener;
+import deadlock.StateSnapshot;
+import deadlock.SystemState;
+import deadlock.WaitForGraphDetector;
+import deadlock.WorklistSafetyChecker;
 
 /**
  * GUI for Deadlock Management System
@@ -14,6 +30,18 @@ import java.io.PrintStream;
  */
 public class DeadlockGUI extends JFrame {
     
+    // Largest system the tables can be configured for
+    private static final int MAX_PROCESSES = 100_000;
+    private static final int MAX_RESOURCES = 10_000;
+    private static final long MAX_CELLS = 20_000_000;
+    
+    // Beyond this many resource columns the tables scroll horizontally
+    private static final int AUTO_RESIZE_COLUMNS = 15;
+    
+    // Part of a matrix that is written into the text report
+    private static final int REPORT_ROWS = 50;
+    private static final int REPORT_COLUMNS = 20;
+    
     // Main components
     private JPanel mainPanel;
     private JTabbedPane tabbedPane;
@@ -24,6 +52,9 @@ public class DeadlockGUI extends JFrame {
     private JSpinner processCountSpinner;
     private JSpinner resourceCountSpinner;
     private JButton configureButton;
+    private JButton loadSnapshotButton;
+    private JButton saveSnapshotButton;
+    private JFileChooser snapshotChooser;
     private JTable maxNeedsTable;
     private JTable allocationTable;
     private JTable availableResourcesTable;
@@ -33,18 +64,19 @@ public class DeadlockGUI extends JFrame {
     private JButton avoidanceButton;
     private JButton detectionButton;
     private JButton preventionButton;
+    private JButton cancelButton;
+    private JProgressBar progressBar;
     
-    // Data models
-    private DefaultTableModel maxNeedsModel;
-    private DefaultTableModel allocationModel;
-    private DefaultTableModel availableResourcesModel;
+    // Analysis running in the background, null when idle
+    private AnalysisWorker currentWorker;
     
-    // System data
-    private int numProcesses;
-    private int numResources;
-    private int[][] maxNeeds;
-    private int[][] allocation;
-    private int[] totalResources;
+    // Data models, backed directly by the state arrays
+    private StateTableModel maxNeedsModel;
+    private StateTableModel allocationModel;
+    private StateTableModel availableResourcesModel;
+    
+    // System data edited through the tables
+    private SystemState state;
     
     // Scroll panes for tables
     private JScrollPane maxNeedsScrollPane;
@@ -80,13 +112,17 @@ public class DeadlockGUI extends JFrame {
         JPanel configInputPanel = new JPanel(new GridBagLayout());
         configInputPanel.setBorder(BorderFactory.createTitledBorder("System Configuration"));
         
-        processCountSpinner = new JSpinner(new SpinnerNumberModel(3, 1, 10, 1));
-        resourceCountSpinner = new JSpinner(new SpinnerNumberModel(3, 1, 10, 1));
+        processCountSpinner = new JSpinner(new SpinnerNumberModel(3, 1, MAX_PROCESSES, 1));
+        resourceCountSpinner = new JSpinner(new SpinnerNumberModel(3, 1, MAX_RESOURCES, 1));
         configureButton = new JButton("Configure Tables");
+        loadSnapshotButton = new JButton("Load Snapshot...");
+        saveSnapshotButton = new JButton("Save Snapshot...");
+        snapshotChooser = new JFileChooser();
+        snapshotChooser.setFileFilter(new FileNameExtensionFilter(
+            "System state snapshots (*" + StateSnapshot.EXTENSION + ")", StateSnapshot.EXTENSION.substring(1)));
         
         // Initialize table models with default sizes
-        numProcesses = 3; // Default starting values
-        numResources = 3;
+        state = new SystemState(3, 3);
         
         initializeTableModels();
         
@@ -99,71 +135,29 @@ public class DeadlockGUI extends JFrame {
         avoidanceButton = new JButton("Check Deadlock Avoidance");
         detectionButton = new JButton("Check Deadlock Detection");
         preventionButton = new JButton("Check Deadlock Prevention");
+        cancelButton = new JButton("Cancel");
+        cancelButton.setEnabled(false);
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
         
         // Event listeners
         configureButton.addActionListener(e -> configureSystem());
+        loadSnapshotButton.addActionListener(e -> loadSnapshot());
+        saveSnapshotButton.addActionListener(e -> saveSnapshot());
         avoidanceButton.addActionListener(e -> checkDeadlockAvoidance());
         detectionButton.addActionListener(e -> checkDeadlockDetection());
         preventionButton.addActionListener(e -> checkDeadlockPrevention());
+        cancelButton.addActionListener(e -> cancelAnalysis());
     }
     
     /**
-     * Initialize table models with proper column identifiers
+     * Initialize table models backed by the system state
      */
     private void initializeTableModels() {
-        // Create resource column identifiers for the tables
-        Vector<String> colIdentifiers = new Vector<>();
-        for (int i = 0; i < numResources; i++) {
-            colIdentifiers.add("R" + i);
-        }
-        
-        maxNeedsModel = new DefaultTableModel(colIdentifiers, numProcesses) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return true;
-            }
-            
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                return Integer.class;
-            }
-        };
-        
-        allocationModel = new DefaultTableModel(colIdentifiers, numProcesses) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return true;
-            }
-            
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                return Integer.class;
-            }
-        };
-        
-        availableResourcesModel = new DefaultTableModel(colIdentifiers, 1) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return true;
-            }
-            
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                return Integer.class;
-            }
-        };
-        
-        // Initialize tables with default values (0)
-        for (int i = 0; i < numProcesses; i++) {
-            for (int j = 0; j < numResources; j++) {
-                maxNeedsModel.setValueAt(0, i, j);
-                allocationModel.setValueAt(0, i, j);
-            }
-        }
-        
-        for (int j = 0; j < numResources; j++) {
-            availableResourcesModel.setValueAt(0, 0, j);
-        }
+        maxNeedsModel = new StateTableModel(state, StateTableModel.Matrix.MAX);
+        allocationModel = new StateTableModel(state, StateTableModel.Matrix.ALLOCATION);
+        availableResourcesModel = new StateTableModel(state, StateTableModel.Matrix.TOTAL);
         
         // Initialize tables with models
         maxNeedsTable = new JTable(maxNeedsModel);
@@ -209,6 +203,12 @@ public class DeadlockGUI extends JFrame {
         gbc.anchor = GridBagConstraints.CENTER;
         inputPanel.add(configureButton, gbc);
         
+        gbc.gridy = 3;
+        JPanel snapshotPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+        snapshotPanel.add(loadSnapshotButton);
+        snapshotPanel.add(saveSnapshotButton);
+        inputPanel.add(snapshotPanel, gbc);
+        
         // Table panel layout
         JPanel tablesPanel = new JPanel(new GridLayout(3, 1, 10, 10));
         tablesPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -241,9 +241,14 @@ public class DeadlockGUI extends JFrame {
         buttonPanel.add(avoidanceButton);
         buttonPanel.add(detectionButton);
         buttonPanel.add(preventionButton);
+        buttonPanel.add(cancelButton);
+        
+        JPanel controlPanel = new JPanel(new BorderLayout());
+        controlPanel.add(progressBar, BorderLayout.NORTH);
+        controlPanel.add(buttonPanel, BorderLayout.CENTER);
         
         resultPanel.add(new JScrollPane(resultTextArea), BorderLayout.CENTER);
-        resultPanel.add(buttonPanel, BorderLayout.SOUTH);
+        resultPanel.add(controlPanel, BorderLayout.SOUTH);
         
         // Add panels to tabbed pane
         tabbedPane.addTab("Configuration", configPanel);
@@ -263,69 +268,18 @@ public class DeadlockGUI extends JFrame {
      * Configure the system based on user inputs
      */
     private void configureSystem() {
-        numProcesses = (Integer) processCountSpinner.getValue();
-        numResources = (Integer) resourceCountSpinner.getValue();
-        
-        // Create resource column identifiers
-        Vector<String> colIdentifiers = new Vector<>();
-        for (int i = 0; i < numResources; i++) {
-            colIdentifiers.add("R" + i);
-        }
+        int numProcesses = (Integer) processCountSpinner.getValue();
+        int numResources = (Integer) resourceCountSpinner.getValue();
         
-        // Reset table models with new dimensions
-        maxNeedsModel = new DefaultTableModel(colIdentifiers, numProcesses) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return true;
-            }
-            
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                return Integer.class;
-            }
-        };
-        maxNeedsTable.setModel(maxNeedsModel);
-        
-        allocationModel = new DefaultTableModel(colIdentifiers, numProcesses) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return true;
-            }
-            
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                return Integer.class;
-            }
-        };
-        allocationTable.setModel(allocationModel);
-        
-        availableResourcesModel = new DefaultTableModel(colIdentifiers, 1) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return true;
-            }
-            
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                return Integer.class;
-            }
-        };
-        availableResourcesTable.setModel(availableResourcesModel);
-        
-        // Initialize cells with 0 values
-        for (int i = 0; i < numProcesses; i++) {
-            for (int j = 0; j < numResources; j++) {
-                maxNeedsModel.setValueAt(0, i, j);
-                allocationModel.setValueAt(0, i, j);
-            }
+        if ((long) numProcesses * numResources > MAX_CELLS) {
+            JOptionPane.showMessageDialog(this,
+                numProcesses + " processes x " + numResources + " resources is more than " + MAX_CELLS + " cells per matrix.",
+                "Configuration Too Large", JOptionPane.ERROR_MESSAGE);
+            return;
         }
         
-        for (int j = 0; j < numResources; j++) {
-            availableResourcesModel.setValueAt(0, 0, j);
-        }
-        
-        // Update table headers and row headers
-        updateHeadersAndProperties();
+        // Point the table models at a fresh, zero-filled state
+        showState(new SystemState(numProcesses, numResources));
         
         // Show a confirmation message
         JOptionPane.showMessageDialog(this, 
@@ -334,6 +288,72 @@ public class DeadlockGUI extends JFrame {
             "Configuration Complete", JOptionPane.INFORMATION_MESSAGE);
     }
     
+    /**
+     * Point the table models at a state and refresh the headers
+     */
+    private void showState(SystemState newState) {
+        state = newState;
+        maxNeedsModel.setState(state);
+        allocationModel.setState(state);
+        availableResourcesModel.setState(state);
+        
+        // Update table headers and row headers
+        updateHeadersAndProperties();
+    }
+    
+    /**
+     * Replace the tables with a state loaded from a binary snapshot
+     */
+    private void loadSnapshot() {
+        if (snapshotChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        SystemState loaded;
+        try {
+            loaded = StateSnapshot.read(snapshotChooser.getSelectedFile().toPath());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not load snapshot: " + e.getMessage(),
+                "Load Failed", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        int numProcesses = loaded.getNumProcesses();
+        int numResources = loaded.getNumResources();
+        if (numProcesses < 1 || numProcesses > MAX_PROCESSES || numResources < 1 || numResources > MAX_RESOURCES
+                || (long) numProcesses * numResources > MAX_CELLS) {
+            JOptionPane.showMessageDialog(this,
+                numProcesses + " processes x " + numResources + " resources is outside what the tables support " +
+                "(up to " + MAX_PROCESSES + " processes, " + MAX_RESOURCES + " resources and " + MAX_CELLS +
+                " cells per matrix).\nUse deadlock.BatchEvaluator to analyze this snapshot.",
+                "Snapshot Too Large", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        processCountSpinner.setValue(numProcesses);
+        resourceCountSpinner.setValue(numResources);
+        showState(loaded);
+    }
+    
+    /**
+     * Save the state behind the tables as a binary snapshot
+     */
+    private void saveSnapshot() {
+        stopEditing();
+        if (snapshotChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path path = snapshotChooser.getSelectedFile().toPath();
+        if (!path.getFileName().toString().endsWith(StateSnapshot.EXTENSION)) {
+            path = path.resolveSibling(path.getFileName() + StateSnapshot.EXTENSION);
+        }
+        try {
+            StateSnapshot.write(state, path);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not save snapshot: " + e.getMessage(),
+                "Save Failed", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
     /**
      * Update headers and table properties after configuration
      */
@@ -356,6 +376,12 @@ public class DeadlockGUI extends JFrame {
         allocationTable.setRowHeight(25);
         availableResourcesTable.setRowHeight(25);
         
+        // Scroll horizontally instead of squeezing many resource columns
+        int resizeMode = state.getNumResources() > AUTO_RESIZE_COLUMNS ? JTable.AUTO_RESIZE_OFF : JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS;
+        maxNeedsTable.setAutoResizeMode(resizeMode);
+        allocationTable.setAutoResizeMode(resizeMode);
+        availableResourcesTable.setAutoResizeMode(resizeMode);
+        
         // Update row headers
         updateRowHeaders();
     }
@@ -364,20 +390,12 @@ public class DeadlockGUI extends JFrame {
      * Update row headers for all tables
      */
     private void updateRowHeaders() {
-        // Create process row identifiers
-        Vector<String> rowIdentifiers = new Vector<>();
-        for (int i = 0; i < numProcesses; i++) {
-            rowIdentifiers.add("P" + i);
-        }
-        
-        // Create row header tables
-        JTable maxNeedsRowHeader = createRowHeaderTable(rowIdentifiers);
-        JTable allocationRowHeader = createRowHeaderTable(rowIdentifiers);
+        // Create row header tables; the process names are generated as rows are rendered
+        JTable maxNeedsRowHeader = createRowHeaderTable(state.getNumProcesses(), null);
+        JTable allocationRowHeader = createRowHeaderTable(state.getNumProcesses(), null);
         
         // Create a simple "Total" label for the available resources row header
-        Vector<String> totalLabel = new Vector<>();
-        totalLabel.add("Total");
-        JTable availableRowHeader = createRowHeaderTable(totalLabel);
+        JTable availableRowHeader = createRowHeaderTable(1, "Total");
         
         // Set row heights to match between tables
         maxNeedsRowHeader.setRowHeight(25);
@@ -391,17 +409,31 @@ public class DeadlockGUI extends JFrame {
     }
     
     /**
-     * Create a table to use as row header
+     * Create a table to use as row header, labelled P0, P1, ... unless a fixed label is given
      */
-    private JTable createRowHeaderTable(Vector<String> rowNames) {
+    private JTable createRowHeaderTable(int rowCount, String label) {
         // Create a single column table model for row headers
-        DefaultTableModel model = new DefaultTableModel() {
+        AbstractTableModel model = new AbstractTableModel() {
+            @Override
+            public int getRowCount() {
+                return rowCount;
+            }
+            
+            @Override
+            public int getColumnCount() {
+                return 1;
+            }
+            
+            @Override
+            public String getColumnName(int column) {
+                return "Process";
+            }
+            
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+            public Object getValueAt(int row, int column) {
+                return label != null ? label : "P" + row;
             }
         };
-        model.addColumn("Process", rowNames);
         
         // Create the table and set properties
         JTable table = new JTable(model);
@@ -416,88 +448,24 @@ public class DeadlockGUI extends JFrame {
     }
     
     /**
-     * Collect data from tables and validate inputs
+     * Commit the cell being edited, if any. The models write straight into the state, so
+     * only an open editor needs flushing.
+     */
+    private void stopEditing() {
+        for (JTable table : new JTable[] {maxNeedsTable, allocationTable, availableResourcesTable}) {
+            if (table.isEditing()) {
+                table.getCellEditor().stopCellEditing();
+            }
+        }
+    }
+    
+    /**
+     * Commit pending cell edits and validate the state behind the tables
      */
     private boolean collectAndValidateData() {
         try {
-            maxNeeds = new int[numProcesses][numResources];
-            allocation = new int[numProcesses][numResources];
-            totalResources = new int[numResources];
-            
-            // Collect max needs data
-            for (int i = 0; i < numProcesses; i++) {
-                for (int j = 0; j < numResources; j++) {
-                    Object value = maxNeedsTable.getValueAt(i, j);
-                    if (value == null) {
-                        maxNeeds[i][j] = 0; // Default to 0 instead of throwing error
-                    } else {
-                        try {
-                            maxNeeds[i][j] = Integer.parseInt(value.toString());
-                        } catch (NumberFormatException e) {
-                            maxNeeds[i][j] = 0; // Convert non-integer to 0
-                        }
-                    }
-                    if (maxNeeds[i][j] < 0) {
-                        throw new IllegalArgumentException("Negative value in max needs table at row " + i + ", column " + j);
-                    }
-                }
-            }
-            
-            // Collect allocation data
-            for (int i = 0; i < numProcesses; i++) {
-                for (int j = 0; j < numResources; j++) {
-                    Object value = allocationTable.getValueAt(i, j);
-                    if (value == null) {
-                        allocation[i][j] = 0; // Default to 0 instead of throwing error
-                    } else {
-                        try {
-                            allocation[i][j] = Integer.parseInt(value.toString());
-                        } catch (NumberFormatException e) {
-                            allocation[i][j] = 0; // Convert non-integer to 0
-                        }
-                    }
-                    if (allocation[i][j] < 0) {
-                        throw new IllegalArgumentException("Negative value in allocation table at row " + i + ", column " + j);
-                    }
-                    
-                    // Check if allocation exceeds max need
-                    if (allocation[i][j] > maxNeeds[i][j]) {
-                        throw new IllegalArgumentException(
-                            "Allocation exceeds max need for process P" + i + " and resource R" + j);
-                    }
-                }
-            }
-            
-            // Collect total resources data
-            for (int j = 0; j < numResources; j++) {
-                Object value = availableResourcesTable.getValueAt(0, j);
-                if (value == null) {
-                    totalResources[j] = 0; // Default to 0 instead of throwing error
-                } else {
-                    try {
-                        totalResources[j] = Integer.parseInt(value.toString());
-                    } catch (NumberFormatException e) {
-                        totalResources[j] = 0; // Convert non-integer to 0
-                    }
-                }
-                if (totalResources[j] < 0) {
-                    throw new IllegalArgumentException("Negative value in total resources table at column " + j);
-                }
-            }
-            
-            // Validate that allocation doesn't exceed total resources
-            for (int j = 0; j < numResources; j++) {
-                int totalAllocated = 0;
-                for (int i = 0; i < numProcesses; i++) {
-                    totalAllocated += allocation[i][j];
-                }
-                if (totalAllocated > totalResources[j]) {
-                    throw new IllegalArgumentException(
-                        "Total allocation exceeds available instances for resource R" + j + 
-                        " (allocated: " + totalAllocated + ", total: " + totalResources[j] + ")");
-                }
-            }
-            
+            stopEditing();
+            state.validate();
             return true;
         }
         catch (IllegalArgumentException e) {
@@ -506,28 +474,6 @@ public class DeadlockGUI extends JFrame {
                 "Input Error", JOptionPane.ERROR_MESSAGE);
             return false;
         }
-        catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "An unexpected error occurred: " + e.getMessage(), 
-                "Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
-            return false;
-        }
-    }
-    
-    /**
-     * Calculate available resources after allocation
-     */
-    private int[] calculateAvailableResources() {
-        int[] available = new int[numResources];
-        for (int j = 0; j < numResources; j++) {
-            int totalAllocated = 0;
-            for (int i = 0; i < numProcesses; i++) {
-                totalAllocated += allocation[i][j];
-            }
-            available[j] = totalResources[j] - totalAllocated;
-        }
-        return available;
     }
     
     /**
@@ -538,72 +484,60 @@ public class DeadlockGUI extends JFrame {
             return;
         }
         
-        // Switch to results tab
-        tabbedPane.setSelectedIndex(1);
-        
-        // Reset result area
-        resultTextArea.setText("");
-        resultTextArea.append("=== Deadlock Avoidance (Banker's Algorithm) ===\n\n");
-        
-        // Create system configuration
-        List<Process> processes = new ArrayList<>();
-        List<Resource> resources = new ArrayList<>();
-        
-        try {
-            // Create resources
-            for (int i = 0; i < numResources; i++) {
-                resources.add(new Resource("R" + i, totalResources[i]));
-            }
-            
-            // Create processes and set max needs
-            for (int i = 0; i < numProcesses; i++) {
-                Process p = new Process("P" + i);
-                for (int j = 0; j < numResources; j++) {
-                    p.setMaxNeed(resources.get(j), maxNeeds[i][j]);
+        // Analyze a snapshot, so the tables stay editable while the worker runs
+        SystemState state = this.state.copy();
+        startAnalysis(new AnalysisWorker("Deadlock Avoidance (Banker's Algorithm)") {
+            @Override
+            protected void analyze(StringBuilder report) {
+                appendSystemState(report, state);
+                setStage(10);
+                
+                report.append("Running Banker's Algorithm...\n\n");
+                BankersAlgorithm banker = new BankersAlgorithm(state);
+                int numProcesses = state.getNumProcesses();
+                boolean isSafe;
+                if (numProcesses <= REPORT_ROWS) {
+                    // Few enough processes to show every step, advancing the progress bar
+                    // as processes finish; a traced check always runs the serial loop
+                    SafetyTraceBuffer trace = new SafetyTraceBuffer();
+                    banker.setTraceListener(new ProgressTraceListener(this, trace, numProcesses));
+                    isSafe = banker.checkSafeState();
+                    setStage(90);
+                    
+                    // Show the recorded steps once the check is done
+                    trace.render(report);
+                } else {
+                    // Too many steps to read anyway, and tracing would force the O(P^2 * R)
+                    // loop: take the verdict and sequence from the parallel rounds or the
+                    // worklist engine and report only their start
+                    List<Process> sequence;
+                    if (numProcesses >= banker.getParallelThreshold() && ForkJoinPool.getCommonPoolParallelism() > 1) {
+                        isSafe = banker.checkSafeState();
+                        sequence = banker.getSafeSequence();
+                    } else {
+                        WorklistSafetyChecker checker = new WorklistSafetyChecker(state);
+                        isSafe = checker.checkSafeState();
+                        sequence = checker.getSafeSequence();
+                    }
+                    setStage(90);
+                    
+                    report.append(isSafe ? "Safe sequence" : "Processes that can complete")
+                        .append(" (").append(sequence.size()).append(" of ").append(numProcesses).append("): ")
+                        .append(sequence.subList(0, Math.min(sequence.size(), REPORT_ROWS)));
+                    if (sequence.size() > REPORT_ROWS) {
+                        report.append(" ... (").append(sequence.size() - REPORT_ROWS).append(" more)");
+                    }
+                    report.append("\n");
                 }
-                processes.add(p);
-            }
-            
-            // Calculate need matrix
-            int[][] needMatrix = new int[numProcesses][numResources];
-            for (int i = 0; i < numProcesses; i++) {
-                for (int j = 0; j < numResources; j++) {
-                    needMatrix[i][j] = maxNeeds[i][j] - allocation[i][j];
+                
+                if (isSafe) {
+                    report.append("\nResult: The system is in a SAFE state.\n");
+                } else {
+                    report.append("\nResult: The system is in an UNSAFE state.\n");
+                    report.append("Deadlock may occur if resource requests are granted.\n");
                 }
             }
-            
-            // Initialize resource allocations
-            updateResourceAvailableUnits(resources, allocation, processes);
-            
-            // Display the current state
-            resultTextArea.append("Current System State:\n");
-            resultTextArea.append("--------------------\n");
-            resultTextArea.append("Maximum Needs Matrix:\n");
-            appendMatrix(resultTextArea, maxNeeds);
-            resultTextArea.append("\nCurrent Allocation Matrix:\n");
-            appendMatrix(resultTextArea, allocation);
-            resultTextArea.append("\nAvailable Resources:\n");
-            int[] available = calculateAvailableResources();
-            for (int j = 0; j < numResources; j++) {
-                resultTextArea.append("R" + j + ": " + available[j] + " ");
-            }
-            resultTextArea.append("\n\n");
-            
-            // Run Banker's Algorithm
-            resultTextArea.append("Running Banker's Algorithm...\n\n");
-            BankersAlgorithm banker = new BankersAlgorithm(processes, resources, needMatrix);
-            boolean isSafe = banker.checkSafeState();
-            
-            if (isSafe) {
-                resultTextArea.append("\nResult: The system is in a SAFE state.\n");
-            } else {
-                resultTextArea.append("\nResult: The system is in an UNSAFE state.\n");
-                resultTextArea.append("Deadlock may occur if resource requests are granted.\n");
-            }
-        } catch (Exception e) {
-            resultTextArea.append("\nAn error occurred during execution: " + e.getMessage() + "\n");
-            e.printStackTrace();
-        }
+        });
     }
     
     /**
@@ -614,93 +548,50 @@ public class DeadlockGUI extends JFrame {
             return;
         }
         
-        // Switch to results tab
-        tabbedPane.setSelectedIndex(1);
-        
-        // Reset result area
-        resultTextArea.setText("");
-        resultTextArea.append("=== Deadlock Detection ===\n\n");
-        
-        try {
-            // Create system configuration
-            List<Process> processes = new ArrayList<>();
-            List<Resource> resources = new ArrayList<>();
-            
-            // Create resources
-            for (int i = 0; i < numResources; i++) {
-                resources.add(new Resource("R" + i, totalResources[i]));
-            }
-            
-            // Create processes and set max needs
-            for (int i = 0; i < numProcesses; i++) {
-                Process p = new Process("P" + i);
-                for (int j = 0; j < numResources; j++) {
-                    p.setMaxNeed(resources.get(j), maxNeeds[i][j]);
-                }
-                processes.add(p);
-            }
-            
-            // Calculate need matrix
-            int[][] needMatrix = new int[numProcesses][numResources];
-            for (int i = 0; i < numProcesses; i++) {
-                for (int j = 0; j < numResources; j++) {
-                    needMatrix[i][j] = maxNeeds[i][j] - allocation[i][j];
-                }
-            }
-            
-            // Initialize resource allocations
-            updateResourceAvailableUnits(resources, allocation, processes);
-            
-            // Display the current state
-            resultTextArea.append("Current System State:\n");
-            resultTextArea.append("--------------------\n");
-            resultTextArea.append("Maximum Needs Matrix:\n");
-            appendMatrix(resultTextArea, maxNeeds);
-            resultTextArea.append("\nCurrent Allocation Matrix:\n");
-            appendMatrix(resultTextArea, allocation);
-            resultTextArea.append("\nAvailable Resources:\n");
-            int[] available = calculateAvailableResources();
-            for (int j = 0; j < numResources; j++) {
-                resultTextArea.append("R" + j + ": " + available[j] + " ");
-            }
-            resultTextArea.append("\n\n");
-            
-            // Determine which detection algorithm to use
-            boolean hasSingleInstance = true;
-            for (Resource r : resources) {
-                if (r.getTotalUnits() > 1) {
-                    hasSingleInstance = false;
-                    break;
-                }
-            }
-            
-            if (hasSingleInstance) {
-                resultTextArea.append("Using Wait-For Graph for deadlock detection (single instance resources)\n\n");
-                WaitForGraphDetector detector = new WaitForGraphDetector(processes, resources, allocation);
-                boolean hasDeadlock = detector.detectDeadlock();
+        // Analyze a snapshot, so the tables stay editable while the worker runs
+        SystemState state = this.state.copy();
+        startAnalysis(new AnalysisWorker("Deadlock Detection") {
+            @Override
+            protected void analyze(StringBuilder report) {
+                appendSystemState(report, state);
+                setStage(10);
                 
-                if (hasDeadlock) {
-                    resultTextArea.append("\nResult: DEADLOCK DETECTED!\n");
-                    resultTextArea.append("Deadlocked processes: " + detector.getDeadlockedProcesses() + "\n");
-                } else {
-                    resultTextArea.append("\nResult: No deadlock detected.\n");
+                // Single instance resources allow the wait-for graph view
+                boolean hasSingleInstance = true;
+                for (int j = 0; j < state.getNumResources(); j++) {
+                    if (state.getTotal(j) > 1) {
+                        hasSingleInstance = false;
+                        break;
+                    }
                 }
-            } else {
-                resultTextArea.append("Using Resource Allocation Graph for deadlock detection (multiple instance resources)\n\n");
-                DeadlockDetector detector = new DeadlockDetector(processes, resources, needMatrix);
+                
+                // Graph reduction is exact for any mix of single and multiple instance resources
+                report.append("Using Resource Allocation Graph reduction for deadlock detection\n\n");
+                GraphReductionDetector detector = new GraphReductionDetector(state);
                 boolean hasDeadlock = detector.detectDeadlock();
+                setStage(60);
                 
                 if (hasDeadlock) {
-                    resultTextArea.append("\nResult: DEADLOCK DETECTED!\n");
-                    resultTextArea.append("Deadlocked processes: " + detector.getDeadlockedProcesses() + "\n");
+                    report.append("\nResult: DEADLOCK DETECTED!\n");
+                    report.append("Deadlocked processes: ").append(detector.getDeadlockedProcesses()).append("\n");
+                    
+                    // With single instance resources the wait-for graph also shows who waits for whom
+                    if (hasSingleInstance) {
+                        WaitForGraphDetector waitForGraph = new WaitForGraphDetector(state);
+                        waitForGraph.detectDeadlock();
+                        setStage(90);
+                        for (List<Process> cycle : waitForGraph.getDeadlockCycles()) {
+                            report.append("Deadlock cycle: ").append(cycle).append("\n");
+                        }
+                        if (!waitForGraph.getBlockedProcesses().isEmpty()) {
+                            report.append("Blocked behind a cycle: ").append(waitForGraph.getBlockedProcesses()).append("\n");
+                        }
+                    }
                 } else {
-                    resultTextArea.append("\nResult: No deadlock detected.\n");
+                    report.append("\nResult: No deadlock detected.\n");
                 }
             }
-        } catch (Exception e) {
-            resultTextArea.append("\nAn error occurred during execution: " + e.getMessage() + "\n");
-            e.printStackTrace();
-        }
+        });
     }
     
     /**
@@ -711,54 +602,221 @@ public class DeadlockGUI extends JFrame {
             return;
         }
         
+        // Analyze a snapshot, so the tables stay editable while the worker runs
+        SystemState state = this.state.copy();
+        startAnalysis(new AnalysisWorker("Deadlock Prevention Analysis") {
+            @Override
+            protected void analyze(StringBuilder report) {
+                appendSystemState(report, state);
+                setStage(10);
+                
+                // Analyze prevention strategies
+                report.append("Deadlock Prevention Techniques Analysis:\n\n");
+                analyzeDeadlockPrevention(state, report);
+            }
+        });
+    }
+    
+    /**
+     * Run an analysis in the background. The algorithm buttons stay disabled and the
+     * Cancel button enabled until the worker is done.
+     */
+    private void startAnalysis(AnalysisWorker worker) {
         // Switch to results tab
         tabbedPane.setSelectedIndex(1);
         
-        // Reset result area
-        resultTextArea.setText("");
-        resultTextArea.append("=== Deadlock Prevention Analysis ===\n\n");
+        resultTextArea.setText("Running " + worker.title + "...\n");
+        progressBar.setValue(0);
+        setAnalysisRunning(true);
         
-        try {
-            // Display the current state
-            resultTextArea.append("Current System State:\n");
-            resultTextArea.append("--------------------\n");
-            resultTextArea.append("Maximum Needs Matrix:\n");
-            appendMatrix(resultTextArea, maxNeeds);
-            resultTextArea.append("\nCurrent Allocation Matrix:\n");
-            appendMatrix(resultTextArea, allocation);
-            resultTextArea.append("\nAvailable Resources:\n");
-            int[] available = calculateAvailableResources();
-            for (int j = 0; j < numResources; j++) {
-                resultTextArea.append("R" + j + ": " + available[j] + " ");
+        worker.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) {
+                progressBar.setValue((Integer) event.getNewValue());
             }
-            resultTextArea.append("\n\n");
-            
-            // Analyze prevention strategies
-            resultTextArea.append("Deadlock Prevention Techniques Analysis:\n\n");
-            analyzeDeadlockPrevention();
-        } catch (Exception e) {
-            resultTextArea.append("\nAn error occurred during execution: " + e.getMessage() + "\n");
-            e.printStackTrace();
+        });
+        currentWorker = worker;
+        worker.execute();
+    }
+    
+    /**
+     * Cancel the running analysis, if any
+     */
+    private void cancelAnalysis() {
+        if (currentWorker != null) {
+            currentWorker.cancel(true);
+        }
+    }
+    
+    private void setAnalysisRunning(boolean running) {
+        avoidanceButton.setEnabled(!running);
+        detectionButton.setEnabled(!running);
+        preventionButton.setEnabled(!running);
+        configureButton.setEnabled(!running);
+        loadSnapshotButton.setEnabled(!running);
+        cancelButton.setEnabled(running);
+        progressBar.setVisible(running);
+    }
+    
+    /**
+     * Background analysis. The report is built off the Event Dispatch Thread and shown
+     * with a single text update when the worker is done, so the UI stays responsive
+     * however large the state is.
+     */
+    private abstract class AnalysisWorker extends SwingWorker<String, Void> {
+        private final String title;
+        
+        AnalysisWorker(String title) {
+            this.title = title;
+        }
+        
+        /**
+         * Append the analysis report; runs on the worker thread
+         */
+        protected abstract void analyze(StringBuilder report);
+        
+        /**
+         * Report progress in percent, stopping the analysis if it was cancelled
+         */
+        void setStage(int percent) {
+            checkCancelled();
+            setProgress(Math.max(getProgress(), Math.min(100, percent)));
+        }
+        
+        void checkCancelled() {
+            if (isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+        }
+        
+        @Override
+        protected String doInBackground() {
+            StringBuilder report = new StringBuilder();
+            report.append("=== ").append(title).append(" ===\n\n");
+            try {
+                analyze(report);
+            } catch (CancellationException e) {
+                throw e;
+            } catch (Exception e) {
+                report.append("\nAn error occurred during execution: ").append(e.getMessage()).append("\n");
+                e.printStackTrace();
+            }
+            return report.toString();
+        }
+        
+        @Override
+        protected void done() {
+            if (currentWorker == this) {
+                currentWorker = null;
+                setAnalysisRunning(false);
+            }
+            if (isCancelled()) {
+                resultTextArea.setText("=== " + title + " ===\n\nAnalysis cancelled.\n");
+                return;
+            }
+            try {
+                resultTextArea.setText(get());
+                resultTextArea.setCaretPosition(0);
+            } catch (InterruptedException | ExecutionException e) {
+                resultTextArea.setText("An error occurred during execution: " + e.getMessage() + "\n");
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * Forwards the safety check trace and turns finished processes into progress
+     * updates, which is also where a cancelled check is stopped
+     */
+    private static class ProgressTraceListener implements SafetyTraceListener {
+        private final AnalysisWorker worker;
+        private final SafetyTraceListener trace;
+        private final int numProcesses;
+        private int finished;
+        private int lastPercent;
+        
+        ProgressTraceListener(AnalysisWorker worker, SafetyTraceListener trace, int numProcesses) {
+            this.worker = worker;
+            this.trace = trace;
+            this.numProcesses = numProcesses;
+        }
+        
+        @Override
+        public void checkStarted(int[] work) {
+            trace.checkStarted(work);
+        }
+        
+        @Override
+        public void processFinished(int processIndex) {
+            trace.processFinished(processIndex);
+            int percent = 10 + (int) (80L * ++finished / numProcesses);
+            if (percent != lastPercent) {
+                lastPercent = percent;
+                worker.setStage(percent);
+            }
+        }
+        
+        @Override
+        public void workUpdated(int resourceIndex, int units) {
+            trace.workUpdated(resourceIndex, units);
+        }
+        
+        @Override
+        public void checkFinished(boolean safe) {
+            trace.checkFinished(safe);
+        }
+    }
+    
+    /**
+     * Append the max, allocation and available resources of a state to the report
+     */
+    private void appendSystemState(StringBuilder report, SystemState state) {
+        int columns = Math.min(state.getNumResources(), REPORT_COLUMNS);
+        report.append("Current System State:\n");
+        report.append("--------------------\n");
+        report.append("Maximum Needs Matrix:\n");
+        appendMatrix(report, state, true);
+        report.append("\nCurrent Allocation Matrix:\n");
+        appendMatrix(report, state, false);
+        report.append("\nAvailable Resources:\n");
+        for (int j = 0; j < columns; j++) {
+            report.append("R").append(j).append(": ").append(state.getAvailable(j)).append(" ");
+        }
+        if (columns < state.getNumResources()) {
+            report.append("... (").append(state.getNumResources() - columns).append(" more)");
         }
+        report.append("\n\n");
     }
     
     /**
-     * Helper method to append matrix to text area
+     * Helper method to append the max or allocation matrix of a state to the report.
+     * Large matrices are cut to the first rows and columns; the tables show the rest.
      */
-    private void appendMatrix(JTextArea textArea, int[][] matrix) {
-        for (int i = 0; i < matrix.length; i++) {
-            textArea.append("P" + i + ": ");
-            for (int j = 0; j < matrix[i].length; j++) {
-                textArea.append(String.format("%3d ", matrix[i][j]));
+    private void appendMatrix(StringBuilder report, SystemState state, boolean max) {
+        Formatter formatter = new Formatter(report);
+        int rows = Math.min(state.getNumProcesses(), REPORT_ROWS);
+        int columns = Math.min(state.getNumResources(), REPORT_COLUMNS);
+        for (int i = 0; i < rows; i++) {
+            report.append("P").append(i).append(": ");
+            for (int j = 0; j < columns; j++) {
+                formatter.format("%3d ", max ? state.getMax(i, j) : state.getAllocation(i, j));
             }
-            textArea.append("\n");
+            if (columns < state.getNumResources()) {
+                report.append("...");
+            }
+            report.append("\n");
+        }
+        if (rows < state.getNumProcesses()) {
+            report.append("... (").append(state.getNumProcesses() - rows).append(" more processes)\n");
         }
     }
     
     /**
      * Analyze deadlock prevention strategies
      */
-    private void analyzeDeadlockPrevention() {
+    private void analyzeDeadlockPrevention(SystemState state, StringBuilder report) {
+        int numProcesses = state.getNumProcesses();
+        int numResources = state.getNumResources();
+        
         // Check if the system violates conditions for deadlock
         boolean hasResourceHoarding = false;
         boolean hasCircularWait = false;
@@ -770,10 +828,10 @@ public class DeadlockGUI extends JFrame {
             boolean waitingForOthers = false;
             
             for (int j = 0; j < numResources; j++) {
-                if (allocation[i][j] > 0) {
+                if (state.getAllocation(i, j) > 0) {
                     holdingSome = true;
                 }
-                if (maxNeeds[i][j] - allocation[i][j] > 0) {
+                if (state.getNeed(i, j) > 0) {
                     waitingForOthers = true;
                 }
             }
@@ -786,7 +844,6 @@ public class DeadlockGUI extends JFrame {
         
         // Simplified check for potential circular wait
         // This is a very basic check - a proper implementation would build a wait-for graph
-        int[] availableResources = calculateAvailableResources();
         int waitCount = 0;
         List<Integer> waitingProcesses = new ArrayList<>();
         
@@ -794,8 +851,8 @@ public class DeadlockGUI extends JFrame {
             boolean needsUnavailableResource = false;
             
             for (int j = 0; j < numResources; j++) {
-                int need = maxNeeds[i][j] - allocation[i][j];
-                if (need > 0 && need > availableResources[j]) {
+                int need = state.getNeed(i, j);
+                if (need > 0 && need > state.getAvailable(j)) {
                     needsUnavailableResource = true;
                     break;
                 }
@@ -813,465 +870,155 @@ public class DeadlockGUI extends JFrame {
         }
         
         // Output analysis 
-        resultTextArea.append("1. Mutual Exclusion: Present (resources are non-sharable)\n");
+        report.append("1. Mutual Exclusion: Present (resources are non-sharable)\n");
         
-        resultTextArea.append("2. Hold and Wait: ");
+        report.append("2. Hold and Wait: ");
         if (hasResourceHoarding) {
-            resultTextArea.append("Present - processes hold resources while waiting for others\n");
-            resultTextArea.append("   Prevention Strategy: Require processes to request all resources at once\n");
+            report.append("Present - processes hold resources while waiting for others\n");
+            report.append("   Prevention Strategy: Require processes to request all resources at once\n");
         } else {
-            resultTextArea.append("Not present - processes either hold all needed resources or none\n");
+            report.append("Not present - processes either hold all needed resources or none\n");
         }
         
-        resultTextArea.append("3. No Preemption: ");
+        report.append("3. No Preemption: ");
         if (hasNoPreemption) {
-            resultTextArea.append("Present - resources cannot be forcibly taken from processes\n");
-            resultTextArea.append("   Prevention Strategy: Allow resource preemption in critical situations\n");
+            report.append("Present - resources cannot be forcibly taken from processes\n");
+            report.append("   Prevention Strategy: Allow resource preemption in critical situations\n");
         } else {
-            resultTextArea.append("Not present - resources can be preempted\n");
+            report.append("Not present - resources can be preempted\n");
         }
         
-        resultTextArea.append("4. Circular Wait: ");
+        report.append("4. Circular Wait: ");
         if (hasCircularWait) {
-            resultTextArea.append("Potentially present\n");
-            resultTextArea.append("   Waiting processes: ");
+            report.append("Potentially present\n");
+            report.append("   Waiting processes: ");
             for (Integer p : waitingProcesses) {
-                resultTextArea.append("P" + p + " ");
+                report.append("P").append(p).append(" ");
             }
-            resultTextArea.append("\n");
-            resultTextArea.append("   Prevention Strategy: Impose a total ordering of resource types\n");
+            report.append("\n");
+            report.append("   Prevention Strategy: Impose a total ordering of resource types\n");
         } else {
-            resultTextArea.append("Not detected\n");
+            report.append("Not detected\n");
         }
         
-        resultTextArea.append("\nDeadlock Prevention Recommendation:\n");
+        report.append("\nDeadlock Prevention Recommendation:\n");
         if (hasResourceHoarding || hasCircularWait) {
-            resultTextArea.append("The current system configuration could lead to deadlock.\n");
+            report.append("The current system configuration could lead to deadlock.\n");
             
             if (hasResourceHoarding) {
-                resultTextArea.append("- Prevent 'Hold and Wait': Modify resource allocation policy to require\n" +
+                report.append("- Prevent 'Hold and Wait': Modify resource allocation policy to require\n" +
                                     "  processes to request all resources before execution starts.\n");
             }
             
             if (hasCircularWait) {
-                resultTextArea.append("- Prevent 'Circular Wait': Implement resource ordering to ensure\n" +
+                report.append("- Prevent 'Circular Wait': Implement resource ordering to ensure\n" +
                                     "  processes request resources in a specific order (e.g., lowest ID first).\n");
             }
             
-            resultTextArea.append("- Consider implementing resource preemption for critical situations.\n");
+            report.append("- Consider implementing resource preemption for critical situations.\n");
         } else {
-            resultTextArea.append("The current system configuration is not prone to deadlock based on initial analysis.\n" +
+            report.append("The current system configuration is not prone to deadlock based on initial analysis.\n" +
                               "However, monitoring resource allocation patterns is still recommended.\n");
         }
     }
     
     /**
-     * Helper function to update resource available units based on allocation
+     * Table model that reads and writes one matrix of a {@link SystemState} in place.
+     * Cells are plain ints in the state arrays, so nothing is boxed until a row is
+     * rendered and edits need no parsing step.
      */
-    private void updateResourceAvailableUnits(List<Resource> resources, int[][] allocation, List<Process> processes) {
-        // First set all resources as available
-        for (Resource r : resources) {
-            r.resetAllocations();
-        }
+    private static class StateTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
         
-        // Then allocate based on the allocation matrix
-        for (int i = 0; i < numProcesses; i++) {
-            Process p = processes.get(i);
-            for (int j = 0; j < numResources; j++) {
-                if (allocation[i][j] > 0) {
-                    resources.get(j).allocateUnits(p, allocation[i][j]);
-                }
-            }
-        }
-    }
-    
-    /**
-     * Main method to start the application
-     */
-    public static void main(String[] args) {
-        // Set look and feel to system default
-        try {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        } catch (Exception e) {
-            e.printStackTrace();
+        enum Matrix {
+            MAX,
+            ALLOCATION,
+            TOTAL
         }
         
-        // Launch the GUI on the Event Dispatch Thread
-        SwingUtilities.invokeLater(() -> {
-            new DeadlockGUI();
-        });
-    }
-}
-
-/**
- * Represents a process in the system
- */
-class Process {
-    private String name;
-    private Map<Resource, Integer> maxNeeds;
-    
-    public Process(String name) {
-        this.name = name;
-        this.maxNeeds = new HashMap<>();
-    }
-    
-    public String getName() {
-        return name;
-    }
-    
-    public void setMaxNeed(Resource resource, int units) {
-        maxNeeds.put(resource, units);
-    }
-    
-    public int getMaxNeed(Resource resource) {
-        return maxNeeds.getOrDefault(resource, 0);
-    }
-    
-    @Override
-    public String toString() {
-        return name;
-    }
-}
-
-/**
- * Represents a resource in the system
- */
-class Resource {
-    private String name;
-    private int totalUnits;
-    Map<Process, Integer> allocations;
-    
-    public Resource(String name, int totalUnits) {
-        this.name = name;
-        this.totalUnits = totalUnits;
-        this.allocations = new HashMap<>();
-    }
-    
-    public String getName() {
-        return name;
-    }
-    
-    public int getTotalUnits() {
-        return totalUnits;
-    }
-    
-    public int getAvailableUnits() {
-        int allocated = 0;
-        for (int units : allocations.values()) {
-            allocated += units;
-        }
-        return totalUnits - allocated;
-    }
-    
-    public void allocateUnits(Process process, int units) {
-        if (units <= 0) {
-            return;
-        }
+        private final Matrix matrix;
+        private SystemState state;
         
-        int currentAllocation = allocations.getOrDefault(process, 0);
-        allocations.put(process, currentAllocation + units);
-    }
-    
-    public void deallocateUnits(Process process, int units) {
-        if (!allocations.containsKey(process) || units <= 0) {
-            return;
+        StateTableModel(SystemState state, Matrix matrix) {
+            this.state = state;
+            this.matrix = matrix;
         }
         
-        int currentAllocation = allocations.get(process);
-        int newAllocation = Math.max(0, currentAllocation - units);
-        
-        if (newAllocation == 0) {
-            allocations.remove(process);
-        } else {
-            allocations.put(process, newAllocation);
-        }
-    }
-    
-    public void resetAllocations() {
-        allocations.clear();
-    }
-    
-    @Override
-    public String toString() {
-        return name;
-    }
-}
-
-/**
- * Implements Banker's Algorithm for deadlock avoidance
- */
-class BankersAlgorithm {
-    private List<Process> processes;
-    private List<Resource> resources;
-    private int[][] needMatrix;
-    private int[] work;
-    private boolean[] finish;
-    private List<Process> safeSequence;
-    
-    public BankersAlgorithm(List<Process> processes, List<Resource> resources, int[][] needMatrix) {
-        this.processes = processes;
-        this.resources = resources;
-        this.needMatrix = needMatrix;
-        this.work = new int[resources.size()];
-        this.finish = new boolean[processes.size()];
-        this.safeSequence = new ArrayList<>();
-        
-        // Initialize work array with available resources
-        for (int i = 0; i < resources.size(); i++) {
-            work[i] = resources.get(i).getAvailableUnits();
-        }
-    }
-    
-    public boolean checkSafeState() {
-        System.out.println("Starting Banker's Algorithm...");
-        System.out.println("Available resources:");
-        for (int i = 0; i < resources.size(); i++) {
-            System.out.print(resources.get(i).getName() + ":" + work[i] + " ");
+        void setState(SystemState state) {
+            this.state = state;
+            fireTableStructureChanged();
         }
-        System.out.println();
         
-        Arrays.fill(finish, false);
-        safeSequence.clear();
+        @Override
+        public int getRowCount() {
+            return matrix == Matrix.TOTAL ? 1 : state.getNumProcesses();
+        }
         
-        int count = 0;
+        @Override
+        public int getColumnCount() {
+            return state.getNumResources();
+        }
         
-        while (count < processes.size()) {
-            boolean found = false;
-            
-            for (int i = 0; i < processes.size(); i++) {
-                if (!finish[i]) {
-                    boolean canAllocate = true;
-                    
-                    // Check if all needs can be satisfied
-                    for (int j = 0; j < resources.size(); j++) {
-                        if (needMatrix[i][j] > work[j]) {
-                            canAllocate = false;
-                            break;
-                        }
-                    }
-                    
-                    if (canAllocate) {
-                        // Process can complete, add its resources to work
-                        System.out.println("Process " + processes.get(i).getName() + " can complete");
-                        for (int j = 0; j < resources.size(); j++) {
-                            int allocatedToProcess = 0;
-                            for (Process p : processes) {
-                                if (p == processes.get(i)) {
-                                    allocatedToProcess = resources.get(j).allocations.getOrDefault(p, 0);
-                                    break;
-                                }
-                            }
-                            work[j] += allocatedToProcess;
-                            System.out.println("Resource " + resources.get(j).getName() + 
-                                               " available units updated to " + work[j]);
-                        }
-                        
-                        finish[i] = true;
-                        safeSequence.add(processes.get(i));
-                        found = true;
-                        count++;
-                    }
-                }
-            }
-            
-            if (!found) {
-                // No process can complete with available resources
-                System.out.println("No process can complete with current available resources");
-                return false;
-            }
+        @Override
+        public String getColumnName(int column) {
+            return "R" + column;
         }
         
-        System.out.println("Safe sequence: " + safeSequence);
-        return true;
-    }
-    
-    public List<Process> getSafeSequence() {
-        return safeSequence;
-    }
-}
-
-/**
- * Implements deadlock detection for multiple instance resources
- */
-class DeadlockDetector {
-    private List<Process> processes;
-    private List<Resource> resources;
-    private int[][] needMatrix;
-    private int[] work;
-    private boolean[] finish;
-    private List<Process> deadlockedProcesses;
-    
-    public DeadlockDetector(List<Process> processes, List<Resource> resources, int[][] needMatrix) {
-        this.processes = processes;
-        this.resources = resources;
-        this.needMatrix = needMatrix;
-        this.work = new int[resources.size()];
-        this.finish = new boolean[processes.size()];
-        this.deadlockedProcesses = new ArrayList<>();
-        
-        // Initialize work array with available resources
-        for (int i = 0; i < resources.size(); i++) {
-            work[i] = resources.get(i).getAvailableUnits();
+        @Override
+        public Class<?> getColumnClass(int columnIndex) {
+            return Integer.class;
         }
-    }
-    
-    public boolean detectDeadlock() {
-        Arrays.fill(finish, false);
-        deadlockedProcesses.clear();
         
-        // Similar to Banker's algorithm but we only consider current allocation
-        boolean changed;
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return true;
+        }
         
-        do {
-            changed = false;
-            
-            for (int i = 0; i < processes.size(); i++) {
-                if (!finish[i]) {
-                    boolean canComplete = true;
-                    
-                    // Check if process can complete with current resources
-                    for (int j = 0; j < resources.size(); j++) {
-                        if (needMatrix[i][j] > work[j]) {
-                            canComplete = false;
-                            break;
-                        }
-                    }
-                    
-                    if (canComplete) {
-                        // Process can complete, add its resources to work
-                        for (int j = 0; j < resources.size(); j++) {
-                            int allocatedToProcess = 0;
-                            for (Process p : processes) {
-                                if (p == processes.get(i)) {
-                                    allocatedToProcess = resources.get(j).allocations.getOrDefault(p, 0);
-                                    break;
-                                }
-                            }
-                            work[j] += allocatedToProcess;
-                        }
-                        
-                        finish[i] = true;
-                        changed = true;
-                    }
-                }
-            }
-        } while (changed);
-        
-        // Check for deadlocked processes
-        boolean hasDeadlock = false;
-        for (int i = 0; i < processes.size(); i++) {
-            if (!finish[i]) {
-                deadlockedProcesses.add(processes.get(i));
-                hasDeadlock = true;
+        @Override
+        public Object getValueAt(int row, int column) {
+            switch (matrix) {
+                case MAX:
+                    return state.getMax(row, column);
+                case ALLOCATION:
+                    return state.getAllocation(row, column);
+                default:
+                    return state.getTotal(column);
             }
         }
         
-        return hasDeadlock;
-    }
-    
-    public List<Process> getDeadlockedProcesses() {
-        return deadlockedProcesses;
-    }
-}
-
-/**
- * Implements deadlock detection using Wait-For Graph for single instance resources
- */
-class WaitForGraphDetector {
-    private List<Process> processes;
-    private List<Resource> resources;
-    private int[][] allocation;
-    private boolean[][] waitForGraph;
-    private boolean[] visited;
-    private boolean[] recursionStack;
-    private List<Process> deadlockedProcesses;
-    
-    public WaitForGraphDetector(List<Process> processes, List<Resource> resources, int[][] allocation) {
-        this.processes = processes;
-        this.resources = resources;
-        this.allocation = allocation;
-        this.waitForGraph = new boolean[processes.size()][processes.size()];
-        this.visited = new boolean[processes.size()];
-        this.recursionStack = new boolean[processes.size()];
-        this.deadlockedProcesses = new ArrayList<>();
-        
-        constructWaitForGraph();
-    }
-    
-    private void constructWaitForGraph() {
-        // For each resource, if process i needs it and process j holds it,
-        // then process i waits for process j
-        for (int r = 0; r < resources.size(); r++) {
-            // Find which process holds this resource
-            int holder = -1;
-            for (int i = 0; i < processes.size(); i++) {
-                if (allocation[i][r] > 0) {
-                    holder = i;
+        @Override
+        public void setValueAt(Object value, int row, int column) {
+            // Empty cells count as 0, like the old parse step did
+            int units = value instanceof Number ? ((Number) value).intValue() : 0;
+            switch (matrix) {
+                case MAX:
+                    state.setMax(row, column, units);
+                    break;
+                case ALLOCATION:
+                    state.setAllocation(row, column, units);
+                    break;
+                default:
+                    state.setTotal(column, units);
                     break;
-                }
-            }
-            
-            // If resource is allocated, check which processes need it
-            if (holder != -1) {
-                for (int i = 0; i < processes.size(); i++) {
-                    if (i != holder && needsResource(i, r)) {
-                        waitForGraph[i][holder] = true;
-                    }
-                }
-            }
-        }
-    }
-    
-    private boolean needsResource(int processIndex, int resourceIndex) {
-        // Check if process needs more of this resource than it currently has
-        for (int j = 0; j < processes.size(); j++) {
-            Process p = processes.get(j);
-            if (j == processIndex) {
-                int maxNeed = p.getMaxNeed(resources.get(resourceIndex));
-                return maxNeed > allocation[processIndex][resourceIndex];
-            }
-        }
-        return false;
-    }
-    
-    public boolean detectDeadlock() {
-        Arrays.fill(visited, false);
-        Arrays.fill(recursionStack, false);
-        deadlockedProcesses.clear();
-        
-        // Check for cycles in the wait-for graph
-        for (int i = 0; i < processes.size(); i++) {
-            if (!visited[i] && isCyclicUtil(i)) {
-                return true;
             }
+            fireTableCellUpdated(row, column);
         }
-        
-        return !deadlockedProcesses.isEmpty();
     }
     
-    private boolean isCyclicUtil(int i) {
-        if (!visited[i]) {
-            visited[i] = true;
-            recursionStack[i] = true;
-            
-            for (int j = 0; j < processes.size(); j++) {
-                if (waitForGraph[i][j]) {
-                    if (!visited[j] && isCyclicUtil(j)) {
-                        deadlockedProcesses.add(processes.get(i));
-                        return true;
-                    } else if (recursionStack[j]) {
-                        deadlockedProcesses.add(processes.get(i));
-                        return true;
-                    }
-                }
-            }
+    /**
+     * Main method to start the application
+     */
+    public static void main(String[] args) {
+        // Set look and feel to system default
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) {
+            e.printStackTrace();
         }
         
-        recursionStack[i] = false;
-        return false;
-    }
-    
-    public List<Process> getDeadlockedProcesses() {
-        return deadlockedProcesses;
+        // Launch the GUI on the Event Dispatch Thread
+        SwingUtilities.invokeLater(() -> {
+            new DeadlockGUI();
+        });
     }
 }
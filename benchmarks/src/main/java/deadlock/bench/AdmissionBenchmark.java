@@ -0,0 +1,120 @@
+package deadlock.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import deadlock.BankersAlgorithm;
+import deadlock.BatchAdmission;
+import deadlock.SafetyVerdictCache;
+import deadlock.SystemState;
+
+/**
+ * Admission of a burst of pending requests: one resource-request check per request
+ * against one batch. All variants release their grants again, so every invocation
+ * starts from the same state; with a verdict cache, every check after the first
+ * invocation is a cache hit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class AdmissionBenchmark {
+    @Param({"1000", "10000"})
+    public int processes;
+    
+    @Param({"16", "64"})
+    public int resources;
+    
+    @Param({"64", "512"})
+    public int burst;
+    
+    private SystemState state;
+    private BankersAlgorithm banker;
+    private BankersAlgorithm cachedBanker;
+    private BatchAdmission admission;
+    private int[] requestProcesses;
+    private int[][] requests;
+    private boolean[] granted;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        state = Workloads.shaped(processes, resources, 0.5, Workloads.Shape.SAFE, 42);
+        banker = new BankersAlgorithm(state);
+        cachedBanker = new BankersAlgorithm(state);
+        cachedBanker.setVerdictCache(new SafetyVerdictCache(state, 4 * burst));
+        admission = new BatchAdmission(state);
+        
+        // One unit of a resource the process still needs, for distinct random processes
+        Random random = new Random(7);
+        requestProcesses = new int[burst];
+        requests = new int[burst][resources];
+        granted = new boolean[burst];
+        boolean[] used = new boolean[processes];
+        for (int k = 0; k < burst; k++) {
+            int i;
+            do {
+                i = random.nextInt(processes);
+            } while (used[i]);
+            used[i] = true;
+            requestProcesses[k] = i;
+            for (int j = 0; j < resources; j++) {
+                if (state.getNeed(i, j) > 0) {
+                    requests[k][j] = 1;
+                    break;
+                }
+            }
+        }
+    }
+    
+    @Benchmark
+    public int oneAtATime() {
+        return requestOneAtATime(banker);
+    }
+    
+    @Benchmark
+    public int oneAtATimeCached() {
+        return requestOneAtATime(cachedBanker);
+    }
+    
+    private int requestOneAtATime(BankersAlgorithm algorithm) {
+        int grants = 0;
+        for (int k = 0; k < burst; k++) {
+            granted[k] = algorithm.requestResources(requestProcesses[k], requests[k]);
+            if (granted[k]) {
+                grants++;
+            }
+        }
+        releaseGranted();
+        return grants;
+    }
+    
+    @Benchmark
+    public int batch() {
+        int grants = admission.admit(requestProcesses, requests, granted);
+        releaseGranted();
+        return grants;
+    }
+    
+    private void releaseGranted() {
+        for (int k = 0; k < burst; k++) {
+            if (granted[k]) {
+                state.release(requestProcesses[k], requests[k]);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package deadlock.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import deadlock.SparseSystemState;
+import deadlock.SystemState;
+
+/**
+ * Benchmark state shared by the multi-instance algorithm benchmarks
+ */
+@State(Scope.Benchmark)
+public class AlgorithmState {
+    @Param({"10", "1000", "10000", "100000"})
+    public int processes;
+    
+    @Param({"3", "64", "512"})
+    public int resources;
+    
+    @Param({"0.1", "1.0"})
+    public double density;
+    
+    @Param({"SAFE", "UNSAFE", "DEADLOCKED"})
+    public Workloads.Shape shape;
+    
+    public SystemState state;
+    
+    // The same state in compressed sparse row form
+    public SparseSystemState sparseState;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        state = Workloads.shaped(processes, resources, density, shape, 42);
+        sparseState = SparseSystemState.of(state);
+    }
+}
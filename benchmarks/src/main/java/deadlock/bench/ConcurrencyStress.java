@@ -0,0 +1,783 @@
+package deadlock.bench;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import deadlock.BankersAlgorithm;
+import deadlock.GraphReductionDetector;
+import deadlock.ResourceManager;
+import deadlock.SystemState;
+
+/**
+ * Drives the allocators with real threads, one per process.
+ *
+ * Every thread has a fixed max claim, thinks for a random time, acquires its claim in a
+ * few requests while holding what it already has, and releases everything at the end of
+ * the job, like {@link deadlock.WorkloadSimulator} does in simulated time. The threads are
+ * virtual threads when the JVM has them (JDK 21+) and platform threads otherwise, so the
+ * gates are measured under the scheduler the services run on. The gating strategies are:
+ *
+ * - batched: {@link ResourceManager}, Banker's admission in flat-combined rounds
+ * - monitor: {@link BankersAlgorithm#requestResources} under one synchronized monitor with
+ *   wait / notifyAll, the straightforward way to share the algorithm between threads
+ * - detection: grant whenever the units are free, detect deadlocks periodically with
+ *   {@link GraphReductionDetector} and abort the deadlocked process holding the fewest units
+ *
+ * Each run reports the admission latency percentiles measured around every acquire, the
+ * gate's own contention counters and the carrier pinning seen through the JFR
+ * jdk.VirtualThreadPinned event (waiting inside a synchronized block pins the carrier
+ * before JDK 24).
+ *
+ * Usage: java -cp target/benchmarks.jar deadlock.bench.ConcurrencyStress [options]
+ */
+public class ConcurrencyStress {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    // Thread.ofVirtual() and Thread.Builder.start(Runnable), looked up reflectively so the
+    // harness still compiles and runs on JDK 17
+    private static final Object VIRTUAL_BUILDER;
+    private static final Method START_VIRTUAL;
+
+    static {
+        Object builder = null;
+        Method start = null;
+        try {
+            builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            start = Class.forName("java.lang.Thread$Builder").getMethod("start", Runnable.class);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            builder = null;
+            start = null;
+        }
+        VIRTUAL_BUILDER = builder;
+        START_VIRTUAL = start;
+    }
+
+    public enum Strategy {
+        BATCHED, MONITOR, DETECTION
+    }
+
+    private int threads = 10_000;
+    private int numResources = 8;
+    private int units = -1;
+    private double claimDensity = 0.5;
+    private int maxClaim = 4;
+    private int steps = 3;
+    private int jobs = 3;
+    private long thinkNanos = 1_000_000;
+    private long holdNanos = 200_000;
+    private long detectNanos = 10_000_000;
+    private long pinThresholdNanos = 0;
+    private boolean platformThreads;
+    private long seed = 42;
+
+    /**
+     * True if this JVM can start virtual threads
+     */
+    public static boolean virtualThreadsAvailable() {
+        return START_VIRTUAL != null;
+    }
+
+    /**
+     * Run one strategy to completion and report it
+     */
+    public Report run(Strategy strategy) throws InterruptedException {
+        SystemState state = buildState();
+        Gate gate;
+        switch (strategy) {
+            case BATCHED:
+                gate = new BatchedGate(state);
+                break;
+            case MONITOR:
+                gate = new MonitorGate(state);
+                break;
+            default:
+                gate = new DetectionGate(state, detectNanos);
+                break;
+        }
+        boolean virtual = !platformThreads && virtualThreadsAvailable();
+        Histogram latency = new Histogram();
+        LongAdder aborts = new LongAdder();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(i, state, gate, start, latency, aborts, failure);
+            workers[i] = startThread(worker, virtual, "stress-P" + i);
+        }
+
+        Recording recording = virtual ? startPinRecording() : null;
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        PinStats pins = recording != null ? stopPinRecording(recording) : null;
+        gate.close();
+
+        Throwable error = failure.get();
+        if (error != null) {
+            throw new IllegalStateException(strategy + " run failed", error);
+        }
+        return new Report(strategy, virtual, elapsed, latency, aborts.sum(), pins, gate.describe());
+    }
+
+    private SystemState buildState() {
+        int perResource = units > 0 ? units : Math.max(maxClaim, threads / 4);
+        SystemState state = new SystemState(threads, numResources);
+        for (int j = 0; j < numResources; j++) {
+            state.setTotal(j, perResource);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < threads; i++) {
+            // Every process claims at least one resource type
+            int first = random.nextInt(numResources);
+            for (int j = 0; j < numResources; j++) {
+                if (j == first || random.nextDouble() < claimDensity) {
+                    state.setMax(i, j, Math.min(perResource, 1 + random.nextInt(maxClaim)));
+                }
+            }
+        }
+        return state;
+    }
+
+    private static Thread startThread(Runnable task, boolean virtual, String name) {
+        if (virtual) {
+            try {
+                return (Thread) START_VIRTUAL.invoke(VIRTUAL_BUILDER, task);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot start a virtual thread", e);
+            }
+        }
+        // Small stacks so that tens of thousands of platform threads fit
+        Thread thread = new Thread(null, task, name, 256 * 1024);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private Recording startPinRecording() {
+        Recording recording = new Recording();
+        recording.enable(PINNED_EVENT).withThreshold(Duration.ofNanos(pinThresholdNanos)).withStackTrace();
+        recording.start();
+        return recording;
+    }
+
+    private static PinStats stopPinRecording(Recording recording) {
+        recording.stop();
+        Path file = null;
+        try {
+            file = Files.createTempFile("stress-pins", ".jfr");
+            recording.dump(file);
+            PinStats stats = new PinStats();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals(PINNED_EVENT)) {
+                    stats.add(event.getDuration().toNanos());
+                }
+            }
+            return stats;
+        } catch (IOException e) {
+            System.err.println("Cannot read the pinning recording: " + e.getMessage());
+            return null;
+        } finally {
+            recording.close();
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // Temporary file, nothing else to do
+                }
+            }
+        }
+    }
+
+    /**
+     * One process: acquire the claim in steps, hold it, release it, repeat
+     */
+    private final class Worker implements Runnable {
+        private final int process;
+        private final int[] claim;
+        private final int[] held;
+        private final int[] request;
+        private final Gate gate;
+        private final CountDownLatch start;
+        private final Histogram latency;
+        private final LongAdder aborts;
+        private final AtomicReference<Throwable> failure;
+        private final SplittableRandom random;
+
+        Worker(int process, SystemState state, Gate gate, CountDownLatch start,
+               Histogram latency, LongAdder aborts, AtomicReference<Throwable> failure) {
+            this.process = process;
+            this.claim = new int[numResources];
+            for (int j = 0; j < numResources; j++) {
+                claim[j] = state.getMax(process, j);
+            }
+            this.held = new int[numResources];
+            this.request = new int[numResources];
+            this.gate = gate;
+            this.start = start;
+            this.latency = latency;
+            this.aborts = aborts;
+            this.failure = failure;
+            this.random = new SplittableRandom(seed * 31 + process);
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+                for (int job = 0; job < jobs && failure.get() == null; job++) {
+                    pause(thinkNanos);
+                    while (!runJob()) {
+                        aborts.increment();
+                    }
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        /**
+         * @return false if the gate aborted the job; everything held was released
+         */
+        private boolean runJob() throws InterruptedException {
+            try {
+                for (int step = 0; step < steps; step++) {
+                    // Spread the remaining need evenly over the remaining steps
+                    boolean any = false;
+                    for (int j = 0; j < numResources; j++) {
+                        int remaining = claim[j] - held[j];
+                        request[j] = (remaining + steps - step - 1) / (steps - step);
+                        any |= request[j] > 0;
+                    }
+                    if (!any) {
+                        continue;
+                    }
+                    long begin = System.nanoTime();
+                    gate.acquire(process, request);
+                    latency.record(System.nanoTime() - begin);
+                    for (int j = 0; j < numResources; j++) {
+                        held[j] += request[j];
+                    }
+                    pause(holdNanos);
+                }
+                return true;
+            } catch (Aborted e) {
+                return false;
+            } finally {
+                gate.release(process, held);
+                Arrays.fill(held, 0);
+            }
+        }
+
+        private void pause(long meanNanos) {
+            if (meanNanos > 0) {
+                LockSupport.parkNanos((long) (-Math.log(1.0 - random.nextDouble()) * meanNanos));
+            }
+        }
+    }
+
+    /**
+     * Shared allocator the workers go through
+     */
+    interface Gate {
+        /**
+         * Block until the request is granted
+         *
+         * @throws Aborted if the gate chose this process as a deadlock victim; the caller
+         *                 must release everything it holds
+         */
+        void acquire(int process, int[] request) throws InterruptedException, Aborted;
+
+        void release(int process, int[] units);
+
+        /**
+         * Contention counters of the run
+         */
+        String describe();
+
+        default void close() {
+        }
+    }
+
+    static final class Aborted extends Exception {
+        Aborted() {
+            super("Aborted as a deadlock victim", null, false, false);
+        }
+    }
+
+    static final class BatchedGate implements Gate {
+        private final ResourceManager manager;
+
+        BatchedGate(SystemState state) {
+            this.manager = new ResourceManager(state.copy());
+        }
+
+        @Override
+        public void acquire(int process, int[] request) throws InterruptedException {
+            manager.acquire(process, request);
+        }
+
+        @Override
+        public void release(int process, int[] units) {
+            manager.release(process, units);
+        }
+
+        @Override
+        public String describe() {
+            ResourceManager.Metrics metrics = manager.getMetrics();
+            double perRound = metrics.getRoundCount() == 0 ? 0
+                : (double) (metrics.getGrantCount() + metrics.getReleaseCount()) / metrics.getRoundCount();
+            return String.format(Locale.ROOT, "%d rounds, %.1f operations per round, %d safety checks",
+                                 metrics.getRoundCount(), perRound, metrics.getSafetyCheckCount());
+        }
+    }
+
+    static final class MonitorGate implements Gate {
+        private final BankersAlgorithm bankers;
+        private long waitCount;
+        private long wakeupCount;
+
+        MonitorGate(SystemState state) {
+            this.bankers = new BankersAlgorithm(state.copy());
+        }
+
+        @Override
+        public synchronized void acquire(int process, int[] request) throws InterruptedException {
+            if (!bankers.requestResources(process, request)) {
+                waitCount++;
+                do {
+                    wait();
+                    wakeupCount++;
+                } while (!bankers.requestResources(process, request));
+            }
+        }
+
+        @Override
+        public synchronized void release(int process, int[] units) {
+            bankers.releaseResources(process, units);
+            notifyAll();
+        }
+
+        @Override
+        public synchronized String describe() {
+            return String.format(Locale.ROOT, "%d waits, %d wakeups (%.1f per wait)",
+                                 waitCount, wakeupCount, waitCount == 0 ? 0 : (double) wakeupCount / waitCount);
+        }
+    }
+
+    static final class DetectionGate implements Gate {
+        private final SystemState state;
+        private final int numProcesses;
+        private final int numResources;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = lock.newCondition();
+
+        // Guarded by lock
+        private final int[] pending;
+        private final boolean[] victim;
+        private final SystemState requestState;
+        private final GraphReductionDetector detector;
+        private long waitCount;
+        private long detectionCount;
+        private long deadlockCount;
+        private long detectionNanos;
+
+        private final Thread detectorThread;
+        private volatile boolean closed;
+
+        DetectionGate(SystemState state, long intervalNanos) {
+            this.state = state.copy();
+            this.numProcesses = state.getNumProcesses();
+            this.numResources = state.getNumResources();
+            this.pending = new int[numProcesses * numResources];
+            this.victim = new boolean[numProcesses];
+            // Max of each process in the request state is what it holds plus what it waits for
+            this.requestState = new SystemState(numProcesses, numResources);
+            for (int j = 0; j < numResources; j++) {
+                requestState.setTotal(j, state.getTotal(j));
+            }
+            this.detector = new GraphReductionDetector(requestState);
+            this.detectorThread = new Thread(() -> {
+                while (!closed) {
+                    LockSupport.parkNanos(intervalNanos);
+                    detect();
+                }
+            }, "stress-detector");
+            detectorThread.setDaemon(true);
+            detectorThread.start();
+        }
+
+        @Override
+        public void acquire(int process, int[] request) throws InterruptedException, Aborted {
+            lock.lock();
+            try {
+                for (int j = 0; j < numResources; j++) {
+                    if (request[j] < 0 || request[j] > state.getNeed(process, j)) {
+                        throw new IllegalArgumentException("Invalid request for process P" + process + " and resource R" + j);
+                    }
+                }
+                boolean waited = false;
+                while (true) {
+                    if (victim[process]) {
+                        victim[process] = false;
+                        setPending(process, null);
+                        throw new Aborted();
+                    }
+                    if (fits(request)) {
+                        setPending(process, null);
+                        state.allocate(process, request);
+                        return;
+                    }
+                    if (!waited) {
+                        waited = true;
+                        waitCount++;
+                        setPending(process, request);
+                    }
+                    released.await();
+                }
+            } catch (InterruptedException e) {
+                setPending(process, null);
+                throw e;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void release(int process, int[] units) {
+            lock.lock();
+            try {
+                state.release(process, units);
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean fits(int[] request) {
+            for (int j = 0; j < numResources; j++) {
+                if (request[j] > state.getAvailable(j)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void setPending(int process, int[] request) {
+            int row = process * numResources;
+            for (int j = 0; j < numResources; j++) {
+                pending[row + j] = request == null ? 0 : request[j];
+            }
+        }
+
+        /**
+         * Abort the deadlocked process that holds the fewest units; the next pass picks
+         * another victim if the deadlock remains
+         */
+        private void detect() {
+            lock.lock();
+            try {
+                long begin = System.nanoTime();
+                detectionCount++;
+                for (int i = 0; i < numProcesses; i++) {
+                    for (int j = 0; j < numResources; j++) {
+                        int held = state.getAllocation(i, j);
+                        requestState.setMax(i, j, held + pending[i * numResources + j]);
+                        requestState.setAllocation(i, j, held);
+                    }
+                }
+                if (detector.detectDeadlock()) {
+                    int chosen = -1;
+                    long fewest = Long.MAX_VALUE;
+                    for (int i : detector.getDeadlockedProcessIndices()) {
+                        if (victim[i]) {
+                            chosen = -1;
+                            break;
+                        }
+                        long held = 0;
+                        for (int j = 0; j < numResources; j++) {
+                            held += state.getAllocation(i, j);
+                        }
+                        if (held > 0 && held < fewest) {
+                            fewest = held;
+                            chosen = i;
+                        }
+                    }
+                    if (chosen >= 0) {
+                        deadlockCount++;
+                        victim[chosen] = true;
+                        released.signalAll();
+                    }
+                }
+                detectionNanos += System.nanoTime() - begin;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public String describe() {
+            lock.lock();
+            try {
+                return String.format(Locale.ROOT, "%d waits, %d detection passes (%.2f ms each), %d deadlocks resolved",
+                                     waitCount, detectionCount,
+                                     detectionCount == 0 ? 0 : detectionNanos / 1e6 / detectionCount, deadlockCount);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            LockSupport.unpark(detectorThread);
+        }
+    }
+
+    /**
+     * Concurrent latency histogram with 8 buckets per power of two
+     */
+    static final class Histogram {
+        private static final int SUB_BUCKETS = 8;
+        private final LongAdder[] buckets = new LongAdder[64 * SUB_BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+
+        Histogram() {
+            for (int b = 0; b < buckets.length; b++) {
+                buckets[b] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            long value = Math.max(1, nanos);
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = exponent < 3 ? 0 : (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+            buckets[exponent * SUB_BUCKETS + sub].increment();
+            count.increment();
+            total.add(nanos);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        long average() {
+            long n = count.sum();
+            return n == 0 ? 0 : total.sum() / n;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given fraction of the recorded values
+         */
+        long percentile(double fraction) {
+            long target = Math.max(1, (long) Math.ceil(fraction * count.sum()));
+            long seen = 0;
+            for (int b = 0; b < buckets.length; b++) {
+                seen += buckets[b].sum();
+                if (seen >= target) {
+                    int exponent = b / SUB_BUCKETS;
+                    int sub = b % SUB_BUCKETS;
+                    return exponent < 3 ? (2L << exponent) - 1 : (1L << exponent) + ((sub + 1L) << (exponent - 3)) - 1;
+                }
+            }
+            return 0;
+        }
+    }
+
+    static final class PinStats {
+        long count;
+        long totalNanos;
+        long maxNanos;
+
+        void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+    }
+
+    public static final class Report {
+        private final Strategy strategy;
+        private final boolean virtual;
+        private final long elapsedNanos;
+        private final Histogram latency;
+        private final long aborts;
+        private final PinStats pins;
+        private final String gate;
+
+        Report(Strategy strategy, boolean virtual, long elapsedNanos, Histogram latency,
+               long aborts, PinStats pins, String gate) {
+            this.strategy = strategy;
+            this.virtual = virtual;
+            this.elapsedNanos = elapsedNanos;
+            this.latency = latency;
+            this.aborts = aborts;
+            this.pins = pins;
+            this.gate = gate;
+        }
+
+        @Override
+        public String toString() {
+            long acquires = latency.count();
+            StringBuilder out = new StringBuilder();
+            out.append(String.format(Locale.ROOT, "%s: %d acquires in %.3f s (%.0f/s), %d jobs aborted%n",
+                                     strategy.name().toLowerCase(Locale.ROOT), acquires, elapsedNanos / 1e9,
+                                     acquires * 1e9 / elapsedNanos, aborts));
+            out.append(String.format(Locale.ROOT,
+                                     "  admission latency: avg %s, p50 %s, p90 %s, p99 %s, p99.9 %s, max %s%n",
+                                     micros(latency.average()), micros(latency.percentile(0.5)),
+                                     micros(latency.percentile(0.9)), micros(latency.percentile(0.99)),
+                                     micros(latency.percentile(0.999)), micros(latency.percentile(1.0))));
+            out.append("  gate: ").append(gate).append(System.lineSeparator());
+            if (!virtual) {
+                out.append("  pinning: n/a (platform threads)");
+            } else if (pins == null) {
+                out.append("  pinning: not recorded");
+            } else {
+                out.append(String.format(Locale.ROOT, "  pinning: %d events, %.1f ms total, max %s",
+                                         pins.count, pins.totalNanos / 1e6, micros(pins.maxNanos)));
+            }
+            return out.toString();
+        }
+
+        private static String micros(long nanos) {
+            return String.format(Locale.ROOT, "%.1f us", nanos / 1e3);
+        }
+    }
+
+    private static final String USAGE =
+        "Usage: java -cp target/benchmarks.jar deadlock.bench.ConcurrencyStress [options]\n" +
+        "  --strategy batched|monitor|detection|all   gate to run (default all)\n" +
+        "  --threads N                               threads, one per process (default 10000)\n" +
+        "  --resources R                             resource types (default 8)\n" +
+        "  --units U                                 units per resource type (default threads / 4)\n" +
+        "  --claim-density D                         chance of claiming each further resource type (default 0.5)\n" +
+        "  --max-claim C                             largest claim per resource type (default 4)\n" +
+        "  --steps S                                 requests per job (default 3)\n" +
+        "  --jobs J                                  jobs per thread (default 3)\n" +
+        "  --think-us T                              mean think time between jobs (default 1000)\n" +
+        "  --hold-us T                               mean hold time after each step (default 200)\n" +
+        "  --detect-ms T                             detection period of the detection gate (default 10)\n" +
+        "  --pin-threshold-us T                      shortest pinning reported (default 0)\n" +
+        "  --platform                                use platform threads even if virtual threads exist\n" +
+        "  --seed S                                  random seed for the claims (default 42)";
+
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrencyStress stress = new ConcurrencyStress();
+        Strategy[] strategies = Strategy.values();
+        try {
+            for (int k = 0; k < args.length; k++) {
+                String arg = args[k];
+                switch (arg) {
+                    case "--strategy": {
+                        String name = value(args, ++k);
+                        strategies = name.equals("all")
+                            ? Strategy.values()
+                            : new Strategy[] {Strategy.valueOf(name.toUpperCase(Locale.ROOT))};
+                        break;
+                    }
+                    case "--threads":
+                        stress.threads = positive(arg, Integer.parseInt(value(args, ++k)));
+                        break;
+                    case "--resources":
+                        stress.numResources = positive(arg, Integer.parseInt(value(args, ++k)));
+                        break;
+                    case "--units":
+                        stress.units = positive(arg, Integer.parseInt(value(args, ++k)));
+                        break;
+                    case "--claim-density":
+                        stress.claimDensity = Double.parseDouble(value(args, ++k));
+                        break;
+                    case "--max-claim":
+                        stress.maxClaim = positive(arg, Integer.parseInt(value(args, ++k)));
+                        break;
+                    case "--steps":
+                        stress.steps = positive(arg, Integer.parseInt(value(args, ++k)));
+                        break;
+                    case "--jobs":
+                        stress.jobs = positive(arg, Integer.parseInt(value(args, ++k)));
+                        break;
+                    case "--think-us":
+                        stress.thinkNanos = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(value(args, ++k)));
+                        break;
+                    case "--hold-us":
+                        stress.holdNanos = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(value(args, ++k)));
+                        break;
+                    case "--detect-ms":
+                        stress.detectNanos = TimeUnit.MILLISECONDS.toNanos(positive(arg, Integer.parseInt(value(args, ++k))));
+                        break;
+                    case "--pin-threshold-us":
+                        stress.pinThresholdNanos = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(value(args, ++k)));
+                        break;
+                    case "--platform":
+                        stress.platformThreads = true;
+                        break;
+                    case "--seed":
+                        stress.seed = Long.parseLong(value(args, ++k));
+                        break;
+                    case "--help":
+                        System.out.println(USAGE);
+                        return;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        boolean virtual = !stress.platformThreads && virtualThreadsAvailable();
+        if (!virtual && !stress.platformThreads) {
+            System.err.println("Virtual threads need JDK 21 or later; using platform threads");
+        }
+        String carriers = System.getProperty("jdk.virtualThreadScheduler.parallelism",
+                                             String.valueOf(Runtime.getRuntime().availableProcessors()));
+        System.out.printf(Locale.ROOT, "%d %s threads%s, %d resource types%n%n", stress.threads,
+                          virtual ? "virtual" : "platform", virtual ? " on " + carriers + " carriers" : "",
+                          stress.numResources);
+        for (Strategy strategy : strategies) {
+            System.gc();
+            System.out.println(stress.run(strategy));
+            System.out.println();
+        }
+    }
+
+    private static int positive(String option, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(option + " must be positive");
+        }
+        return value;
+    }
+
+    private static String value(String[] args, int k) {
+        if (k >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[k - 1]);
+        }
+        return args[k];
+    }
+}
@@ -0,0 +1,56 @@
+package deadlock.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import deadlock.DeadlockDetector;
+import deadlock.GraphReductionDetector;
+import deadlock.SafetyWorkspace;
+
+/**
+ * Multiple instance deadlock detection: the classic rescanning loop (serial and in
+ * parallel rounds) against graph reduction
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DetectionBenchmark {
+    
+    @Benchmark
+    public boolean deadlockDetectorDetectDeadlock(AlgorithmState s) {
+        DeadlockDetector detector = new DeadlockDetector(s.state);
+        detector.setParallelThreshold(Integer.MAX_VALUE);
+        return detector.detectDeadlock();
+    }
+    
+    @Benchmark
+    public boolean deadlockDetectorWorkspaceDetectDeadlock(AlgorithmState s) {
+        return DeadlockDetector.detectDeadlock(s.state, SafetyWorkspace.forCurrentThread());
+    }
+    
+    @Benchmark
+    public boolean deadlockDetectorParallelDetectDeadlock(AlgorithmState s) {
+        DeadlockDetector detector = new DeadlockDetector(s.state);
+        detector.setParallelThreshold(1);
+        return detector.detectDeadlock();
+    }
+    
+    @Benchmark
+    public boolean graphReductionDetectDeadlock(AlgorithmState s) {
+        return new GraphReductionDetector(s.state).detectDeadlock();
+    }
+    
+    @Benchmark
+    public boolean graphReductionSparseDetectDeadlock(AlgorithmState s) {
+        return new GraphReductionDetector(s.sparseState).detectDeadlock();
+    }
+}
@@ -0,0 +1,97 @@
+package deadlock.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import deadlock.GraphReductionDetector;
+import deadlock.IncrementalDeadlockDetector;
+import deadlock.SystemState;
+
+/**
+ * Periodic detection with a few changes between runs: the incremental detector against
+ * graph reduction from scratch. Every change releases one held unit, requests it again
+ * and gets it granted, so the state is the same after every invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class IncrementalDetectionBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int processes;
+    
+    @Param({"16", "64"})
+    public int resources;
+    
+    @Param({"1", "16"})
+    public int changes;
+    
+    private SystemState state;
+    private IncrementalDeadlockDetector incremental;
+    private GraphReductionDetector full;
+    private int[] changedProcesses;
+    private int[][] units;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        state = Workloads.shaped(processes, resources, 0.5, Workloads.Shape.UNSAFE, 42);
+        incremental = new IncrementalDeadlockDetector(state);
+        full = new GraphReductionDetector(state);
+        incremental.detectDeadlock();
+        
+        // One held unit of random processes
+        Random random = new Random(7);
+        changedProcesses = new int[changes];
+        units = new int[changes][resources];
+        for (int c = 0; c < changes; c++) {
+            int i;
+            int j;
+            do {
+                i = random.nextInt(processes);
+                j = random.nextInt(resources);
+            } while (state.getAllocation(i, j) == 0);
+            changedProcesses[c] = i;
+            units[c][j] = 1;
+        }
+    }
+    
+    private void applyChanges() {
+        for (int c = 0; c < changes; c++) {
+            incremental.release(changedProcesses[c], units[c]);
+            incremental.request(changedProcesses[c], units[c]);
+            incremental.allocate(changedProcesses[c], units[c]);
+        }
+    }
+    
+    @Benchmark
+    public boolean incremental() {
+        applyChanges();
+        return incremental.detectDeadlock();
+    }
+    
+    @Benchmark
+    public boolean fromScratch() {
+        // The same changes, made on the state directly
+        for (int c = 0; c < changes; c++) {
+            int i = changedProcesses[c];
+            state.release(i, units[c]);
+            state.allocate(i, units[c]);
+        }
+        return full.detectDeadlock();
+    }
+}
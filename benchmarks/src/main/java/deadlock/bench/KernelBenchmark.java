@@ -0,0 +1,73 @@
+package deadlock.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import deadlock.BankersAlgorithm;
+import deadlock.DeadlockDetector;
+import deadlock.SystemState;
+
+/**
+ * Classic Banker's check and detection with the scalar row kernel against the Vector API
+ * kernel. The kernel is chosen once per JVM, so each variant runs in its own fork.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class KernelBenchmark {
+    private static final String VECTOR = "--add-modules=jdk.incubator.vector";
+    
+    @Param({"1000"})
+    public int processes;
+    
+    @Param({"64", "512"})
+    public int resources;
+    
+    @Param({"SAFE", "DEADLOCKED"})
+    public Workloads.Shape shape;
+    
+    private SystemState state;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        state = Workloads.shaped(processes, resources, 1.0, shape, 42);
+    }
+    
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", VECTOR, "-Ddeadlock.kernel=scalar"})
+    public boolean bankersScalar() {
+        return new BankersAlgorithm(state).checkSafeState();
+    }
+    
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", VECTOR})
+    public boolean bankersVector() {
+        return new BankersAlgorithm(state).checkSafeState();
+    }
+    
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", VECTOR, "-Ddeadlock.kernel=scalar"})
+    public boolean detectionScalar() {
+        return new DeadlockDetector(state).detectDeadlock();
+    }
+    
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", VECTOR})
+    public boolean detectionVector() {
+        return new DeadlockDetector(state).detectDeadlock();
+    }
+}
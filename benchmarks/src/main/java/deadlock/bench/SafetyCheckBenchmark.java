@@ -0,0 +1,56 @@
+package deadlock.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import deadlock.BankersAlgorithm;
+import deadlock.SafetyWorkspace;
+import deadlock.WorklistSafetyChecker;
+
+/**
+ * Banker's safety check: the classic rescanning loop (serial and in parallel rounds)
+ * against the worklist engine on dense and sparse states
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SafetyCheckBenchmark {
+    
+    @Benchmark
+    public boolean bankersCheckSafeState(AlgorithmState s) {
+        BankersAlgorithm banker = new BankersAlgorithm(s.state);
+        banker.setParallelThreshold(Integer.MAX_VALUE);
+        return banker.checkSafeState();
+    }
+    
+    @Benchmark
+    public boolean bankersWorkspaceCheckSafeState(AlgorithmState s) {
+        return BankersAlgorithm.checkSafeState(s.state, SafetyWorkspace.forCurrentThread());
+    }
+    
+    @Benchmark
+    public boolean bankersParallelCheckSafeState(AlgorithmState s) {
+        BankersAlgorithm banker = new BankersAlgorithm(s.state);
+        banker.setParallelThreshold(1);
+        return banker.checkSafeState();
+    }
+    
+    @Benchmark
+    public boolean worklistCheckSafeState(AlgorithmState s) {
+        return new WorklistSafetyChecker(s.state).checkSafeState();
+    }
+    
+    @Benchmark
+    public boolean worklistSparseCheckSafeState(AlgorithmState s) {
+        return new WorklistSafetyChecker(s.sparseState).checkSafeState();
+    }
+}
@@ -0,0 +1,75 @@
+package deadlock.bench;
+
+import java.io.PrintStream;
+
+import deadlock.BankersAlgorithm;
+import deadlock.SystemState;
+import deadlock.WorklistSafetyChecker;
+
+/**
+ * Compares the classic Banker's loop with the worklist engine over growing
+ * process counts and prints the point where the worklist engine starts to win.
+ *
+ * Usage: java deadlock.bench.SafetyCheckCrossover [numResources]
+ */
+public class SafetyCheckCrossover {
+    private static final int[] PROCESS_COUNTS = {4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096};
+    private static final long MIN_RUN_NANOS = 200_000_000L;
+    
+    public static void main(String[] args) {
+        int numResources = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        PrintStream out = System.out;
+        
+        for (String shape : new String[] {"reverse-chain", "random"}) {
+            out.println("Shape: " + shape + ", R = " + numResources);
+            out.printf("%8s %16s %16s %10s%n", "P", "classic ns/op", "worklist ns/op", "speedup");
+            int crossover = -1;
+            for (int numProcesses : PROCESS_COUNTS) {
+                SystemState state = shape.equals("random")
+                    ? Workloads.random(numProcesses, numResources, 0.5, 42)
+                    : Workloads.reverseChain(numProcesses, numResources);
+                
+                BankersAlgorithm classic = new BankersAlgorithm(state);
+                WorklistSafetyChecker worklist = new WorklistSafetyChecker(state);
+                
+                double classicNanos = measure(classic::checkSafeState);
+                double worklistNanos = measure(worklist::checkSafeState);
+                
+                if (classic.checkSafeState() != worklist.checkSafeState()) {
+                    throw new IllegalStateException("Verdict mismatch at P = " + numProcesses);
+                }
+                if (crossover < 0 && worklistNanos < classicNanos) {
+                    crossover = numProcesses;
+                }
+                out.printf("%8d %16.0f %16.0f %9.2fx%n",
+                    numProcesses, classicNanos, worklistNanos, classicNanos / worklistNanos);
+            }
+            out.println(crossover < 0
+                ? "No crossover in the measured range"
+                : "Worklist engine is faster from P = " + crossover);
+            out.println();
+        }
+    }
+    
+    private interface Check {
+        boolean run();
+    }
+    
+    private static double measure(Check check) {
+        // Warm up, then time batches until the minimum run time is reached
+        for (int i = 0; i < 50; i++) {
+            check.run();
+        }
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 10; i++) {
+                check.run();
+            }
+            operations += 10;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_RUN_NANOS);
+        return (double) elapsed / operations;
+    }
+}
@@ -0,0 +1,54 @@
+package deadlock.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import deadlock.SystemState;
+import deadlock.WaitForGraphDetector;
+
+/**
+ * Single instance deadlock detection with the wait-for graph, including graph construction
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class WaitForGraphBenchmark {
+    @Param({"10", "1000", "10000", "100000"})
+    public int processes;
+    
+    @Param({"3", "64", "512"})
+    public int resources;
+    
+    @Param({"0.01", "0.1"})
+    public double density;
+    
+    @Param({"false", "true"})
+    public boolean cyclic;
+    
+    private SystemState state;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        state = Workloads.singleInstance(processes, resources, density, cyclic, 42);
+    }
+    
+    @Benchmark
+    public boolean waitForGraphDetectDeadlock() {
+        return new WaitForGraphDetector(state).detectDeadlock();
+    }
+}
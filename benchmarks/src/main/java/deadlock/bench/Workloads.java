@@ -0,0 +1,180 @@
+package deadlock.bench;
+
+import java.util.Random;
+
+import deadlock.SystemState;
+
+/**
+ * Synthetic system states used by the benchmarks
+ */
+public final class Workloads {
+    
+    private Workloads() {
+    }
+    
+    /**
+     * Safe state in which processes can only finish in reverse index order.
+     * Every process holds one unit of each resource and needs one unit more than the
+     * previous finisher released, which is the worst case for the classic rescanning loop.
+     */
+    public static SystemState reverseChain(int numProcesses, int numResources) {
+        SystemState state = new SystemState(numProcesses, numResources);
+        for (int j = 0; j < numResources; j++) {
+            state.setTotal(j, numProcesses + 1);
+        }
+        for (int i = 0; i < numProcesses; i++) {
+            int need = numProcesses - i;
+            for (int j = 0; j < numResources; j++) {
+                state.setMax(i, j, need + 1);
+                state.setAllocation(i, j, 1);
+            }
+        }
+        return state;
+    }
+    
+    /**
+     * State shapes used to parameterize the JMH benchmarks
+     */
+    public enum Shape {
+        /** Every process can finish, in an order unrelated to the process indices */
+        SAFE,
+        /** Half of the processes can finish, the rest compete for the last units of R0 */
+        UNSAFE,
+        /** No process can finish: every process waits for a unit of R0 held by another */
+        DEADLOCKED
+    }
+    
+    /**
+     * Random state of the given shape with roughly the given fraction of non-zero
+     * max entries per process.
+     *
+     * The safe part is built along a random permutation: each process needs at most what
+     * is free once its predecessors in the permutation have released their allocation,
+     * so the permutation is a safe sequence by construction.
+     */
+    public static SystemState shaped(int numProcesses, int numResources, double density, Shape shape, long seed) {
+        Random random = new Random(seed);
+        SystemState state = new SystemState(numProcesses, numResources);
+        
+        int[] permutation = new int[numProcesses];
+        for (int i = 0; i < numProcesses; i++) {
+            int k = random.nextInt(i + 1);
+            permutation[i] = permutation[k];
+            permutation[k] = i;
+        }
+        
+        // Initially free units, then what becomes free as the permutation runs
+        int[] free = new int[numResources];
+        for (int j = 0; j < numResources; j++) {
+            free[j] = 1 + random.nextInt(4);
+        }
+        int[] initiallyFree = free.clone();
+        
+        for (int k = 0; k < numProcesses; k++) {
+            int i = permutation[k];
+            boolean stuck = shape == Shape.DEADLOCKED || (shape == Shape.UNSAFE && k % 2 == 1);
+            for (int j = 0; j < numResources; j++) {
+                if (random.nextDouble() >= density) {
+                    continue;
+                }
+                int allocation = random.nextInt(4);
+                int need = stuck ? 0 : random.nextInt(Math.min(free[j], 4) + 1);
+                state.setMax(i, j, allocation + need);
+                state.setAllocation(i, j, allocation);
+                if (!stuck) {
+                    free[j] += allocation;
+                }
+            }
+        }
+        
+        int[] totals = new int[numResources];
+        for (int j = 0; j < numResources; j++) {
+            totals[j] = initiallyFree[j];
+        }
+        for (int i = 0; i < numProcesses; i++) {
+            for (int j = 0; j < numResources; j++) {
+                totals[j] += state.getAllocation(i, j);
+            }
+        }
+        
+        if (shape != Shape.SAFE) {
+            // Stuck processes each hold one unit of R0 and claim every unit of it,
+            // which can never be free while two or more of them hold one
+            for (int k = 0; k < numProcesses; k++) {
+                int i = permutation[k];
+                if (shape == Shape.DEADLOCKED || k % 2 == 1) {
+                    totals[0] += 1 - state.getAllocation(i, 0);
+                    state.setAllocation(i, 0, 1);
+                }
+            }
+            for (int k = 0; k < numProcesses; k++) {
+                int i = permutation[k];
+                if (shape == Shape.DEADLOCKED || k % 2 == 1) {
+                    state.setMax(i, 0, totals[0]);
+                }
+            }
+        }
+        
+        for (int j = 0; j < numResources; j++) {
+            state.setTotal(j, totals[j]);
+        }
+        return state;
+    }
+    
+    /**
+     * Single instance state for the wait-for graph detector. Resource j is held by
+     * process j mod P and every process waits for about density * R resources held by
+     * processes with a higher index, so the wait-for graph is acyclic. With cyclic set,
+     * the last holder additionally waits for the first one, closing a cycle.
+     */
+    public static SystemState singleInstance(int numProcesses, int numResources, double density, boolean cyclic, long seed) {
+        Random random = new Random(seed);
+        SystemState state = new SystemState(numProcesses, numResources);
+        for (int j = 0; j < numResources; j++) {
+            state.setTotal(j, 1);
+            state.setMax(j % numProcesses, j, 1);
+            state.setAllocation(j % numProcesses, j, 1);
+        }
+        for (int i = 0; i < numProcesses; i++) {
+            for (int j = 0; j < numResources; j++) {
+                if (j % numProcesses > i && random.nextDouble() < density) {
+                    state.setMax(i, j, 1);
+                }
+            }
+        }
+        if (cyclic && numResources > 1 && numProcesses > 1) {
+            int last = Math.min(numResources, numProcesses) - 1;
+            state.setMax(last, 0, 1);
+            state.setMax(0, last, 1);
+        }
+        return state;
+    }
+    
+    /**
+     * Random state with roughly the given fraction of non-zero max entries.
+     * Totals are sized so that the state is usually safe but not trivially so.
+     */
+    public static SystemState random(int numProcesses, int numResources, double density, long seed) {
+        Random random = new Random(seed);
+        SystemState state = new SystemState(numProcesses, numResources);
+        int[] allocated = new int[numResources];
+        int[] largestNeed = new int[numResources];
+        for (int i = 0; i < numProcesses; i++) {
+            for (int j = 0; j < numResources; j++) {
+                if (random.nextDouble() >= density) {
+                    continue;
+                }
+                int max = 1 + random.nextInt(8);
+                int allocation = random.nextInt(max + 1);
+                state.setMax(i, j, max);
+                state.setAllocation(i, j, allocation);
+                allocated[j] += allocation;
+                largestNeed[j] = Math.max(largestNeed[j], max - allocation);
+            }
+        }
+        for (int j = 0; j < numResources; j++) {
+            state.setTotal(j, allocated[j] + largestNeed[j]);
+        }
+        return state;
+    }
+}
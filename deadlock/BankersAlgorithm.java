@@ -0,0 +1,240 @@
+package deadlock;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implements Banker's Algorithm for deadlock avoidance
+ *
+ * The row comparisons and work updates of the safety check go through
+ * {@link RowKernel}, which uses the Vector API when it is available. From
+ * {@link #setParallelThreshold(int) a threshold} number of processes on, an untraced
+ * check runs in parallel rounds on the common fork/join pool. The scratch arrays and the
+ * safe sequence live in a {@link SafetyWorkspace}, which callers can share between checks.
+ */
+public class BankersAlgorithm {
+    private final SystemState state;
+    private final SafetyWorkspace workspace;
+    private final List<Process> safeSequence;
+    private WorklistSafetyChecker safetyChecker;
+    private SafetyVerdictCache verdictCache;
+    private SafetyTraceListener traceListener = SafetyTraceListener.NONE;
+    private int parallelThreshold = ParallelReducer.DEFAULT_THRESHOLD;
+    private ParallelReducer parallelReducer;
+    
+    public BankersAlgorithm(SystemState state) {
+        this(state, new SafetyWorkspace(state.getNumProcesses(), state.getNumResources()));
+    }
+    
+    /**
+     * Run the safety checks in a caller-owned workspace; the safe sequence is a view of
+     * its sequence buffer and changes with the next check that uses the workspace
+     */
+    public BankersAlgorithm(SystemState state, SafetyWorkspace workspace) {
+        this.state = state;
+        this.workspace = workspace;
+        this.safeSequence = new AbstractList<Process>() {
+            @Override
+            public Process get(int index) {
+                if (index < 0 || index >= workspace.getFinishedCount()) {
+                    throw new IndexOutOfBoundsException("Index " + index + ", size " + workspace.getFinishedCount());
+                }
+                return state.getProcess(workspace.sequence[index]);
+            }
+            
+            @Override
+            public int size() {
+                return workspace.getFinishedCount();
+            }
+        };
+    }
+    
+    /**
+     * Allocation-free safety check: the classic loop, serial and untraced, with its
+     * result written into the workspace's sequence buffer
+     */
+    public static boolean checkSafeState(SystemState state, SafetyWorkspace workspace) {
+        workspace.reset(state);
+        return workspace.reduceSerially(state) == state.getNumProcesses();
+    }
+    
+    /**
+     * Receive the step-by-step trace of {@link #checkSafeState()}; null disables tracing
+     */
+    public void setTraceListener(SafetyTraceListener listener) {
+        this.traceListener = listener != null ? listener : SafetyTraceListener.NONE;
+    }
+    
+    /**
+     * Check states with at least this many processes in parallel, if more than one core
+     * is available. Traced checks always run serially.
+     */
+    public void setParallelThreshold(int processes) {
+        if (processes < 1) {
+            throw new IllegalArgumentException("Parallel threshold must be at least 1");
+        }
+        this.parallelThreshold = processes;
+    }
+    
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+    
+    /**
+     * Look up the safety check of {@link #requestResources} in a verdict cache built for
+     * the same state; null checks every request again. A lookup costs O(1) whatever the
+     * size of the state, and a hit is trusted on its 128-bit fingerprint alone.
+     */
+    public void setVerdictCache(SafetyVerdictCache cache) {
+        if (cache != null && cache.getState() != state) {
+            throw new IllegalArgumentException("Verdict cache belongs to a different state");
+        }
+        this.verdictCache = cache;
+    }
+    
+    public boolean checkSafeState() {
+        int numProcesses = state.getNumProcesses();
+        int numResources = state.getNumResources();
+        int[] need = state.need;
+        int[] allocation = state.allocation;
+        RowKernel kernel = RowKernel.INSTANCE;
+        
+        // Initialize work array with available resources
+        workspace.reset(state);
+        int[] work = workspace.work;
+        boolean[] finish = workspace.finish;
+        int[] sequence = workspace.sequence;
+        
+        boolean tracing = traceListener != SafetyTraceListener.NONE;
+        if (!tracing) {
+            if (ParallelReducer.isWorthwhile(numProcesses, parallelThreshold)) {
+                return checkSafeStateInParallel(need, allocation);
+            }
+            return workspace.reduceSerially(state) == numProcesses;
+        }
+        
+        traceListener.checkStarted(Arrays.copyOf(work, numResources));
+        int count = 0;
+        
+        while (count < numProcesses) {
+            boolean found = false;
+            
+            for (int i = 0; i < numProcesses; i++) {
+                if (!finish[i]) {
+                    int row = i * numResources;
+                    
+                    // Check if all needs can be satisfied
+                    if (kernel.fits(need, row, work, numResources)) {
+                        // Process can complete, add its resources to work
+                        traceListener.processFinished(i);
+                        for (int j = 0; j < numResources; j++) {
+                            work[j] += allocation[row + j];
+                            traceListener.workUpdated(j, work[j]);
+                        }
+                        
+                        finish[i] = true;
+                        sequence[count++] = i;
+                        found = true;
+                    }
+                }
+            }
+            
+            if (!found) {
+                // No process can complete with available resources
+                workspace.complete(count);
+                traceListener.checkFinished(false);
+                return false;
+            }
+        }
+        
+        workspace.complete(count);
+        traceListener.checkFinished(true);
+        return true;
+    }
+    
+    private boolean checkSafeStateInParallel(int[] need, int[] allocation) {
+        int numProcesses = state.getNumProcesses();
+        if (parallelReducer == null) {
+            parallelReducer = new ParallelReducer(numProcesses, state.getNumResources());
+        }
+        int count = parallelReducer.reduce(need, allocation, workspace.work, workspace.finish, workspace.sequence);
+        workspace.complete(count);
+        return count == numProcesses;
+    }
+    
+    /**
+     * Resource-request algorithm: grant the request only if the resulting state is safe.
+     *
+     * Requests that exceed the available units are rejected in O(R) without running
+     * the safety check. Otherwise the request is applied in place, checked with the
+     * worklist engine (or looked up in the {@link #setVerdictCache verdict cache}) and
+     * rolled back in place if the state would become unsafe.
+     *
+     * @return true if the request was granted, false if the process has to wait
+     * @throws IllegalArgumentException if the request is negative or exceeds the remaining need
+     */
+    public boolean requestResources(int processIndex, int[] request) {
+        int numResources = state.getNumResources();
+        int row = state.rowOffset(processIndex);
+        boolean fits = true;
+        
+        for (int j = 0; j < numResources; j++) {
+            if (request[j] < 0) {
+                throw new IllegalArgumentException("Negative request for resource R" + j + " by process P" + processIndex);
+            }
+            if (request[j] > state.need[row + j]) {
+                throw new IllegalArgumentException(
+                    "Request exceeds max need for process P" + processIndex + " and resource R" + j);
+            }
+            if (request[j] > state.available[j]) {
+                fits = false;
+            }
+        }
+        if (!fits) {
+            return false;
+        }
+        
+        // Pretend to grant the request and keep it only if the state stays safe
+        state.allocate(processIndex, request);
+        if (verdictCache != null) {
+            if (verdictCache.checkSafeState()) {
+                return true;
+            }
+        } else {
+            if (safetyChecker == null) {
+                safetyChecker = new WorklistSafetyChecker(state);
+            }
+            if (safetyChecker.checkSafeState()) {
+                return true;
+            }
+        }
+        state.release(processIndex, request);
+        return false;
+    }
+    
+    /**
+     * Return units held by a process to the available pool
+     *
+     * @throws IllegalArgumentException if the vector is negative or exceeds the current allocation
+     */
+    public void releaseResources(int processIndex, int[] release) {
+        int numResources = state.getNumResources();
+        int row = state.rowOffset(processIndex);
+        
+        for (int j = 0; j < numResources; j++) {
+            if (release[j] < 0) {
+                throw new IllegalArgumentException("Negative release for resource R" + j + " by process P" + processIndex);
+            }
+            if (release[j] > state.allocation[row + j]) {
+                throw new IllegalArgumentException(
+                    "Release exceeds allocation for process P" + processIndex + " and resource R" + j);
+            }
+        }
+        state.release(processIndex, release);
+    }
+    
+    public List<Process> getSafeSequence() {
+        return safeSequence;
+    }
+}
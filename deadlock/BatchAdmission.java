@@ -0,0 +1,455 @@
+package deadlock;
+
+import java.util.Arrays;
+
+/**
+ * Grants a batch of pending requests in one pass instead of one safety check each.
+ *
+ * The batch starts with a single reduction of the current state. Its reduction order is
+ * a safe sequence, and the work vector before each position of that sequence is kept as
+ * a slack vector: work minus the need of the process at that position. Granting r to the
+ * process at position t keeps the sequence valid exactly when r fits the available units
+ * and the slack of every earlier position, because those positions run before the process
+ * returns the grant while its own condition need - r <= work - r is unchanged. An accepted
+ * grant is then subtracted from the slack of the earlier positions.
+ *
+ * Only requests that do not fit the sequence get a full safety check, which starts from
+ * the current sequence and only defers the processes that no longer fit it. If that
+ * check passes, its order replaces the sequence. The sequence is kept between batches,
+ * and releases made through {@link #release} keep it current, so a batch only starts with
+ * a full check when the state was changed some other way. Requests are considered in the
+ * order given, and the granted subset is the same as admitting them one at a time in that
+ * order, since granting units never makes a rejected request safe again.
+ *
+ * Slack is stored per resource and position in blocks of {@link #BLOCK} positions with a
+ * pending subtraction and a minimum per block, so a prefix check or update touches
+ * O(P / BLOCK + BLOCK) entries for each non-zero entry of the request.
+ */
+public class BatchAdmission {
+    
+    static final int BLOCK = 64;
+    
+    // Rescans of the deferred processes before a full check falls back to the reduction
+    private static final int MAX_RESCANS = 8;
+    
+    private final SystemState state;
+    private final int numProcesses;
+    private final int numResources;
+    private final int numBlocks;
+    private final GraphReduction reduction;
+    private final RowKernel kernel;
+    
+    // Current safe sequence, valid once hasSequence is set, and the position of every
+    // process in it
+    private int[] sequence;
+    private int[] scratchSequence;
+    private final int[] deferred;
+    private boolean hasSequence;
+    
+    // Value of state.modCount for which sequence and slack are current
+    private int sequenceModCount;
+    private final int[] position;
+    
+    // slack[j * P + k]: work[j] minus the need of the process at position k, before
+    // blockPending[j * numBlocks + k / BLOCK] is subtracted
+    private final int[] slack;
+    private final int[] blockMin;
+    private final int[] blockPending;
+    private final int[] work;
+    
+    // Units that have to be released before the state rejected by the last failed full
+    // check can become safe; see admit(..., gaps)
+    private final int[] stuckGap;
+    
+    private long fullCheckCount;
+    private long sequenceGrantCount;
+    private long checkedGrantCount;
+    private long rejectionCount;
+    
+    public BatchAdmission(SystemState state) {
+        this.state = state;
+        this.numProcesses = state.getNumProcesses();
+        this.numResources = state.getNumResources();
+        this.numBlocks = (numProcesses + BLOCK - 1) / BLOCK;
+        this.reduction = new GraphReduction(numProcesses, numResources);
+        this.kernel = RowKernel.INSTANCE;
+        this.sequence = new int[numProcesses];
+        this.scratchSequence = new int[numProcesses];
+        this.deferred = new int[numProcesses];
+        this.position = new int[numProcesses];
+        this.slack = new int[numProcesses * numResources];
+        this.blockMin = new int[numBlocks * numResources];
+        this.blockPending = new int[numBlocks * numResources];
+        this.work = new int[numResources];
+        this.stuckGap = new int[numResources];
+    }
+    
+    /**
+     * Check a request the same way as {@link BankersAlgorithm#requestResources}
+     *
+     * @throws IllegalArgumentException if the request is negative or exceeds the remaining need
+     */
+    public void validate(int processIndex, int[] request) {
+        int row = state.rowOffset(processIndex);
+        for (int j = 0; j < numResources; j++) {
+            if (request[j] < 0) {
+                throw new IllegalArgumentException("Negative request for resource R" + j + " by process P" + processIndex);
+            }
+            if (request[j] > state.need[row + j]) {
+                throw new IllegalArgumentException(
+                    "Request exceeds max need for process P" + processIndex + " and resource R" + j);
+            }
+        }
+    }
+    
+    /**
+     * Grant as many of the requests as possible, in the given priority order, while the
+     * state stays safe. Granted requests are allocated in the state. A request that
+     * exceeds the need left after earlier grants to the same process in this batch is
+     * not granted.
+     *
+     * @param processes process index of each request
+     * @param requests request vector of each request
+     * @param granted receives whether each request was granted
+     * @return the number of granted requests
+     * @throws IllegalArgumentException if any request is invalid; nothing is granted then
+     */
+    public int admit(int[] processes, int[][] requests, boolean[] granted) {
+        return admit(processes, requests, processes.length, granted);
+    }
+    
+    /**
+     * Like {@link #admit(int[], int[][], boolean[])} for the first count requests
+     */
+    public int admit(int[] processes, int[][] requests, int count, boolean[] granted) {
+        return admit(processes, requests, count, granted, null);
+    }
+    
+    /**
+     * Like {@link #admit(int[], int[][], int, boolean[])}, and for every rejected request
+     * fill gaps[k] with a lower bound on the units that have to be released, counted over
+     * all processes, before the request can be granted; all zero when there is none.
+     *
+     * A failed check stops at some work vector W with a set D of processes that cannot
+     * finish. Grants never let a process of D finish earlier, and a release moves the stop
+     * point by at most the released units, so the request stays unsafe until the units
+     * released since reach the smallest need in D minus W. A request rejected for lack of
+     * available units waits for the missing units the same way.
+     */
+    int admit(int[] processes, int[][] requests, int count, boolean[] granted, int[][] gaps) {
+        for (int k = 0; k < count; k++) {
+            validate(processes[k], requests[k]);
+        }
+        
+        if (count == 0) {
+            return 0;
+        }
+        int grants = 0;
+        boolean safe = isCurrent() || fullCheck();
+        for (int k = 0; k < count; k++) {
+            granted[k] = false;
+            if (gaps != null) {
+                Arrays.fill(gaps[k], 0);
+            }
+            if (!safe) {
+                // No grant can make an unsafe state safe
+                rejectionCount++;
+                continue;
+            }
+            
+            int process = processes[k];
+            int[] request = requests[k];
+            if (!fitsNeedAndAvailable(process, request)) {
+                rejectionCount++;
+                if (gaps != null) {
+                    for (int j = 0; j < numResources; j++) {
+                        gaps[k][j] = Math.max(0, request[j] - state.available[j]);
+                    }
+                }
+            } else if (fitsSequence(position[process], request)) {
+                state.allocate(process, request);
+                addToPrefix(position[process], request, 1);
+                sequenceModCount = state.modCount;
+                sequenceGrantCount++;
+                granted[k] = true;
+            } else {
+                state.allocate(process, request);
+                if (fullCheck()) {
+                    checkedGrantCount++;
+                    granted[k] = true;
+                } else {
+                    // A failed check leaves the slack of the state without this request intact
+                    state.release(process, request);
+                    sequenceModCount = state.modCount;
+                    rejectionCount++;
+                    if (gaps != null) {
+                        System.arraycopy(stuckGap, 0, gaps[k], 0, numResources);
+                    }
+                }
+            }
+            if (granted[k]) {
+                grants++;
+            }
+        }
+        return grants;
+    }
+    
+    /**
+     * Whether the request fits the available units, and the remaining need of its process
+     * after earlier grants of the same batch
+     */
+    private boolean fitsNeedAndAvailable(int processIndex, int[] request) {
+        int row = state.rowOffset(processIndex);
+        for (int j = 0; j < numResources; j++) {
+            if (request[j] > state.available[j] || request[j] > state.need[row + j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Whether request fits the slack of every position before t
+     */
+    private boolean fitsSequence(int t, int[] request) {
+        for (int j = 0; j < numResources; j++) {
+            if (request[j] > 0 && prefixMin(j, t) < request[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private int prefixMin(int resource, int t) {
+        int base = resource * numProcesses;
+        int blocks = resource * numBlocks;
+        int min = Integer.MAX_VALUE;
+        int fullBlocks = t / BLOCK;
+        for (int b = 0; b < fullBlocks; b++) {
+            min = Math.min(min, blockMin[blocks + b] - blockPending[blocks + b]);
+        }
+        int pending = fullBlocks < numBlocks ? blockPending[blocks + fullBlocks] : 0;
+        for (int k = fullBlocks * BLOCK; k < t; k++) {
+            min = Math.min(min, slack[base + k] - pending);
+        }
+        return min;
+    }
+    
+    /**
+     * Return units held by a process, keeping the current safe sequence.
+     *
+     * A release raises work before the position of the process by the released units and
+     * raises its own need by as much, so the sequence stays safe and only the slack of the
+     * earlier positions grows. A state changed in any other way gets a full check at the
+     * start of the next batch.
+     *
+     * @throws IllegalArgumentException if the vector is negative or exceeds the current allocation
+     */
+    public void release(int processIndex, int[] units) {
+        int row = state.rowOffset(processIndex);
+        for (int j = 0; j < numResources; j++) {
+            if (units[j] < 0) {
+                throw new IllegalArgumentException("Negative release for resource R" + j + " by process P" + processIndex);
+            }
+            if (units[j] > state.allocation[row + j]) {
+                throw new IllegalArgumentException(
+                    "Release exceeds allocation for process P" + processIndex + " and resource R" + j);
+            }
+        }
+        boolean current = isCurrent();
+        state.release(processIndex, units);
+        if (current) {
+            addToPrefix(position[processIndex], units, -1);
+            sequenceModCount = state.modCount;
+        }
+    }
+    
+    /**
+     * Whether sequence and slack still describe the state
+     */
+    private boolean isCurrent() {
+        return hasSequence && sequenceModCount == state.modCount;
+    }
+    
+    /**
+     * Subtract sign * units from the slack of every position before t: sign 1 for a
+     * grant, -1 for a release
+     */
+    private void addToPrefix(int t, int[] amounts, int sign) {
+        for (int j = 0; j < numResources; j++) {
+            int units = sign * amounts[j];
+            if (units == 0) {
+                continue;
+            }
+            int base = j * numProcesses;
+            int blocks = j * numBlocks;
+            int fullBlocks = t / BLOCK;
+            for (int b = 0; b < fullBlocks; b++) {
+                blockPending[blocks + b] += units;
+            }
+            if (fullBlocks * BLOCK < t) {
+                int from = fullBlocks * BLOCK;
+                int to = Math.min(numProcesses, from + BLOCK);
+                int min = Integer.MAX_VALUE;
+                for (int k = from; k < to; k++) {
+                    if (k < t) {
+                        slack[base + k] -= units;
+                    }
+                    min = Math.min(min, slack[base + k]);
+                }
+                blockMin[blocks + fullBlocks] = min;
+            }
+        }
+    }
+    
+    /**
+     * Full safety check of the current state. If it is safe, its safe sequence and slack
+     * replace the current ones; otherwise they are left untouched.
+     *
+     * The check is the classic rescanning loop, started along the current sequence: a
+     * process that does not fit is deferred and retried once work has grown. Requests and
+     * releases only disturb the sequence near the processes they touch, so most processes
+     * fit on the first walk and no sorting is needed. A state that needs many rescans
+     * falls back to the worklist reduction.
+     */
+    private boolean fullCheck() {
+        fullCheckCount++;
+        if (!hasSequence) {
+            return reductionCheck();
+        }
+        
+        state.copyAvailable(work);
+        int count = 0;
+        int deferredCount = 0;
+        for (int k = 0; k < numProcesses; k++) {
+            int i = sequence[k];
+            int row = state.rowOffset(i);
+            if (kernel.fits(state.need, row, work, numResources)) {
+                kernel.accumulate(state.allocation, row, work, numResources);
+                scratchSequence[count++] = i;
+            } else {
+                deferred[deferredCount++] = i;
+            }
+        }
+        
+        int passes = 0;
+        while (deferredCount > 0) {
+            if (++passes > MAX_RESCANS) {
+                return reductionCheck();
+            }
+            int remaining = 0;
+            for (int d = 0; d < deferredCount; d++) {
+                int i = deferred[d];
+                int row = state.rowOffset(i);
+                if (kernel.fits(state.need, row, work, numResources)) {
+                    kernel.accumulate(state.allocation, row, work, numResources);
+                    scratchSequence[count++] = i;
+                } else {
+                    deferred[remaining++] = i;
+                }
+            }
+            if (remaining == deferredCount) {
+                recordStuckGap(work, remaining);
+                return false;
+            }
+            deferredCount = remaining;
+        }
+        
+        int[] swap = sequence;
+        sequence = scratchSequence;
+        scratchSequence = swap;
+        rebuildSlack();
+        sequenceModCount = state.modCount;
+        return true;
+    }
+    
+    /**
+     * Full check with the worklist reduction, used when there is no sequence to start from
+     */
+    private boolean reductionCheck() {
+        reduction.load(state);
+        if (reduction.reduce() != numProcesses) {
+            int stuck = 0;
+            for (int i = 0; i < numProcesses; i++) {
+                if (!reduction.finished[i]) {
+                    deferred[stuck++] = i;
+                }
+            }
+            recordStuckGap(reduction.work, stuck);
+            return false;
+        }
+        System.arraycopy(reduction.order, 0, sequence, 0, numProcesses);
+        hasSequence = true;
+        rebuildSlack();
+        sequenceModCount = state.modCount;
+        return true;
+    }
+    
+    /**
+     * Set stuckGap to the smallest need of the first count deferred processes minus the
+     * work they are stuck at
+     */
+    private void recordStuckGap(int[] stuckWork, int count) {
+        Arrays.fill(stuckGap, Integer.MAX_VALUE);
+        for (int d = 0; d < count; d++) {
+            int row = state.rowOffset(deferred[d]);
+            for (int j = 0; j < numResources; j++) {
+                stuckGap[j] = Math.min(stuckGap[j], state.need[row + j]);
+            }
+        }
+        for (int j = 0; j < numResources; j++) {
+            stuckGap[j] = Math.max(0, stuckGap[j] - stuckWork[j]);
+        }
+    }
+    
+    private void rebuildSlack() {
+        state.copyAvailable(work);
+        for (int k = 0; k < numProcesses; k++) {
+            int i = sequence[k];
+            int row = state.rowOffset(i);
+            position[i] = k;
+            for (int j = 0; j < numResources; j++) {
+                slack[j * numProcesses + k] = work[j] - state.need[row + j];
+                work[j] += state.allocation[row + j];
+            }
+        }
+        for (int j = 0; j < numResources; j++) {
+            int base = j * numProcesses;
+            int blocks = j * numBlocks;
+            for (int b = 0; b < numBlocks; b++) {
+                int to = Math.min(numProcesses, (b + 1) * BLOCK);
+                int min = Integer.MAX_VALUE;
+                for (int k = b * BLOCK; k < to; k++) {
+                    min = Math.min(min, slack[base + k]);
+                }
+                blockMin[blocks + b] = min;
+                blockPending[blocks + b] = 0;
+            }
+        }
+    }
+    
+    /**
+     * Number of full safety checks run, including the one at the start of every batch
+     */
+    public long getFullCheckCount() {
+        return fullCheckCount;
+    }
+    
+    /**
+     * Number of requests granted because they fit the current safe sequence
+     */
+    public long getSequenceGrantCount() {
+        return sequenceGrantCount;
+    }
+    
+    /**
+     * Number of requests granted after a full safety check
+     */
+    public long getCheckedGrantCount() {
+        return checkedGrantCount;
+    }
+    
+    public long getRejectionCount() {
+        return rejectionCount;
+    }
+}
@@ -0,0 +1,394 @@
+package deadlock;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless entry point that evaluates recorded scenarios without starting the GUI.
+ *
+ * Scenarios are read one per line from a CSV or JSONL file, or from stdin, in the
+ * formats described in {@link ScenarioParser}. Lines are grouped into batches that are
+ * evaluated on a thread pool, and only a bounded number of batches is in flight at any
+ * time, so memory stays constant however long the input is. Results are written in
+ * input order, one line per scenario:
+ *
+ *     id,SAFE,P1 P3 P4 P0 P2      (bankers: the safe sequence)
+ *     id,UNSAFE,
+ *     id,DEADLOCK,P0 P1 P2        (detection, waitfor: the deadlocked processes)
+ *     id,NO_DEADLOCK,
+ *     id,ERROR,message
+ *
+ * A binary {@link StateSnapshot} is evaluated as a single scenario named after its file,
+ * and {@link #setSnapshotDirectory} saves every valid scenario of a line-based input as a
+ * snapshot, so large recorded states can be converted once and loaded without parsing
+ * afterwards.
+ *
+ * This class only touches java.base, so no AWT or Swing classes are loaded.
+ */
+public final class BatchEvaluator {
+    
+    public enum Algorithm {
+        BANKERS,
+        DETECTION,
+        WAITFOR
+    }
+    
+    public enum Format {
+        CSV,
+        JSONL,
+        SNAPSHOT
+    }
+    
+    private static final int BATCH_SIZE = 256;
+    private static final int BATCHES_PER_THREAD = 4;
+    
+    private static final String USAGE =
+        "Usage: java -cp deadlock-system.jar deadlock.BatchEvaluator [options] [input|-]\n" +
+        "  --algorithm bankers|detection|waitfor   algorithm to run (default bankers; waitfor assumes single-instance resources)\n" +
+        "  --format csv|jsonl|snapshot             input format (default from the file extension, else jsonl)\n" +
+        "  --threads N                             worker threads (default: available processors)\n" +
+        "  --save-snapshots DIR                    also save each valid scenario as DIR/<id>" + StateSnapshot.EXTENSION + "\n" +
+        "  --output FILE                           write results to FILE instead of stdout";
+    
+    private final Algorithm algorithm;
+    private final Format format;
+    private final int threads;
+    private Path snapshotDirectory;
+    private long scenarioCount;
+    private long errorCount;
+    
+    public BatchEvaluator(Algorithm algorithm, Format format, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        this.algorithm = algorithm;
+        this.format = format;
+        this.threads = threads;
+    }
+    
+    /**
+     * Also save every scenario that parses and validates as a snapshot in directory,
+     * named after its id; null (the default) saves nothing
+     */
+    public void setSnapshotDirectory(Path directory) {
+        this.snapshotDirectory = directory;
+    }
+    
+    /**
+     * Number of scenarios evaluated by the last call to {@link #evaluate}
+     */
+    public long getScenarioCount() {
+        return scenarioCount;
+    }
+    
+    /**
+     * Number of scenarios that could not be parsed or failed validation
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+    
+    /**
+     * Evaluate every scenario read from in and write one result line per scenario to out
+     */
+    public void evaluate(BufferedReader in, Writer out) throws IOException {
+        if (format == Format.SNAPSHOT) {
+            throw new IllegalStateException("Snapshots are binary; use evaluateSnapshot");
+        }
+        scenarioCount = 0;
+        errorCount = 0;
+        
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-evaluator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Batch>> inFlight = new ArrayDeque<>();
+        int window = threads * BATCHES_PER_THREAD;
+        
+        try {
+            long lineNumber = 0;
+            String[] lines = new String[BATCH_SIZE];
+            long[] lineNumbers = new long[BATCH_SIZE];
+            int size = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (ScenarioParser.isSkipped(line)) {
+                    continue;
+                }
+                lines[size] = line;
+                lineNumbers[size++] = lineNumber;
+                if (size == BATCH_SIZE) {
+                    submit(pool, inFlight, lines, lineNumbers, size);
+                    lines = new String[BATCH_SIZE];
+                    lineNumbers = new long[BATCH_SIZE];
+                    size = 0;
+                    
+                    // Keep the window bounded; results leave in input order
+                    if (inFlight.size() >= window) {
+                        write(inFlight.poll(), out);
+                    }
+                }
+            }
+            if (size > 0) {
+                submit(pool, inFlight, lines, lineNumbers, size);
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.poll(), out);
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    private void submit(ExecutorService pool, ArrayDeque<Future<Batch>> inFlight,
+                        String[] lines, long[] lineNumbers, int size) {
+        inFlight.add(pool.submit(() -> evaluateBatch(lines, lineNumbers, size)));
+    }
+    
+    /**
+     * Evaluate the state saved in a snapshot file and write its result line to out. The
+     * scenario id is the file name without the snapshot extension.
+     */
+    public void evaluateSnapshot(Path snapshot, Writer out) throws IOException {
+        String id = snapshot.getFileName().toString();
+        if (id.endsWith(StateSnapshot.EXTENSION)) {
+            id = id.substring(0, id.length() - StateSnapshot.EXTENSION.length());
+        }
+        SystemState state = StateSnapshot.read(snapshot);
+        
+        StringBuilder output = new StringBuilder();
+        errorCount = 0;
+        try {
+            state.validate();
+            evaluateScenario(new ScenarioParser.Scenario(id, state), output);
+        } catch (IllegalArgumentException e) {
+            output.append(id).append(",ERROR,").append(e.getMessage()).append('\n');
+            errorCount = 1;
+        }
+        scenarioCount = 1;
+        out.append(output);
+        out.flush();
+    }
+    
+    private void write(Future<Batch> future, Writer out) throws IOException {
+        Batch batch;
+        try {
+            batch = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for results", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Batch evaluation failed", e.getCause());
+        }
+        out.append(batch.output);
+        scenarioCount += batch.scenarios;
+        errorCount += batch.errors;
+    }
+    
+    private Batch evaluateBatch(String[] lines, long[] lineNumbers, int size) {
+        Batch batch = new Batch();
+        StringBuilder output = new StringBuilder(size * 32);
+        for (int k = 0; k < size; k++) {
+            String id = Long.toString(lineNumbers[k]);
+            try {
+                ScenarioParser.Scenario scenario = ScenarioParser.parse(lines[k], format, id);
+                id = scenario.id;
+                scenario.state.validate();
+                if (snapshotDirectory != null) {
+                    StateSnapshot.write(scenario.state, snapshotPath(id));
+                }
+                evaluateScenario(scenario, output);
+            } catch (IllegalArgumentException e) {
+                output.append(id).append(",ERROR,").append(e.getMessage()).append('\n');
+                batch.errors++;
+            } catch (RuntimeException e) {
+                // A bug or an exhausted resource on one line must not end the whole run
+                output.append(id).append(",ERROR,").append(e).append('\n');
+                batch.errors++;
+            } catch (IOException e) {
+                output.append(id).append(",ERROR,Cannot save snapshot: ").append(e.getMessage()).append('\n');
+                batch.errors++;
+            }
+            batch.scenarios++;
+        }
+        batch.output = output;
+        return batch;
+    }
+    
+    /**
+     * Snapshot file of a scenario; characters that are not safe in file names are replaced
+     */
+    private Path snapshotPath(String id) {
+        return snapshotDirectory.resolve(id.replaceAll("[^A-Za-z0-9._-]", "_") + StateSnapshot.EXTENSION);
+    }
+    
+    private void evaluateScenario(ScenarioParser.Scenario scenario, StringBuilder output) {
+        output.append(scenario.id).append(',');
+        switch (algorithm) {
+            case BANKERS: {
+                WorklistSafetyChecker checker = new WorklistSafetyChecker(scenario.state);
+                if (checker.checkSafeState()) {
+                    output.append("SAFE,");
+                    appendIndices(checker.getSafeSequenceIndices(), output);
+                } else {
+                    output.append("UNSAFE,");
+                }
+                break;
+            }
+            case DETECTION: {
+                GraphReductionDetector detector = new GraphReductionDetector(scenario.state);
+                if (detector.detectDeadlock()) {
+                    output.append("DEADLOCK,");
+                    appendProcesses(detector.getDeadlockedProcesses(), output);
+                } else {
+                    output.append("NO_DEADLOCK,");
+                }
+                break;
+            }
+            case WAITFOR: {
+                WaitForGraphDetector detector = new WaitForGraphDetector(scenario.state);
+                if (detector.detectDeadlock()) {
+                    output.append("DEADLOCK,");
+                    appendProcesses(detector.getDeadlockedProcesses(), output);
+                } else {
+                    output.append("NO_DEADLOCK,");
+                }
+                break;
+            }
+        }
+        output.append('\n');
+    }
+    
+    private static void appendIndices(int[] indices, StringBuilder output) {
+        for (int k = 0; k < indices.length; k++) {
+            if (k > 0) {
+                output.append(' ');
+            }
+            output.append('P').append(indices[k]);
+        }
+    }
+    
+    private static void appendProcesses(List<Process> processes, StringBuilder output) {
+        for (int k = 0; k < processes.size(); k++) {
+            if (k > 0) {
+                output.append(' ');
+            }
+            output.append(processes.get(k).getName());
+        }
+    }
+    
+    /**
+     * Output of one batch of lines, written once every earlier batch is done
+     */
+    private static final class Batch {
+        CharSequence output;
+        int scenarios;
+        int errors;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Algorithm algorithm = Algorithm.BANKERS;
+        Format format = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String input = "-";
+        String output = null;
+        String snapshotDirectory = null;
+        
+        try {
+            for (int k = 0; k < args.length; k++) {
+                String arg = args[k];
+                switch (arg) {
+                    case "--algorithm":
+                        algorithm = Algorithm.valueOf(value(args, ++k).toUpperCase(Locale.ROOT));
+                        break;
+                    case "--format":
+                        format = Format.valueOf(value(args, ++k).toUpperCase(Locale.ROOT));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++k));
+                        break;
+                    case "--output":
+                        output = value(args, ++k);
+                        break;
+                    case "--save-snapshots":
+                        snapshotDirectory = value(args, ++k);
+                        break;
+                    case "-h":
+                    case "--help":
+                        System.out.println(USAGE);
+                        return;
+                    default:
+                        if (arg.startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option " + arg);
+                        }
+                        input = arg;
+                }
+            }
+            if (format == null) {
+                String name = input.toLowerCase(Locale.ROOT);
+                format = name.endsWith(".csv") ? Format.CSV
+                       : name.endsWith(StateSnapshot.EXTENSION) ? Format.SNAPSHOT : Format.JSONL;
+            }
+            if (format == Format.SNAPSHOT && input.equals("-")) {
+                throw new IllegalArgumentException("Snapshots are memory-mapped and cannot be read from stdin");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        
+        BatchEvaluator evaluator = new BatchEvaluator(algorithm, format, threads);
+        if (snapshotDirectory != null) {
+            Path directory = Paths.get(snapshotDirectory);
+            Files.createDirectories(directory);
+            evaluator.setSnapshotDirectory(directory);
+        }
+        long start = System.nanoTime();
+        if (format == Format.SNAPSHOT) {
+            try (Writer out = output == null
+                     ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                     : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+                evaluator.evaluateSnapshot(Paths.get(input), out);
+            }
+        } else {
+            try (BufferedReader in = input.equals("-")
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                     : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+                 Writer out = output == null
+                     ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)
+                     : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+                evaluator.evaluate(in, out);
+            }
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.err.println("Evaluated " + evaluator.getScenarioCount() + " scenarios (" +
+                           evaluator.getErrorCount() + " errors) in " + millis + " ms");
+    }
+    
+    private static String value(String[] args, int k) {
+        if (k >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[k - 1]);
+        }
+        return args[k];
+    }
+}
@@ -0,0 +1,134 @@
+package deadlock;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sparse int matrix in compressed sparse row (CSR) form.
+ *
+ * The non-zero entries of row i are columns/values[rowStart[i]..rowStart[i + 1]),
+ * sorted by column. Memory is O(rows + non-zeros), so a matrix in which every row only
+ * touches a few of many columns costs the same as its non-zero entries.
+ */
+public final class CsrMatrix {
+    private final int numRows;
+    private final int numColumns;
+    
+    // Read directly by the engines in this package
+    final int[] rowStart;
+    final int[] columns;
+    final int[] values;
+    
+    private CsrMatrix(int numRows, int numColumns, int[] rowStart, int[] columns, int[] values) {
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.rowStart = rowStart;
+        this.columns = columns;
+        this.values = values;
+    }
+    
+    /**
+     * Compress a flat row-major matrix, dropping its zero cells
+     */
+    public static CsrMatrix fromDense(int[] cells, int numRows, int numColumns) {
+        Builder builder = new Builder(numRows, numColumns);
+        for (int i = 0; i < numRows; i++) {
+            int row = i * numColumns;
+            for (int j = 0; j < numColumns; j++) {
+                builder.add(i, j, cells[row + j]);
+            }
+        }
+        return builder.build();
+    }
+    
+    public int getNumRows() {
+        return numRows;
+    }
+    
+    public int getNumColumns() {
+        return numColumns;
+    }
+    
+    public int getNonZeroCount() {
+        return rowStart[numRows];
+    }
+    
+    /**
+     * Position of the first entry of a row; the row ends at getRowStart(row + 1)
+     */
+    public int getRowStart(int row) {
+        return rowStart[row];
+    }
+    
+    public int getColumn(int position) {
+        return columns[position];
+    }
+    
+    public int getValue(int position) {
+        return values[position];
+    }
+    
+    /**
+     * Value of one cell, found by binary search in its row
+     */
+    public int get(int row, int column) {
+        int k = Arrays.binarySearch(columns, rowStart[row], rowStart[row + 1], column);
+        return k >= 0 ? values[k] : 0;
+    }
+    
+    /**
+     * Collects the non-zero entries of a matrix in row-major order
+     */
+    public static class Builder {
+        private final int numRows;
+        private final int numColumns;
+        private final int[] rowStart;
+        private int[] columns = new int[16];
+        private int[] values = new int[16];
+        private int size;
+        private int lastRow;
+        private int lastColumn = -1;
+        
+        public Builder(int numRows, int numColumns) {
+            if (numRows < 0 || numColumns < 0) {
+                throw new IllegalArgumentException("Negative matrix size: " + numRows + " x " + numColumns);
+            }
+            this.numRows = numRows;
+            this.numColumns = numColumns;
+            this.rowStart = new int[numRows + 1];
+        }
+        
+        /**
+         * Add a cell. Cells must arrive in row-major order; zero values are skipped.
+         */
+        public Builder add(int row, int column, int value) {
+            if (row < 0 || row >= numRows || column < 0 || column >= numColumns) {
+                throw new IllegalArgumentException("Cell (" + row + ", " + column + ") outside " + numRows + " x " + numColumns + " matrix");
+            }
+            if (row < lastRow || (row == lastRow && column <= lastColumn)) {
+                throw new IllegalArgumentException("Cell (" + row + ", " + column + ") is not in row-major order");
+            }
+            // Close every row up to this one
+            while (lastRow < row) {
+                rowStart[++lastRow] = size;
+            }
+            lastColumn = column;
+            if (value == 0) {
+                return this;
+            }
+            if (size == columns.length) {
+                columns = Arrays.copyOf(columns, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            columns[size] = column;
+            values[size++] = value;
+            return this;
+        }
+        
+        public CsrMatrix build() {
+            while (lastRow < numRows) {
+                rowStart[++lastRow] = size;
+            }
+            return new CsrMatrix(numRows, numColumns, rowStart, Arrays.copyOf(columns, size), Arrays.copyOf(values, size));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package deadlock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A ReentrantLock that reports deadlock cycles through its {@link LockWaitRegistry}.
+ *
+ * Every acquisition first tries the underlying lock without blocking, so an uncontended
+ * lock, tryLock or unlock costs the same few atomic operations as a plain ReentrantLock
+ * and never touches the registry. Only a thread that has to block registers its wait
+ * edge and runs the cycle check; the edge is removed once the lock is held, the wait
+ * times out or the thread is interrupted.
+ *
+ * Re-acquiring the lock inside {@link Condition#await()} is not tracked, and like
+ * ReentrantLock.tryLock() the non-blocking first attempt ignores fairness.
+ */
+public class DeadlockAwareLock implements Lock {
+    private final LockWaitRegistry registry;
+    private final String name;
+    private final Sync sync;
+    
+    public DeadlockAwareLock(LockWaitRegistry registry, String name, boolean fair) {
+        this.registry = registry;
+        this.name = name;
+        this.sync = new Sync(fair);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Thread holding the lock, or null
+     */
+    public Thread getOwner() {
+        return sync.owner();
+    }
+    
+    public boolean isHeldByCurrentThread() {
+        return sync.isHeldByCurrentThread();
+    }
+    
+    /**
+     * @throws LockWaitRegistry.LockCycleException under {@link LockWaitRegistry.Policy#THROW}
+     *                                             when blocking would close a cycle
+     */
+    @Override
+    public void lock() {
+        if (sync.tryLock()) {
+            return;
+        }
+        registry.beforeBlocking(this);
+        try {
+            sync.lock();
+        } finally {
+            registry.afterBlocking();
+        }
+    }
+    
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (sync.tryLock()) {
+            return;
+        }
+        registry.beforeBlocking(this);
+        try {
+            sync.lockInterruptibly();
+        } finally {
+            registry.afterBlocking();
+        }
+    }
+    
+    @Override
+    public boolean tryLock() {
+        return sync.tryLock();
+    }
+    
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        if (sync.tryLock()) {
+            return true;
+        }
+        if (time <= 0) {
+            return false;
+        }
+        registry.beforeBlocking(this);
+        try {
+            return sync.tryLock(time, unit);
+        } finally {
+            registry.afterBlocking();
+        }
+    }
+    
+    @Override
+    public void unlock() {
+        sync.unlock();
+    }
+    
+    @Override
+    public Condition newCondition() {
+        return sync.newCondition();
+    }
+    
+    @Override
+    public String toString() {
+        Thread owner = sync.owner();
+        return name + (owner == null ? " [unlocked]" : " [held by " + owner.getName() + "]");
+    }
+    
+    /**
+     * ReentrantLock with its owner made visible to the registry
+     */
+    private static final class Sync extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+        
+        Sync(boolean fair) {
+            super(fair);
+        }
+        
+        Thread owner() {
+            return getOwner();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package deadlock;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Implements deadlock detection for multiple instance resources
+ *
+ * The row comparisons and work updates go through {@link RowKernel}, which uses the
+ * Vector API when it is available. From {@link #setParallelThreshold(int) a threshold}
+ * number of processes on, detection runs in parallel rounds on the common fork/join pool.
+ * The scratch arrays and the result live in a {@link SafetyWorkspace}, which callers can
+ * share between runs.
+ */
+public class DeadlockDetector {
+    private final SystemState state;
+    private final SafetyWorkspace workspace;
+    private final List<Process> deadlockedProcesses;
+    private int parallelThreshold = ParallelReducer.DEFAULT_THRESHOLD;
+    private ParallelReducer parallelReducer;
+    
+    public DeadlockDetector(SystemState state) {
+        this(state, new SafetyWorkspace(state.getNumProcesses(), state.getNumResources()));
+    }
+    
+    /**
+     * Run detection in a caller-owned workspace; the deadlocked processes are a view of
+     * its sequence buffer and change with the next check that uses the workspace
+     */
+    public DeadlockDetector(SystemState state, SafetyWorkspace workspace) {
+        this.state = state;
+        this.workspace = workspace;
+        this.deadlockedProcesses = new AbstractList<Process>() {
+            @Override
+            public Process get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+                }
+                return state.getProcess(workspace.sequence[workspace.getFinishedCount() + index]);
+            }
+            
+            @Override
+            public int size() {
+                return workspace.getSequenceLength() - workspace.getFinishedCount();
+            }
+        };
+    }
+    
+    /**
+     * Allocation-free detection: the classic loop, serial, with the deadlocked processes
+     * written after the finished ones into the workspace's sequence buffer
+     */
+    public static boolean detectDeadlock(SystemState state, SafetyWorkspace workspace) {
+        workspace.reset(state);
+        return workspace.reduceSerially(state) != state.getNumProcesses();
+    }
+    
+    /**
+     * Run detection in parallel for states with at least this many processes, if more
+     * than one core is available
+     */
+    public void setParallelThreshold(int processes) {
+        if (processes < 1) {
+            throw new IllegalArgumentException("Parallel threshold must be at least 1");
+        }
+        this.parallelThreshold = processes;
+    }
+    
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+    
+    public boolean detectDeadlock() {
+        int numProcesses = state.getNumProcesses();
+        
+        // Initialize work array with available resources
+        workspace.reset(state);
+        
+        // Similar to Banker's algorithm but we only consider current allocation
+        if (!ParallelReducer.isWorthwhile(numProcesses, parallelThreshold)) {
+            return workspace.reduceSerially(state) != numProcesses;
+        }
+        if (parallelReducer == null) {
+            parallelReducer = new ParallelReducer(numProcesses, state.getNumResources());
+        }
+        int count = parallelReducer.reduce(state.need, state.allocation, workspace.work, workspace.finish, workspace.sequence);
+        workspace.complete(count);
+        return count != numProcesses;
+    }
+    
+    public List<Process> getDeadlockedProcesses() {
+        return deadlockedProcesses;
+    }
+}
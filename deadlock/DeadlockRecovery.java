@@ -0,0 +1,259 @@
+package deadlock;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Breaks deadlocks by picking victims whose allocation is taken back.
+ *
+ * The state is read the way {@link DeadlockDetector} reads it: the need of a process is
+ * its outstanding request. {@link #recover()} reduces the allocation graph once, then
+ * repeatedly picks the deadlocked process with the lowest cost, returns its units to
+ * the pool and continues the same reduction from there. Releasing a victim only adds
+ * work, so processes reduced before stay reduced and only the waiters whose request the
+ * released units just covered are touched; nothing is reloaded and no need matrix is
+ * rebuilt between victims. Recovery with V victims out of D deadlocked processes costs
+ * one detection plus O(V * D + released edges log P).
+ *
+ * Victims are chosen greedily, cheapest first, among the processes still deadlocked
+ * after the previous release. Processes that hold nothing are only taken once no
+ * deadlocked process holds units, since taking them frees nothing. Finding the set of
+ * minimum total cost is NP-hard in general; greedy is what recovery can afford while
+ * every blocked thread waits for it.
+ */
+public class DeadlockRecovery {
+    
+    public enum Mode {
+        /** The victim leaves the system: its allocation and its request are cleared */
+        ABORT,
+        /**
+         * The victim's allocation is taken back and it waits for those units again. It
+         * can always finish last, once every other process is done, so it is not
+         * reduced again.
+         */
+        PREEMPT
+    }
+    
+    /**
+     * Cost of choosing a process as victim. It is evaluated once per deadlocked process
+     * and recovery, before any victim is released.
+     */
+    @FunctionalInterface
+    public interface CostFunction {
+        double cost(SystemState state, int processIndex);
+    }
+    
+    /**
+     * Number of units the victim holds, counted over all resource types
+     */
+    public static final CostFunction HELD_UNITS = (state, processIndex) -> {
+        int row = state.rowOffset(processIndex);
+        long held = 0;
+        for (int j = 0; j < state.getNumResources(); j++) {
+            held += state.allocation[row + j];
+        }
+        return held;
+    };
+    
+    /**
+     * Held units weighted per resource type, e.g. by how expensive a unit is to rebuild
+     */
+    public static CostFunction weightedUnits(double[] unitCosts) {
+        double[] weights = unitCosts.clone();
+        return (state, processIndex) -> {
+            if (weights.length != state.getNumResources()) {
+                throw new IllegalArgumentException("Expected " + state.getNumResources() + " unit costs, got " + weights.length);
+            }
+            int row = state.rowOffset(processIndex);
+            double cost = 0;
+            for (int j = 0; j < weights.length; j++) {
+                cost += weights[j] * state.allocation[row + j];
+            }
+            return cost;
+        };
+    }
+    
+    /**
+     * Fixed cost per process, e.g. its priority or the work it would lose. The array must
+     * have one entry per process of the state; like every cost, this is checked before
+     * any victim is released.
+     */
+    public static CostFunction perProcess(double[] processCosts) {
+        double[] costs = processCosts.clone();
+        return (state, processIndex) -> {
+            if (costs.length != state.getNumProcesses()) {
+                throw new IllegalArgumentException("Expected " + state.getNumProcesses() + " process costs, got " + costs.length);
+            }
+            return costs[processIndex];
+        };
+    }
+    
+    private final SystemState state;
+    private final int numProcesses;
+    private final int numResources;
+    private final GraphReduction reduction;
+    private CostFunction costFunction = HELD_UNITS;
+    private Mode mode = Mode.ABORT;
+    
+    // Processes still deadlocked and their cost, compacted after every release
+    private final int[] candidates;
+    private final double[] candidateCosts;
+    private final boolean[] candidateHolds;
+    
+    private final int[] deadlocked;
+    private int deadlockedCount;
+    private final int[] victims;
+    private int victimCount;
+    private double totalCost;
+    
+    public DeadlockRecovery(SystemState state) {
+        this.state = state;
+        this.numProcesses = state.getNumProcesses();
+        this.numResources = state.getNumResources();
+        this.reduction = new GraphReduction(numProcesses, numResources);
+        this.candidates = new int[numProcesses];
+        this.candidateCosts = new double[numProcesses];
+        this.candidateHolds = new boolean[numProcesses];
+        this.deadlocked = new int[numProcesses];
+        this.victims = new int[numProcesses];
+    }
+    
+    public void setCostFunction(CostFunction costFunction) {
+        if (costFunction == null) {
+            throw new IllegalArgumentException("Cost function must not be null");
+        }
+        this.costFunction = costFunction;
+    }
+    
+    public void setMode(Mode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Mode must not be null");
+        }
+        this.mode = mode;
+    }
+    
+    public Mode getMode() {
+        return mode;
+    }
+    
+    /**
+     * Detect deadlocks and release victims until none are left. The victims' allocation
+     * is returned to the pool in the state; under {@link Mode#ABORT} their request is
+     * cleared as well.
+     *
+     * @return the number of victims
+     */
+    public int recover() {
+        victimCount = 0;
+        totalCost = 0;
+        
+        reduction.load(state);
+        if (reduction.reduce() == numProcesses) {
+            deadlockedCount = 0;
+            return 0;
+        }
+        
+        int count = 0;
+        for (int i = 0; i < numProcesses; i++) {
+            if (!reduction.finished[i]) {
+                candidates[count] = i;
+                candidateCosts[count] = costFunction.cost(state, i);
+                candidateHolds[count] = holdsUnits(i);
+                count++;
+            }
+        }
+        System.arraycopy(candidates, 0, deadlocked, 0, count);
+        deadlockedCount = count;
+        
+        int removed = 0;
+        while (reduction.getReducedCount() + removed < numProcesses) {
+            // Drop the candidates the last release unblocked and pick the cheapest of the rest
+            int remaining = 0;
+            int best = -1;
+            for (int k = 0; k < count; k++) {
+                if (reduction.finished[candidates[k]]) {
+                    continue;
+                }
+                candidates[remaining] = candidates[k];
+                candidateCosts[remaining] = candidateCosts[k];
+                candidateHolds[remaining] = candidateHolds[k];
+                if (best < 0 || cheaper(remaining, best)) {
+                    best = remaining;
+                }
+                remaining++;
+            }
+            count = remaining;
+            
+            int victim = candidates[best];
+            victims[victimCount++] = victim;
+            totalCost += candidateCosts[best];
+            reduction.remove(victim);
+            removed++;
+            release(victim);
+            reduction.reduce();
+        }
+        return victimCount;
+    }
+    
+    private boolean cheaper(int a, int b) {
+        if (candidateHolds[a] != candidateHolds[b]) {
+            return candidateHolds[a];
+        }
+        return candidateCosts[a] < candidateCosts[b];
+    }
+    
+    private boolean holdsUnits(int processIndex) {
+        int row = state.rowOffset(processIndex);
+        for (int j = 0; j < numResources; j++) {
+            if (state.allocation[row + j] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void release(int processIndex) {
+        for (int j = 0; j < numResources; j++) {
+            state.setAllocation(processIndex, j, 0);
+            if (mode == Mode.ABORT) {
+                state.setMax(processIndex, j, 0);
+            }
+        }
+    }
+    
+    /**
+     * Processes that were deadlocked before the last recovery, in increasing order
+     */
+    public int[] getDeadlockedProcessIndices() {
+        return Arrays.copyOf(deadlocked, deadlockedCount);
+    }
+    
+    /**
+     * Victims of the last recovery, in the order they were chosen
+     */
+    public int[] getVictims() {
+        return Arrays.copyOf(victims, victimCount);
+    }
+    
+    /**
+     * Number of victims of the last recovery
+     */
+    public int getVictimCount() {
+        return victimCount;
+    }
+    
+    /**
+     * Victim number index of the last recovery, in the order they were chosen; unlike
+     * {@link #getVictims()} this allocates nothing
+     */
+    public int getVictim(int index) {
+        return victims[Objects.checkIndex(index, victimCount)];
+    }
+    
+    /**
+     * Summed cost of the victims of the last recovery
+     */
+    public double getTotalCost() {
+        return totalCost;
+    }
+}
@@ -0,0 +1,121 @@
+package deadlock;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of timed events in parallel primitive arrays.
+ *
+ * Events are ordered by time and, for equal times, by insertion, so a simulation driven
+ * by this queue is deterministic. Each event carries a kind and a process index. Nothing
+ * is allocated once the arrays have grown to the largest number of pending events.
+ */
+final class EventQueue {
+    private double[] times;
+    private long[] sequence;
+    private int[] kinds;
+    private int[] processes;
+    private int size;
+    private long nextSequence;
+    
+    EventQueue(int capacity) {
+        int initial = Math.max(4, capacity);
+        this.times = new double[initial];
+        this.sequence = new long[initial];
+        this.kinds = new int[initial];
+        this.processes = new int[initial];
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    void add(double time, int kind, int process) {
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            sequence = Arrays.copyOf(sequence, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            processes = Arrays.copyOf(processes, capacity);
+        }
+        // Sift the hole up from the new leaf
+        long seq = nextSequence++;
+        int k = size++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (!before(time, seq, times[parent], sequence[parent])) {
+                break;
+            }
+            move(parent, k);
+            k = parent;
+        }
+        set(k, time, seq, kind, process);
+    }
+    
+    /**
+     * Time of the earliest event; the queue must not be empty
+     */
+    double peekTime() {
+        return times[0];
+    }
+    
+    int peekKind() {
+        return kinds[0];
+    }
+    
+    int peekProcess() {
+        return processes[0];
+    }
+    
+    /**
+     * Remove the earliest event; read it with the peek methods first
+     */
+    void poll() {
+        int last = --size;
+        if (last == 0) {
+            return;
+        }
+        double time = times[last];
+        long seq = sequence[last];
+        int kind = kinds[last];
+        int process = processes[last];
+        
+        // Sift the hole down from the root
+        int k = 0;
+        int half = last >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            int right = child + 1;
+            if (right < last && before(times[right], sequence[right], times[child], sequence[child])) {
+                child = right;
+            }
+            if (!before(times[child], sequence[child], time, seq)) {
+                break;
+            }
+            move(child, k);
+            k = child;
+        }
+        set(k, time, seq, kind, process);
+    }
+    
+    private static boolean before(double time, long seq, double otherTime, long otherSeq) {
+        return time < otherTime || (time == otherTime && seq < otherSeq);
+    }
+    
+    private void move(int from, int to) {
+        times[to] = times[from];
+        sequence[to] = sequence[from];
+        kinds[to] = kinds[from];
+        processes[to] = processes[from];
+    }
+    
+    private void set(int k, double time, long seq, int kind, int process) {
+        times[k] = time;
+        sequence[k] = seq;
+        kinds[k] = kind;
+        processes[k] = process;
+    }
+}
@@ -0,0 +1,256 @@
+package deadlock;
+
+import java.util.Arrays;
+
+/**
+ * Resource-allocation graph reduction shared by the worklist safety check and the
+ * graph reduction detector.
+ *
+ * Request edges are kept in per-resource waiter queues sorted by the outstanding
+ * request, and every process counts the resources it is still blocked on. Allocation
+ * edges are kept as per-process lists of non-zero entries. When a process is reduced,
+ * only its own allocation edges are released and only the waiters whose request was
+ * just covered are touched, so a full reduction costs O(E log P) once the edge lists
+ * have been built from the dense state.
+ */
+final class GraphReduction {
+    private final int numProcesses;
+    private final int numResources;
+    
+    final int[] work;
+    
+    // Per-process count of resources whose request is still above work
+    private final int[] blockedCount;
+    
+    // Waiters of each resource packed as (request << 32 | process), sorted per resource.
+    // waiterStart[j]..waiterStart[j + 1] is the slice for resource j.
+    private long[] waiters;
+    private final int[] waiterStart;
+    
+    // Per-resource index of the first waiter whose request is still above work
+    private final int[] cursor;
+    
+    // Non-zero allocation entries of process i are allocResource/allocUnits[allocStart[i]..allocStart[i + 1]).
+    // They point at the own* arrays for a dense state and at the CSR arrays of a sparse one.
+    private int[] allocStart;
+    private int[] allocResource;
+    private int[] allocUnits;
+    private final int[] ownAllocStart;
+    private int[] ownAllocResource;
+    private int[] ownAllocUnits;
+    
+    // Reduction order; entries past head are reducible but not yet released
+    final int[] order;
+    private int head;
+    private int tail;
+    final boolean[] finished;
+    
+    GraphReduction(int numProcesses, int numResources) {
+        this.numProcesses = numProcesses;
+        this.numResources = numResources;
+        this.work = new int[numResources];
+        this.blockedCount = new int[numProcesses];
+        this.waiters = new long[0];
+        this.waiterStart = new int[numResources + 1];
+        this.cursor = new int[numResources];
+        this.ownAllocStart = new int[numProcesses + 1];
+        this.ownAllocResource = new int[0];
+        this.ownAllocUnits = new int[0];
+        this.order = new int[numProcesses];
+        this.finished = new boolean[numProcesses];
+    }
+    
+    /**
+     * Build the graph for a state, using its need matrix as the outstanding requests,
+     * and seed the worklist with every process that is not blocked at all
+     */
+    void load(SystemState state) {
+        int[] request = state.need;
+        int[] allocation = state.allocation;
+        
+        state.copyAvailable(work);
+        reset();
+        
+        // Count the edges of both kinds. Requests already covered by the initial work
+        // vector stay covered, because work only grows, so they never enter a queue.
+        int allocEntries = 0;
+        allocStart = ownAllocStart;
+        for (int i = 0; i < numProcesses; i++) {
+            int row = i * numResources;
+            allocStart[i] = allocEntries;
+            for (int j = 0; j < numResources; j++) {
+                if (request[row + j] > work[j]) {
+                    waiterStart[j + 1]++;
+                }
+                if (allocation[row + j] > 0) {
+                    allocEntries++;
+                }
+            }
+        }
+        allocStart[numProcesses] = allocEntries;
+        for (int j = 0; j < numResources; j++) {
+            waiterStart[j + 1] += waiterStart[j];
+        }
+        
+        int requestEntries = waiterStart[numResources];
+        if (waiters.length < requestEntries) {
+            waiters = new long[requestEntries];
+        }
+        if (ownAllocResource.length < allocEntries) {
+            ownAllocResource = new int[allocEntries];
+            ownAllocUnits = new int[allocEntries];
+        }
+        allocResource = ownAllocResource;
+        allocUnits = ownAllocUnits;
+        
+        // Fill the edge arrays, using cursor[] as the write position of each waiter queue
+        System.arraycopy(waiterStart, 0, cursor, 0, numResources);
+        int a = 0;
+        for (int i = 0; i < numProcesses; i++) {
+            int row = i * numResources;
+            for (int j = 0; j < numResources; j++) {
+                int units = request[row + j];
+                if (units > work[j]) {
+                    waiters[cursor[j]++] = ((long) units << 32) | i;
+                    blockedCount[i]++;
+                }
+                units = allocation[row + j];
+                if (units > 0) {
+                    allocResource[a] = j;
+                    allocUnits[a++] = units;
+                }
+            }
+        }
+        
+        sortAndSeed();
+    }
+    
+    /**
+     * Build the graph for a sparse state. Only its non-zero need entries are visited and
+     * the allocation edges are read straight from its CSR arrays, so the cost is
+     * O(P + R + non-zeros) instead of O(P * R).
+     */
+    void load(SparseSystemState state) {
+        CsrMatrix request = state.need;
+        int[] requestStart = request.rowStart;
+        int[] requestResource = request.columns;
+        int[] requestUnits = request.values;
+        
+        state.copyAvailable(work);
+        reset();
+        
+        for (int k = 0; k < requestStart[numProcesses]; k++) {
+            int j = requestResource[k];
+            if (requestUnits[k] > work[j]) {
+                waiterStart[j + 1]++;
+            }
+        }
+        for (int j = 0; j < numResources; j++) {
+            waiterStart[j + 1] += waiterStart[j];
+        }
+        
+        int requestEntries = waiterStart[numResources];
+        if (waiters.length < requestEntries) {
+            waiters = new long[requestEntries];
+        }
+        
+        System.arraycopy(waiterStart, 0, cursor, 0, numResources);
+        for (int i = 0; i < numProcesses; i++) {
+            for (int k = requestStart[i]; k < requestStart[i + 1]; k++) {
+                int j = requestResource[k];
+                int units = requestUnits[k];
+                if (units > work[j]) {
+                    waiters[cursor[j]++] = ((long) units << 32) | i;
+                    blockedCount[i]++;
+                }
+            }
+        }
+        
+        // The allocation edges are already in the per-process list form
+        allocStart = state.allocation.rowStart;
+        allocResource = state.allocation.columns;
+        allocUnits = state.allocation.values;
+        
+        sortAndSeed();
+    }
+    
+    private void reset() {
+        Arrays.fill(blockedCount, 0);
+        Arrays.fill(finished, false);
+        Arrays.fill(waiterStart, 0);
+        head = 0;
+        tail = 0;
+    }
+    
+    /**
+     * Sort every waiter queue, point the cursors at their heads and queue the processes
+     * that are not blocked at all
+     */
+    private void sortAndSeed() {
+        for (int j = 0; j < numResources; j++) {
+            Arrays.sort(waiters, waiterStart[j], waiterStart[j + 1]);
+            cursor[j] = waiterStart[j];
+        }
+        
+        for (int i = 0; i < numProcesses; i++) {
+            if (blockedCount[i] == 0) {
+                finished[i] = true;
+                order[tail++] = i;
+            }
+        }
+    }
+    
+    /**
+     * Reduce every process that can finish, releasing its allocation edges
+     *
+     * @return the number of processes reduced so far
+     */
+    int reduce() {
+        while (head < tail) {
+            int i = order[head++];
+            for (int a = allocStart[i]; a < allocStart[i + 1]; a++) {
+                addWork(allocResource[a], allocUnits[a]);
+            }
+        }
+        return tail;
+    }
+    
+    /**
+     * Add units to the work vector and queue every waiter that is no longer blocked.
+     * Call {@link #reduce()} afterwards to release the queued processes.
+     */
+    void addWork(int resource, int units) {
+        int available = work[resource] += units;
+        int end = waiterStart[resource + 1];
+        int k = cursor[resource];
+        while (k < end && (int) (waiters[k] >>> 32) <= available) {
+            int waiter = (int) waiters[k];
+            if (--blockedCount[waiter] == 0 && !finished[waiter]) {
+                finished[waiter] = true;
+                order[tail++] = waiter;
+            }
+            k++;
+        }
+        cursor[resource] = k;
+    }
+    
+    /**
+     * Take a process that is still blocked out of the graph without reducing it, e.g. an
+     * aborted deadlock victim: its allocation edges are released into work and it is never
+     * queued. Only the waiters those units unblock are touched; call {@link #reduce()}
+     * afterwards to release them.
+     */
+    void remove(int process) {
+        finished[process] = true;
+        for (int a = allocStart[process]; a < allocStart[process + 1]; a++) {
+            addWork(allocResource[a], allocUnits[a]);
+        }
+    }
+    
+    /**
+     * Number of processes reduced (or queued for reduction) so far
+     */
+    int getReducedCount() {
+        return tail;
+    }
+}
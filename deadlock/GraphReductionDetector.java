@@ -0,0 +1,88 @@
+package deadlock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implements deadlock detection by reducing the resource allocation graph (Holt).
+ *
+ * Works for any mix of single and multiple instance resources, so there is no need to
+ * pick an algorithm based on whether every resource has exactly one unit. Each process
+ * is blocked on the resources whose outstanding request exceeds the free units; waiters
+ * are queued per resource in order of their request, and reducing a process only
+ * touches the allocation edges it releases. Processes that cannot be reduced are
+ * deadlocked. Runs in O(E log P) after one pass over the dense state.
+ *
+ * A {@link SparseSystemState} skips the dense pass: only its non-zero entries are
+ * visited, and the result is available as indices.
+ */
+public class GraphReductionDetector {
+    private final SystemState state;
+    private final SparseSystemState sparseState;
+    private final int numProcesses;
+    private final GraphReduction reduction;
+    private final List<Process> deadlockedProcesses;
+    private int[] deadlockedIndices;
+    
+    public GraphReductionDetector(SystemState state) {
+        this.state = state;
+        this.sparseState = null;
+        this.numProcesses = state.getNumProcesses();
+        this.reduction = new GraphReduction(state.getNumProcesses(), state.getNumResources());
+        this.deadlockedProcesses = new ArrayList<>();
+        this.deadlockedIndices = new int[0];
+    }
+    
+    public GraphReductionDetector(SparseSystemState state) {
+        this.state = null;
+        this.sparseState = state;
+        this.numProcesses = state.getNumProcesses();
+        this.reduction = new GraphReduction(state.getNumProcesses(), state.getNumResources());
+        this.deadlockedProcesses = new ArrayList<>();
+        this.deadlockedIndices = new int[0];
+    }
+    
+    public boolean detectDeadlock() {
+        deadlockedProcesses.clear();
+        
+        if (state != null) {
+            reduction.load(state);
+        } else {
+            reduction.load(sparseState);
+        }
+        int reduced = reduction.reduce();
+        deadlockedIndices = new int[numProcesses - reduced];
+        if (reduced == numProcesses) {
+            return false;
+        }
+        
+        int count = 0;
+        for (int i = 0; i < numProcesses; i++) {
+            if (!reduction.finished[i]) {
+                deadlockedIndices[count++] = i;
+                if (state != null) {
+                    deadlockedProcesses.add(state.getProcess(i));
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @throws IllegalStateException if the detector was built for a sparse state
+     */
+    public List<Process> getDeadlockedProcesses() {
+        if (state == null) {
+            throw new IllegalStateException("Process views need a dense SystemState; use getDeadlockedProcessIndices()");
+        }
+        return deadlockedProcesses;
+    }
+    
+    /**
+     * Indices of the deadlocked processes, in increasing order
+     */
+    public int[] getDeadlockedProcessIndices() {
+        return Arrays.copyOf(deadlockedIndices, deadlockedIndices.length);
+    }
+}
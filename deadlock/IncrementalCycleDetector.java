@@ -0,0 +1,337 @@
+package deadlock;
+
+import java.util.Arrays;
+
+/**
+ * Online cycle detection for a wait-for graph whose edges arrive one at a time.
+ *
+ * Instead of rebuilding the graph on every check, the detector maintains a topological
+ * order of the acyclic part of the graph (Pearce-Kelly dynamic topological sort).
+ * Inserting an edge that agrees with the order is O(1). Otherwise only the nodes whose
+ * position lies between the two endpoints are searched and reordered, and a cycle is
+ * reported as soon as the edge that closes it is added.
+ *
+ * An edge that closes a cycle is still recorded, because the waiter really is blocked,
+ * but it is kept outside the ordered graph until one of the edges on its cycle is removed.
+ */
+public class IncrementalCycleDetector {
+    private int numNodes;
+    
+    // Topological order of the acyclic edges: position[v] and its inverse nodeAt[p]
+    private int[] position;
+    private int[] nodeAt;
+    
+    // Adjacency lists of the acyclic edges, duplicates allowed
+    private int[][] successors;
+    private int[] successorCount;
+    private int[][] predecessors;
+    private int[] predecessorCount;
+    
+    // Edges that closed a cycle when they were added, stored as waiter/holder pairs
+    private int[] deferredWaiter = new int[4];
+    private int[] deferredHolder = new int[4];
+    private int deferredCount;
+    
+    // Search scratch space; a node is visited when mark[v] == epoch
+    private int[] mark;
+    private int epoch;
+    private int[] searchStack;
+    private int[] parent;
+    private int[] forwardVisited;
+    private int forwardCount;
+    private int[] backwardVisited;
+    private int backwardCount;
+    private int[] mergedPositions;
+    
+    public IncrementalCycleDetector(int numNodes) {
+        this.numNodes = 0;
+        this.position = new int[0];
+        this.nodeAt = new int[0];
+        this.successors = new int[0][];
+        this.successorCount = new int[0];
+        this.predecessors = new int[0][];
+        this.predecessorCount = new int[0];
+        this.mark = new int[0];
+        this.searchStack = new int[0];
+        this.parent = new int[0];
+        this.forwardVisited = new int[0];
+        this.backwardVisited = new int[0];
+        this.mergedPositions = new int[0];
+        ensureNodes(numNodes);
+    }
+    
+    public int getNumNodes() {
+        return numNodes;
+    }
+    
+    /**
+     * Grow the graph so that nodes 0..count-1 exist. New nodes go to the end of the order.
+     */
+    public void ensureNodes(int count) {
+        if (count <= numNodes) {
+            return;
+        }
+        if (count > position.length) {
+            int capacity = Math.max(count, position.length * 2);
+            position = Arrays.copyOf(position, capacity);
+            nodeAt = Arrays.copyOf(nodeAt, capacity);
+            successors = Arrays.copyOf(successors, capacity);
+            successorCount = Arrays.copyOf(successorCount, capacity);
+            predecessors = Arrays.copyOf(predecessors, capacity);
+            predecessorCount = Arrays.copyOf(predecessorCount, capacity);
+            mark = Arrays.copyOf(mark, capacity);
+            searchStack = Arrays.copyOf(searchStack, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            forwardVisited = Arrays.copyOf(forwardVisited, capacity);
+            backwardVisited = Arrays.copyOf(backwardVisited, capacity);
+            mergedPositions = Arrays.copyOf(mergedPositions, capacity);
+        }
+        for (int v = numNodes; v < count; v++) {
+            position[v] = v;
+            nodeAt[v] = v;
+            successors[v] = new int[2];
+            predecessors[v] = new int[2];
+        }
+        numNodes = count;
+    }
+    
+    /**
+     * Record that waiter now waits for holder.
+     *
+     * @return null if the graph is still acyclic, otherwise the cycle closed by this
+     *         edge, starting at the waiter and following the wait-for direction
+     */
+    public int[] addWaitEdge(int waiter, int holder) {
+        checkNode(waiter);
+        checkNode(holder);
+        
+        int[] cycle = tryInsert(waiter, holder);
+        if (cycle != null) {
+            deferEdge(waiter, holder);
+        }
+        return cycle;
+    }
+    
+    /**
+     * Remove one occurrence of the edge waiter -> holder. Removing an edge can break a
+     * cycle, so edges that were set aside earlier are retried afterwards.
+     *
+     * @return false if the edge was not present
+     */
+    public boolean removeWaitEdge(int waiter, int holder) {
+        checkNode(waiter);
+        checkNode(holder);
+        
+        for (int k = 0; k < deferredCount; k++) {
+            if (deferredWaiter[k] == waiter && deferredHolder[k] == holder) {
+                removeDeferred(k);
+                return true;
+            }
+        }
+        
+        if (!removeFromList(successors[waiter], successorCount, waiter, holder)) {
+            return false;
+        }
+        removeFromList(predecessors[holder], predecessorCount, holder, waiter);
+        
+        // Retry the edges that closed a cycle; the order stays valid without them
+        for (int k = 0; k < deferredCount; ) {
+            if (tryInsert(deferredWaiter[k], deferredHolder[k]) == null) {
+                removeDeferred(k);
+            } else {
+                k++;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Whether at least one recorded edge is part of a cycle
+     */
+    public boolean hasCycle() {
+        return deferredCount > 0;
+    }
+    
+    /**
+     * Number of recorded edges that closed a cycle and are still present
+     */
+    public int getCycleEdgeCount() {
+        return deferredCount;
+    }
+    
+    /**
+     * Insert an edge into the ordered graph, reordering the affected region if needed
+     *
+     * @return the cycle the edge would close, in which case nothing is changed
+     */
+    private int[] tryInsert(int waiter, int holder) {
+        if (waiter == holder) {
+            return new int[] {waiter};
+        }
+        
+        int lowerBound = position[holder];
+        int upperBound = position[waiter];
+        if (lowerBound > upperBound) {
+            addToLists(waiter, holder);
+            return null;
+        }
+        
+        // Forward search from the holder, limited to nodes ordered before the waiter
+        nextEpoch();
+        forwardCount = 0;
+        int top = 0;
+        searchStack[top++] = holder;
+        mark[holder] = epoch;
+        parent[holder] = -1;
+        while (top > 0) {
+            int v = searchStack[--top];
+            forwardVisited[forwardCount++] = v;
+            int[] next = successors[v];
+            for (int k = successorCount[v] - 1; k >= 0; k--) {
+                int w = next[k];
+                if (w == waiter) {
+                    parent[w] = v;
+                    return buildCycle(waiter, holder);
+                }
+                if (mark[w] != epoch && position[w] < upperBound) {
+                    mark[w] = epoch;
+                    parent[w] = v;
+                    searchStack[top++] = w;
+                }
+            }
+        }
+        
+        // Backward search from the waiter, limited to nodes ordered after the holder
+        backwardCount = 0;
+        searchStack[top++] = waiter;
+        mark[waiter] = epoch;
+        while (top > 0) {
+            int v = searchStack[--top];
+            backwardVisited[backwardCount++] = v;
+            int[] previous = predecessors[v];
+            for (int k = predecessorCount[v] - 1; k >= 0; k--) {
+                int w = previous[k];
+                if (mark[w] != epoch && position[w] > lowerBound) {
+                    mark[w] = epoch;
+                    searchStack[top++] = w;
+                }
+            }
+        }
+        
+        reorder();
+        addToLists(waiter, holder);
+        return null;
+    }
+    
+    /**
+     * Give the backward set the lowest of the freed positions and the forward set the
+     * highest, keeping the relative order inside each set
+     */
+    private void reorder() {
+        sortByPosition(backwardVisited, backwardCount);
+        sortByPosition(forwardVisited, forwardCount);
+        
+        int total = 0;
+        for (int k = 0; k < backwardCount; k++) {
+            mergedPositions[total++] = position[backwardVisited[k]];
+        }
+        for (int k = 0; k < forwardCount; k++) {
+            mergedPositions[total++] = position[forwardVisited[k]];
+        }
+        Arrays.sort(mergedPositions, 0, total);
+        
+        int p = 0;
+        for (int k = 0; k < backwardCount; k++) {
+            int v = backwardVisited[k];
+            position[v] = mergedPositions[p];
+            nodeAt[mergedPositions[p++]] = v;
+        }
+        for (int k = 0; k < forwardCount; k++) {
+            int v = forwardVisited[k];
+            position[v] = mergedPositions[p];
+            nodeAt[mergedPositions[p++]] = v;
+        }
+    }
+    
+    private void sortByPosition(int[] nodes, int count) {
+        // Replace nodes by their positions, sort, and map back through nodeAt
+        for (int k = 0; k < count; k++) {
+            nodes[k] = position[nodes[k]];
+        }
+        Arrays.sort(nodes, 0, count);
+        for (int k = 0; k < count; k++) {
+            nodes[k] = nodeAt[nodes[k]];
+        }
+    }
+    
+    private int[] buildCycle(int waiter, int holder) {
+        // parent[] links lead from the waiter back to the holder
+        int length = 1;
+        for (int v = parent[waiter]; v != -1; v = parent[v]) {
+            length++;
+        }
+        int[] cycle = new int[length];
+        int k = length - 1;
+        for (int v = parent[waiter]; v != -1; v = parent[v]) {
+            cycle[k--] = v;
+        }
+        cycle[0] = waiter;
+        return cycle;
+    }
+    
+    private void nextEpoch() {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            epoch = 1;
+        }
+    }
+    
+    private void addToLists(int waiter, int holder) {
+        successors[waiter] = append(successors[waiter], successorCount, waiter, holder);
+        predecessors[holder] = append(predecessors[holder], predecessorCount, holder, waiter);
+    }
+    
+    private static int[] append(int[] list, int[] counts, int owner, int value) {
+        int size = counts[owner];
+        if (size == list.length) {
+            list = Arrays.copyOf(list, Math.max(2, size * 2));
+        }
+        list[size] = value;
+        counts[owner] = size + 1;
+        return list;
+    }
+    
+    private static boolean removeFromList(int[] list, int[] counts, int owner, int value) {
+        int size = counts[owner];
+        for (int k = 0; k < size; k++) {
+            if (list[k] == value) {
+                list[k] = list[size - 1];
+                counts[owner] = size - 1;
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void deferEdge(int waiter, int holder) {
+        if (deferredCount == deferredWaiter.length) {
+            deferredWaiter = Arrays.copyOf(deferredWaiter, deferredCount * 2);
+            deferredHolder = Arrays.copyOf(deferredHolder, deferredCount * 2);
+        }
+        deferredWaiter[deferredCount] = waiter;
+        deferredHolder[deferredCount] = holder;
+        deferredCount++;
+    }
+    
+    private void removeDeferred(int k) {
+        deferredCount--;
+        deferredWaiter[k] = deferredWaiter[deferredCount];
+        deferredHolder[k] = deferredHolder[deferredCount];
+    }
+    
+    private void checkNode(int node) {
+        if (node < 0 || node >= numNodes) {
+            throw new IllegalArgumentException("Node " + node + " outside graph of " + numNodes + " nodes");
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package deadlock;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stateful multiple instance deadlock detection that keeps its reduction between runs.
+ *
+ * The state is read the way {@link DeadlockDetector} reads it: the need of a process is
+ * its outstanding request. Changes go through {@link #request}, {@link #cancelRequest},
+ * {@link #allocate} and {@link #release}, which update the state and the kept reduction
+ * together. The detector keeps the reduction order of the processes that could finish,
+ * the work vector after them and, like {@link BatchAdmission}, the slack of every
+ * position: the work before it minus the request of the process there. A change lowers
+ * the slack of a range of positions; the order stays valid up to the first position
+ * whose slack drops below zero, and only the suffix from there is dropped and reduced
+ * again by {@link #detectDeadlock()}. A change that only raises work (a release by a
+ * blocked process, a cancelled request) keeps the whole order; the blocked processes are
+ * only retried once work reaches the smallest request among them, per resource.
+ *
+ * Slack is stored in blocks of {@link BatchAdmission#BLOCK} positions, so a change costs
+ * O(P / BLOCK + BLOCK) per non-zero entry, plus the reduction of the dropped suffix and
+ * the blocked processes. A state changed in any other way is reduced from scratch on the
+ * next run.
+ */
+public class IncrementalDeadlockDetector {
+    
+    private static final int BLOCK = BatchAdmission.BLOCK;
+    
+    // Rescans of the blocked processes before a run falls back to a full reduction
+    private static final int MAX_RESCANS = 8;
+    
+    private final SystemState state;
+    private final int numProcesses;
+    private final int numResources;
+    private final int numBlocks;
+    private final GraphReduction reduction;
+    private final RowKernel kernel;
+    
+    // Reduction order: order[0..reducedCount) could finish in this order, starting from
+    // the available units, and work is the work vector after the last of them.
+    // position[i] is the position of process i, or -1 while it is blocked.
+    private final int[] order;
+    private final int[] position;
+    private int reducedCount;
+    private final int[] work;
+    
+    // Processes not in the order; after a run these are the deadlocked ones
+    private final int[] blocked;
+    private int blockedCount;
+    
+    // Lower bound on the request of every blocked process, per resource. While work is
+    // below it for some resource, more work cannot unblock anyone.
+    private final int[] blockedMinNeed;
+    
+    // slack[j * P + k]: work[j] before position k minus the request of the process there,
+    // before blockPending[j * numBlocks + k / BLOCK] is subtracted. Only positions below
+    // reducedCount are meaningful; blockMin covers those.
+    private final int[] slack;
+    private final int[] blockMin;
+    private final int[] blockPending;
+    
+    // Set when the order has to be built from scratch, or may be extended
+    private boolean built;
+    private boolean dirty;
+    private int expectedModCount;
+    
+    private long rebuildCount;
+    private long droppedCount;
+    
+    public IncrementalDeadlockDetector(SystemState state) {
+        this.state = state;
+        this.numProcesses = state.getNumProcesses();
+        this.numResources = state.getNumResources();
+        this.numBlocks = (numProcesses + BLOCK - 1) / BLOCK;
+        this.reduction = new GraphReduction(numProcesses, numResources);
+        this.kernel = RowKernel.INSTANCE;
+        this.order = new int[numProcesses];
+        this.position = new int[numProcesses];
+        this.work = new int[numResources];
+        this.blocked = new int[numProcesses];
+        this.blockedMinNeed = new int[numResources];
+        this.slack = new int[numProcesses * numResources];
+        this.blockMin = new int[numBlocks * numResources];
+        this.blockPending = new int[numBlocks * numResources];
+    }
+    
+    /**
+     * Raise the outstanding request of a process
+     *
+     * @throws IllegalArgumentException if the vector is negative
+     */
+    public void request(int processIndex, int[] units) {
+        checkVector(processIndex, units);
+        boolean current = isCurrent();
+        for (int j = 0; j < numResources; j++) {
+            if (units[j] != 0) {
+                state.setMax(processIndex, j, state.getMax(processIndex, j) + units[j]);
+            }
+        }
+        if (!current) {
+            return;
+        }
+        int k = position[processIndex];
+        if (k >= 0) {
+            // Only the process's own position needs more work now
+            boolean fits = true;
+            for (int j = 0; j < numResources; j++) {
+                if (units[j] != 0) {
+                    adjustSlack(j, k, -units[j]);
+                    fits &= slackAt(j, k) >= 0;
+                }
+            }
+            if (!fits) {
+                truncate(k);
+            }
+        }
+        expectedModCount = state.modCount;
+    }
+    
+    /**
+     * Withdraw part of the outstanding request of a process
+     *
+     * @throws IllegalArgumentException if the vector is negative or exceeds the request
+     */
+    public void cancelRequest(int processIndex, int[] units) {
+        checkVector(processIndex, units);
+        checkAgainst(processIndex, units, state.need, "Cancellation exceeds request");
+        boolean current = isCurrent();
+        for (int j = 0; j < numResources; j++) {
+            if (units[j] != 0) {
+                state.setMax(processIndex, j, state.getMax(processIndex, j) - units[j]);
+            }
+        }
+        if (!current) {
+            return;
+        }
+        int k = position[processIndex];
+        if (k >= 0) {
+            for (int j = 0; j < numResources; j++) {
+                if (units[j] != 0) {
+                    adjustSlack(j, k, units[j]);
+                }
+            }
+        } else {
+            blockedRequestDropped(processIndex);
+        }
+        expectedModCount = state.modCount;
+    }
+    
+    /**
+     * Grant part of the outstanding request of a process from the available units
+     *
+     * @throws IllegalArgumentException if the vector is negative, exceeds the request or
+     *                                  exceeds the available units
+     */
+    public void allocate(int processIndex, int[] units) {
+        checkVector(processIndex, units);
+        checkAgainst(processIndex, units, state.need, "Allocation exceeds request");
+        for (int j = 0; j < numResources; j++) {
+            if (units[j] > state.available[j]) {
+                throw new IllegalArgumentException("Allocation exceeds available units of resource R" + j);
+            }
+        }
+        boolean current = isCurrent();
+        state.allocate(processIndex, units);
+        if (!current) {
+            return;
+        }
+        // The grant leaves less work for every position before the process; its own
+        // condition request - r <= work - r is unchanged. A blocked process gets the
+        // units from every position and from the final work vector.
+        int k = position[processIndex];
+        int end = k >= 0 ? k : reducedCount;
+        addToPrefix(end, units, 1);
+        if (k < 0) {
+            for (int j = 0; j < numResources; j++) {
+                work[j] -= units[j];
+            }
+            blockedRequestDropped(processIndex);
+        }
+        int first = firstNegative(end, units);
+        if (first >= 0) {
+            truncate(first);
+        }
+        expectedModCount = state.modCount;
+    }
+    
+    /**
+     * Return units held by a process to the available pool; its outstanding request is
+     * unchanged
+     *
+     * @throws IllegalArgumentException if the vector is negative or exceeds the allocation
+     */
+    public void release(int processIndex, int[] units) {
+        checkVector(processIndex, units);
+        checkAgainst(processIndex, units, state.allocation, "Release exceeds allocation");
+        boolean current = isCurrent();
+        for (int j = 0; j < numResources; j++) {
+            if (units[j] != 0) {
+                state.setAllocation(processIndex, j, state.getAllocation(processIndex, j) - units[j]);
+                state.setMax(processIndex, j, state.getMax(processIndex, j) - units[j]);
+            }
+        }
+        if (!current) {
+            return;
+        }
+        // More work up to and including the process's position; after it the units would
+        // have been returned anyway. A blocked process raises the final work vector.
+        int k = position[processIndex];
+        addToPrefix(k >= 0 ? k + 1 : reducedCount, units, -1);
+        if (k < 0) {
+            for (int j = 0; j < numResources; j++) {
+                work[j] += units[j];
+            }
+            dirty |= kernel.fits(blockedMinNeed, 0, work, numResources);
+        }
+        expectedModCount = state.modCount;
+    }
+    
+    public boolean detectDeadlock() {
+        if (!isCurrent()) {
+            rebuild();
+        } else if (dirty) {
+            extend();
+        }
+        expectedModCount = state.modCount;
+        return blockedCount > 0;
+    }
+    
+    /**
+     * Indices of the processes deadlocked at the last run, in increasing order
+     */
+    public int[] getDeadlockedProcessIndices() {
+        int[] indices = Arrays.copyOf(blocked, blockedCount);
+        Arrays.sort(indices);
+        return indices;
+    }
+    
+    public List<Process> getDeadlockedProcesses() {
+        int[] indices = getDeadlockedProcessIndices();
+        return new AbstractList<Process>() {
+            @Override
+            public Process get(int index) {
+                return state.getProcess(indices[index]);
+            }
+            
+            @Override
+            public int size() {
+                return indices.length;
+            }
+        };
+    }
+    
+    /**
+     * Number of runs that reduced the state from scratch
+     */
+    public long getRebuildCount() {
+        return rebuildCount;
+    }
+    
+    /**
+     * Number of positions dropped from the kept order because a change invalidated them
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+    
+    private boolean isCurrent() {
+        return built && expectedModCount == state.modCount;
+    }
+    
+    /**
+     * Keep blockedMinNeed a lower bound after the request of a blocked process dropped,
+     * and retry the blocked processes if it can finish now
+     */
+    private void blockedRequestDropped(int processIndex) {
+        int row = state.rowOffset(processIndex);
+        if (kernel.fits(state.need, row, work, numResources)) {
+            dirty = true;
+        }
+        lowerBlockedMinNeed(processIndex);
+    }
+    
+    private void checkVector(int processIndex, int[] units) {
+        if (processIndex < 0 || processIndex >= numProcesses) {
+            throw new IllegalArgumentException("No such process P" + processIndex);
+        }
+        if (units.length != numResources) {
+            throw new IllegalArgumentException("Expected " + numResources + " resource types, got " + units.length);
+        }
+        for (int j = 0; j < numResources; j++) {
+            if (units[j] < 0) {
+                throw new IllegalArgumentException("Negative units of resource R" + j + " for process P" + processIndex);
+            }
+        }
+    }
+    
+    private void checkAgainst(int processIndex, int[] units, int[] limit, String message) {
+        int row = state.rowOffset(processIndex);
+        for (int j = 0; j < numResources; j++) {
+            if (units[j] > limit[row + j]) {
+                throw new IllegalArgumentException(message + " for process P" + processIndex + " and resource R" + j);
+            }
+        }
+    }
+    
+    /**
+     * Reduce the state from scratch with the worklist reduction and rebuild the slack
+     */
+    private void rebuild() {
+        rebuildCount++;
+        reduction.load(state);
+        int reduced = reduction.reduce();
+        Arrays.fill(position, -1);
+        blockedCount = 0;
+        for (int i = 0; i < numProcesses; i++) {
+            if (!reduction.finished[i]) {
+                blocked[blockedCount++] = i;
+            }
+        }
+        reducedCount = 0;
+        state.copyAvailable(work);
+        for (int k = 0; k < reduced; k++) {
+            append(reduction.order[k]);
+        }
+        Arrays.fill(blockedMinNeed, Integer.MAX_VALUE);
+        for (int b = 0; b < blockedCount; b++) {
+            lowerBlockedMinNeed(blocked[b]);
+        }
+        built = true;
+        dirty = false;
+    }
+    
+    /**
+     * Append every blocked process that can finish to the order. Processes dropped by
+     * truncate() come first in their old order, so most of them fit on the first walk.
+     */
+    private void extend() {
+        int passes = 0;
+        while (blockedCount > 0) {
+            if (++passes > MAX_RESCANS) {
+                rebuild();
+                return;
+            }
+            // The pass that makes no progress leaves the exact minimum behind
+            Arrays.fill(blockedMinNeed, Integer.MAX_VALUE);
+            int remaining = 0;
+            for (int b = 0; b < blockedCount; b++) {
+                int i = blocked[b];
+                if (kernel.fits(state.need, state.rowOffset(i), work, numResources)) {
+                    append(i);
+                } else {
+                    blocked[remaining++] = i;
+                    lowerBlockedMinNeed(i);
+                }
+            }
+            if (remaining == blockedCount) {
+                break;
+            }
+            blockedCount = remaining;
+        }
+        dirty = false;
+    }
+    
+    private void lowerBlockedMinNeed(int processIndex) {
+        int row = state.rowOffset(processIndex);
+        for (int j = 0; j < numResources; j++) {
+            blockedMinNeed[j] = Math.min(blockedMinNeed[j], state.need[row + j]);
+        }
+    }
+    
+    private void append(int processIndex) {
+        int k = reducedCount++;
+        int block = k / BLOCK;
+        int row = state.rowOffset(processIndex);
+        for (int j = 0; j < numResources; j++) {
+            int b = j * numBlocks + block;
+            if (k % BLOCK == 0) {
+                blockPending[b] = 0;
+                blockMin[b] = Integer.MAX_VALUE;
+            }
+            int value = work[j] - state.need[row + j] + blockPending[b];
+            slack[j * numProcesses + k] = value;
+            blockMin[b] = Math.min(blockMin[b], value);
+            work[j] += state.allocation[row + j];
+        }
+        order[k] = processIndex;
+        position[processIndex] = k;
+    }
+    
+    /**
+     * Drop positions from first on, putting their processes in front of the blocked ones
+     */
+    private void truncate(int first) {
+        int dropped = reducedCount - first;
+        droppedCount += dropped;
+        System.arraycopy(blocked, 0, blocked, dropped, blockedCount);
+        for (int k = first; k < reducedCount; k++) {
+            int i = order[k];
+            int row = state.rowOffset(i);
+            for (int j = 0; j < numResources; j++) {
+                work[j] -= state.allocation[row + j];
+            }
+            position[i] = -1;
+            blocked[k - first] = i;
+        }
+        blockedCount += dropped;
+        reducedCount = first;
+        if (first % BLOCK != 0) {
+            for (int j = 0; j < numResources; j++) {
+                refreshBlockMin(j, first / BLOCK);
+            }
+        }
+        dirty = true;
+    }
+    
+    private int slackAt(int resource, int k) {
+        return slack[resource * numProcesses + k] - blockPending[resource * numBlocks + k / BLOCK];
+    }
+    
+    private void adjustSlack(int resource, int k, int delta) {
+        slack[resource * numProcesses + k] += delta;
+        refreshBlockMin(resource, k / BLOCK);
+    }
+    
+    private void refreshBlockMin(int resource, int block) {
+        int base = resource * numProcesses;
+        int to = Math.min(reducedCount, (block + 1) * BLOCK);
+        int min = Integer.MAX_VALUE;
+        for (int k = block * BLOCK; k < to; k++) {
+            min = Math.min(min, slack[base + k]);
+        }
+        blockMin[resource * numBlocks + block] = min;
+    }
+    
+    /**
+     * Subtract sign * units from the slack of every position before t: sign 1 when work
+     * shrinks, -1 when it grows
+     */
+    private void addToPrefix(int t, int[] amounts, int sign) {
+        for (int j = 0; j < numResources; j++) {
+            int units = sign * amounts[j];
+            if (units == 0) {
+                continue;
+            }
+            int base = j * numProcesses;
+            int blocks = j * numBlocks;
+            int fullBlocks = t / BLOCK;
+            for (int b = 0; b < fullBlocks; b++) {
+                blockPending[blocks + b] += units;
+            }
+            if (fullBlocks * BLOCK < t) {
+                for (int k = fullBlocks * BLOCK; k < t; k++) {
+                    slack[base + k] -= units;
+                }
+                refreshBlockMin(j, fullBlocks);
+            }
+        }
+    }
+    
+    /**
+     * First position before t whose slack is negative for a resource with a non-zero
+     * entry in amounts, or -1
+     */
+    private int firstNegative(int t, int[] amounts) {
+        int first = -1;
+        for (int j = 0; j < numResources; j++) {
+            if (amounts[j] == 0) {
+                continue;
+            }
+            int end = first >= 0 ? first : t;
+            int blocks = j * numBlocks;
+            int lastBlock = (end + BLOCK - 1) / BLOCK;
+            for (int b = 0; b < lastBlock; b++) {
+                if (blockMin[blocks + b] - blockPending[blocks + b] >= 0) {
+                    continue;
+                }
+                int found = -1;
+                int to = Math.min(end, (b + 1) * BLOCK);
+                for (int k = b * BLOCK; k < to; k++) {
+                    if (slackAt(j, k) < 0) {
+                        found = k;
+                        break;
+                    }
+                }
+                if (found >= 0) {
+                    first = found;
+                    break;
+                }
+            }
+        }
+        return first;
+    }
+}
@@ -0,0 +1,329 @@
+package deadlock;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the threads of a live JVM and reports lock deadlocks between them.
+ *
+ * Each sample takes a cheap snapshot of every thread without stack traces or lock
+ * lists and builds a {@link WaitForGraph} with an edge from each thread blocked on a
+ * monitor or an ownable synchronizer (e.g. ReentrantLock) to the owner of that lock.
+ * Only when the graph has a cycle are the threads on it sampled again with full stacks
+ * and held locks; a cycle that is still closed in that second sample is reported once,
+ * in wait-for order, until it disappears.
+ *
+ * The interval adapts: it shrinks towards the minimum while threads wait on locks and
+ * grows towards the maximum while nothing does, but never drops below the cost of the
+ * last sample divided by the overhead budget, so sampling stays within that fraction of
+ * one core however many threads there are. Per-sample cost is kept in the metrics.
+ */
+public class JvmDeadlockMonitor implements AutoCloseable {
+    
+    public static final long DEFAULT_MIN_INTERVAL_MILLIS = 100;
+    public static final long DEFAULT_MAX_INTERVAL_MILLIS = 10_000;
+    public static final double DEFAULT_MAX_OVERHEAD = 0.01;
+    
+    /**
+     * Receives each newly found deadlock on the sampling thread
+     */
+    public interface Listener {
+        void deadlockDetected(Deadlock deadlock);
+    }
+    
+    /**
+     * Listener that prints each deadlock to System.err
+     */
+    public static final Listener PRINT_TO_STDERR = deadlock -> System.err.println(deadlock);
+    
+    private final ThreadMXBean threadBean;
+    private final Listener listener;
+    private final long minIntervalNanos;
+    private final long maxIntervalNanos;
+    private final double maxOverhead;
+    
+    private ScheduledExecutorService scheduler;
+    private volatile long intervalNanos;
+    
+    // Cycles already reported, keyed by their sorted thread ids; sampling thread only
+    private Set<String> reportedCycles = new HashSet<>();
+    
+    // Metrics, written by the sampling thread
+    private volatile long sampleCount;
+    private volatile long detailedSampleCount;
+    private volatile long deadlockCount;
+    private volatile long lastSampleNanos;
+    private volatile long maxSampleNanos;
+    private volatile long totalSampleNanos;
+    private volatile long lastWaitEdges;
+    
+    public JvmDeadlockMonitor(Listener listener) {
+        this(ManagementFactory.getThreadMXBean(), listener,
+             DEFAULT_MIN_INTERVAL_MILLIS, DEFAULT_MAX_INTERVAL_MILLIS, DEFAULT_MAX_OVERHEAD);
+    }
+    
+    /**
+     * @param maxOverhead largest fraction of one core spent sampling, e.g. 0.01 for 1%
+     */
+    public JvmDeadlockMonitor(ThreadMXBean threadBean, Listener listener,
+                              long minIntervalMillis, long maxIntervalMillis, double maxOverhead) {
+        if (minIntervalMillis < 1 || maxIntervalMillis < minIntervalMillis) {
+            throw new IllegalArgumentException("Invalid sampling interval range " + minIntervalMillis + ".." + maxIntervalMillis + " ms");
+        }
+        if (!(maxOverhead > 0 && maxOverhead <= 1)) {
+            throw new IllegalArgumentException("Overhead budget must be in (0, 1]: " + maxOverhead);
+        }
+        this.threadBean = threadBean;
+        this.listener = listener != null ? listener : PRINT_TO_STDERR;
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMillis);
+        this.maxIntervalNanos = TimeUnit.MILLISECONDS.toNanos(maxIntervalMillis);
+        this.maxOverhead = maxOverhead;
+        this.intervalNanos = minIntervalNanos;
+    }
+    
+    /**
+     * Start sampling on a daemon thread
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jvm-deadlock-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.schedule(this::sampleAndReschedule, 0, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Stop sampling
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    
+    private void sampleAndReschedule() {
+        try {
+            sample();
+        } catch (RuntimeException e) {
+            // A failing listener must not stop the monitor
+            e.printStackTrace();
+        }
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.schedule(this::sampleAndReschedule, intervalNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+    
+    /**
+     * Take one sample now, report new deadlocks to the listener and adapt the interval
+     *
+     * @return every deadlock present in this sample, including ones reported before
+     */
+    public synchronized List<Deadlock> sample() {
+        long start = System.nanoTime();
+        
+        // Cheap pass: no stacks, no lock lists. Sorted ids double as the node numbering.
+        long[] ids = threadBean.getAllThreadIds();
+        Arrays.sort(ids);
+        ThreadInfo[] infos = threadBean.getThreadInfo(ids, 0);
+        
+        WaitForGraph.Builder builder = new WaitForGraph.Builder(ids.length);
+        int waitEdges = 0;
+        for (int k = 0; k < ids.length; k++) {
+            ThreadInfo info = infos[k];
+            if (info == null || info.getLockOwnerId() == -1) {
+                continue;
+            }
+            int owner = Arrays.binarySearch(ids, info.getLockOwnerId());
+            if (owner >= 0) {
+                builder.addEdge(k, owner);
+                waitEdges++;
+            }
+        }
+        
+        List<Deadlock> deadlocks = new ArrayList<>();
+        Set<String> present = new HashSet<>();
+        List<int[]> cycles = waitEdges > 1 ? builder.build().findCycles() : Collections.emptyList();
+        for (int[] cycle : cycles) {
+            long[] memberIds = new long[cycle.length];
+            for (int k = 0; k < cycle.length; k++) {
+                memberIds[k] = ids[cycle[k]];
+            }
+            
+            // Expensive pass, only for the threads on a candidate cycle
+            Deadlock deadlock = confirm(memberIds);
+            detailedSampleCount++;
+            if (deadlock == null) {
+                continue;
+            }
+            deadlocks.add(deadlock);
+            String key = Arrays.toString(memberIds);
+            present.add(key);
+            if (!reportedCycles.contains(key)) {
+                deadlockCount++;
+                listener.deadlockDetected(deadlock);
+            }
+        }
+        reportedCycles = present;
+        
+        long cost = System.nanoTime() - start;
+        sampleCount++;
+        lastSampleNanos = cost;
+        totalSampleNanos += cost;
+        if (cost > maxSampleNanos) {
+            maxSampleNanos = cost;
+        }
+        lastWaitEdges = waitEdges;
+        adaptInterval(cost, waitEdges > 0 || !deadlocks.isEmpty());
+        return deadlocks;
+    }
+    
+    /**
+     * Re-sample the candidate threads with stacks and held locks, and check that every
+     * one of them still waits for another one
+     *
+     * @param memberIds sorted thread ids of the candidate cycle
+     */
+    private Deadlock confirm(long[] memberIds) {
+        ThreadInfo[] detail = threadBean.getThreadInfo(memberIds,
+            threadBean.isObjectMonitorUsageSupported(), threadBean.isSynchronizerUsageSupported());
+        for (ThreadInfo info : detail) {
+            if (info == null || Arrays.binarySearch(memberIds, info.getLockOwnerId()) < 0) {
+                return null;
+            }
+        }
+        
+        // Follow the owners from the lowest id to list the cycle in wait-for order
+        List<ThreadInfo> ordered = new ArrayList<>(detail.length);
+        boolean[] seen = new boolean[detail.length];
+        int k = 0;
+        while (!seen[k]) {
+            seen[k] = true;
+            ordered.add(detail[k]);
+            k = Arrays.binarySearch(memberIds, detail[k].getLockOwnerId());
+        }
+        if (ordered.size() != detail.length) {
+            return null;
+        }
+        return new Deadlock(ordered);
+    }
+    
+    private void adaptInterval(long cost, boolean contended) {
+        long next = contended ? Math.max(minIntervalNanos, intervalNanos / 2) : Math.min(maxIntervalNanos, intervalNanos * 2);
+        // The overhead budget wins over the configured maximum
+        long floor = (long) (cost / maxOverhead);
+        intervalNanos = Math.max(next, floor);
+    }
+    
+    public long getSampleCount() {
+        return sampleCount;
+    }
+    
+    /**
+     * Number of candidate cycles that needed the expensive sample with stacks and locks
+     */
+    public long getDetailedSampleCount() {
+        return detailedSampleCount;
+    }
+    
+    /**
+     * Number of distinct deadlocks reported to the listener
+     */
+    public long getDeadlockCount() {
+        return deadlockCount;
+    }
+    
+    public long getLastSampleNanos() {
+        return lastSampleNanos;
+    }
+    
+    public long getMaxSampleNanos() {
+        return maxSampleNanos;
+    }
+    
+    public long getAverageSampleNanos() {
+        long samples = sampleCount;
+        return samples == 0 ? 0 : totalSampleNanos / samples;
+    }
+    
+    /**
+     * Number of threads waiting for a lock owned by another thread in the last sample
+     */
+    public long getLastWaitEdges() {
+        return lastWaitEdges;
+    }
+    
+    public long getCurrentIntervalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(intervalNanos);
+    }
+    
+    /**
+     * Threads that wait for each other in a cycle, each with its stack and held locks
+     */
+    public static final class Deadlock {
+        private final List<ThreadInfo> threads;
+        
+        Deadlock(List<ThreadInfo> threads) {
+            this.threads = Collections.unmodifiableList(threads);
+        }
+        
+        /**
+         * The threads in wait-for order: each one waits for a lock held by the next,
+         * and the last one waits for the first
+         */
+        public List<ThreadInfo> getThreads() {
+            return threads;
+        }
+        
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append("Deadlock between ").append(threads.size()).append(" threads:\n");
+            for (ThreadInfo info : threads) {
+                out.append('"').append(info.getThreadName()).append("\" (id ").append(info.getThreadId())
+                   .append(") waits for ").append(info.getLockName())
+                   .append(" held by \"").append(info.getLockOwnerName()).append("\" (id ")
+                   .append(info.getLockOwnerId()).append(")\n");
+                
+                StackTraceElement[] stack = info.getStackTrace();
+                MonitorInfo[] monitors = info.getLockedMonitors();
+                for (int depth = 0; depth < stack.length; depth++) {
+                    out.append("    at ").append(stack[depth]).append('\n');
+                    for (MonitorInfo monitor : monitors) {
+                        if (monitor.getLockedStackDepth() == depth) {
+                            out.append("    - locked ").append(monitor).append('\n');
+                        }
+                    }
+                }
+                LockInfo[] synchronizers = info.getLockedSynchronizers();
+                if (synchronizers.length > 0) {
+                    out.append("    Locked synchronizers:\n");
+                    for (LockInfo synchronizer : synchronizers) {
+                        out.append("    - ").append(synchronizer).append('\n');
+                    }
+                }
+                out.append('\n');
+            }
+            return out.toString();
+        }
+    }
+}
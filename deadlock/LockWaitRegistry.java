@@ -0,0 +1,222 @@
+package deadlock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Real-time wait-for graph of the threads that use a group of {@link DeadlockAwareLock}s.
+ *
+ * Owner edges live in the locks themselves (the owner of the underlying ReentrantLock)
+ * and waiter edges in a concurrent thread -> lock map that is only written when a thread
+ * is about to block. A thread waits for at most one lock at a time, so the graph is a set
+ * of chains: the check walks from the requested lock through its owner, the lock that
+ * owner waits for, and so on, and finds a cycle when the walk comes back to the requesting
+ * thread. Since every waiter registers before it checks, of two threads that close a
+ * cycle at the same moment at least one sees the other, so each cycle is found by the
+ * thread whose request closed it. A found cycle is re-read edge by edge before it is
+ * reported, which filters out walks that raced with a release.
+ */
+public class LockWaitRegistry {
+    
+    public enum Policy {
+        /** Report the cycle to the listener and block anyway */
+        REPORT,
+        /** Report the cycle, then throw {@link LockCycleException} in the thread that closed it */
+        THROW
+    }
+    
+    /**
+     * Receives each cycle on the thread that closed it, before that thread blocks or throws
+     */
+    public interface Listener {
+        void cycleDetected(LockCycle cycle);
+    }
+    
+    /**
+     * Listener that prints each cycle to System.err
+     */
+    public static final Listener PRINT_TO_STDERR = cycle -> System.err.println(cycle);
+    
+    private final Policy policy;
+    private final Listener listener;
+    
+    // Lock each blocked thread waits for
+    private final ConcurrentHashMap<Thread, DeadlockAwareLock> waitingFor = new ConcurrentHashMap<>();
+    
+    private final AtomicLong blockCount = new AtomicLong();
+    private final AtomicLong cycleCount = new AtomicLong();
+    
+    public LockWaitRegistry() {
+        this(Policy.REPORT, PRINT_TO_STDERR);
+    }
+    
+    public LockWaitRegistry(Policy policy, Listener listener) {
+        this.policy = policy;
+        this.listener = listener != null ? listener : PRINT_TO_STDERR;
+    }
+    
+    /**
+     * Create a lock tracked by this registry
+     */
+    public DeadlockAwareLock newLock(String name) {
+        return new DeadlockAwareLock(this, name, false);
+    }
+    
+    public Policy getPolicy() {
+        return policy;
+    }
+    
+    /**
+     * Number of times a thread had to block on one of the locks
+     */
+    public long getBlockCount() {
+        return blockCount.get();
+    }
+    
+    /**
+     * Number of cycles found so far
+     */
+    public long getCycleCount() {
+        return cycleCount.get();
+    }
+    
+    /**
+     * Lock the given thread is currently blocked on, or null
+     */
+    public DeadlockAwareLock getWaitingFor(Thread thread) {
+        return waitingFor.get(thread);
+    }
+    
+    /**
+     * Record that the current thread is about to block on lock, and check whether that
+     * closes a cycle.
+     *
+     * @throws LockCycleException under {@link Policy#THROW} when it does; the wait edge
+     *                            is removed again before the exception is thrown
+     */
+    void beforeBlocking(DeadlockAwareLock lock) {
+        Thread current = Thread.currentThread();
+        blockCount.incrementAndGet();
+        waitingFor.put(current, lock);
+        
+        LockCycle cycle = findCycle(current, lock);
+        if (cycle == null) {
+            return;
+        }
+        cycleCount.incrementAndGet();
+        listener.cycleDetected(cycle);
+        if (policy == Policy.THROW) {
+            waitingFor.remove(current);
+            throw new LockCycleException(cycle);
+        }
+    }
+    
+    /**
+     * Remove the wait edge of the current thread once it holds the lock or gave up
+     */
+    void afterBlocking() {
+        waitingFor.remove(Thread.currentThread());
+    }
+    
+    private LockCycle findCycle(Thread current, DeadlockAwareLock lock) {
+        List<Thread> threads = new ArrayList<>();
+        List<DeadlockAwareLock> locks = new ArrayList<>();
+        threads.add(current);
+        locks.add(lock);
+        
+        // Every step visits a different blocked thread unless the chain ends in a cycle
+        // that does not include the current thread; that one was reported when it closed
+        long maxSteps = waitingFor.mappingCount() + 1;
+        DeadlockAwareLock next = lock;
+        for (long step = 0; step < maxSteps; step++) {
+            Thread owner = next.getOwner();
+            if (owner == null) {
+                return null;
+            }
+            if (owner == current) {
+                return confirm(threads, locks) ? new LockCycle(threads, locks) : null;
+            }
+            next = waitingFor.get(owner);
+            if (next == null) {
+                return null;
+            }
+            threads.add(owner);
+            locks.add(next);
+        }
+        return null;
+    }
+    
+    /**
+     * Re-read every edge of a cycle found by a walk that may have raced with other threads
+     */
+    private boolean confirm(List<Thread> threads, List<DeadlockAwareLock> locks) {
+        int n = threads.size();
+        for (int k = 0; k < n; k++) {
+            if (waitingFor.get(threads.get(k)) != locks.get(k) || locks.get(k).getOwner() != threads.get((k + 1) % n)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * A cycle of threads, each blocked on a lock held by the next
+     */
+    public static final class LockCycle {
+        private final List<Thread> threads;
+        private final List<DeadlockAwareLock> locks;
+        
+        LockCycle(List<Thread> threads, List<DeadlockAwareLock> locks) {
+            this.threads = Collections.unmodifiableList(threads);
+            this.locks = Collections.unmodifiableList(locks);
+        }
+        
+        /**
+         * The threads in wait-for order, starting with the one that closed the cycle
+         */
+        public List<Thread> getThreads() {
+            return threads;
+        }
+        
+        /**
+         * getLocks().get(k) is the lock getThreads().get(k) waits for; it is held by the
+         * next thread, and the last one is held by the first thread
+         */
+        public List<DeadlockAwareLock> getLocks() {
+            return locks;
+        }
+        
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append("Lock cycle between ").append(threads.size()).append(" threads:\n");
+            for (int k = 0; k < threads.size(); k++) {
+                Thread holder = threads.get((k + 1) % threads.size());
+                out.append("  \"").append(threads.get(k).getName()).append("\" waits for ")
+                   .append(locks.get(k).getName()).append(" held by \"").append(holder.getName()).append("\"\n");
+            }
+            return out.toString();
+        }
+    }
+    
+    /**
+     * Thrown under {@link Policy#THROW} in the thread whose lock request closed a cycle
+     */
+    public static class LockCycleException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+        
+        private final transient LockCycle cycle;
+        
+        public LockCycleException(LockCycle cycle) {
+            super(cycle.toString());
+            this.cycle = cycle;
+        }
+        
+        public LockCycle getCycle() {
+            return cycle;
+        }
+    }
+}
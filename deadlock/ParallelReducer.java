@@ -0,0 +1,138 @@
+package deadlock;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Round-based parallel version of the classic safety / detection loop.
+ *
+ * Each round tests every unfinished process against the work vector of the round in
+ * parallel on the common fork/join pool, then folds the allocations of all processes
+ * that fit into work in one combine step (split by resource columns when the fold is
+ * large). Work only grows, so a process that fits at the start of a round still fits
+ * after any other process of that round has finished: listing each round in index
+ * order gives a valid safe sequence, and the set of processes that can finish, hence
+ * the verdict, is the same as with the serial loop.
+ */
+final class ParallelReducer {
+    
+    /**
+     * Default number of processes from which the classic engines go parallel
+     */
+    static final int DEFAULT_THRESHOLD = 20_000;
+    
+    // Target number of row cells tested or folded by one parallel task
+    private static final int CELLS_PER_TASK = 1 << 16;
+    private static final int COLUMNS_PER_BLOCK = 64;
+    
+    private final int numProcesses;
+    private final int numResources;
+    private final RowKernel kernel;
+    
+    // Unfinished processes, compacted after every round, and the per-round result
+    private final int[] pending;
+    private final boolean[] ready;
+    private final int[] readyList;
+    
+    ParallelReducer(int numProcesses, int numResources) {
+        this.numProcesses = numProcesses;
+        this.numResources = numResources;
+        this.kernel = RowKernel.INSTANCE;
+        this.pending = new int[numProcesses];
+        this.ready = new boolean[numProcesses];
+        this.readyList = new int[numProcesses];
+    }
+    
+    /**
+     * Whether the parallel engine should be used for a state of this many processes
+     */
+    static boolean isWorthwhile(int numProcesses, int threshold) {
+        return numProcesses >= threshold && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+    
+    /**
+     * Run rounds until no unfinished process fits.
+     *
+     * @param work the available vector on entry; grown in place
+     * @param finished set for every process that can finish
+     * @param order receives the processes in a valid completion order
+     * @return the number of processes that can finish
+     */
+    int reduce(int[] need, int[] allocation, int[] work, boolean[] finished, int[] order) {
+        int pendingCount = 0;
+        for (int i = 0; i < numProcesses; i++) {
+            finished[i] = false;
+            pending[pendingCount++] = i;
+        }
+        
+        int count = 0;
+        while (pendingCount > 0) {
+            int readyCount = findReady(need, work, pendingCount);
+            if (readyCount == 0) {
+                break;
+            }
+            fold(allocation, work, readyCount);
+            
+            // Record the round and drop its processes from the pending list
+            int remaining = 0;
+            for (int k = 0; k < pendingCount; k++) {
+                int i = pending[k];
+                if (ready[k]) {
+                    finished[i] = true;
+                    order[count++] = i;
+                } else {
+                    pending[remaining++] = i;
+                }
+            }
+            pendingCount = remaining;
+        }
+        return count;
+    }
+    
+    /**
+     * Mark ready[k] for every pending process that fits the current work vector
+     */
+    private int findReady(int[] need, int[] work, int pendingCount) {
+        int chunk = Math.max(1, CELLS_PER_TASK / Math.max(1, numResources));
+        int chunks = (pendingCount + chunk - 1) / chunk;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int end = Math.min(pendingCount, (c + 1) * chunk);
+            for (int k = c * chunk; k < end; k++) {
+                ready[k] = kernel.fits(need, pending[k] * numResources, work, numResources);
+            }
+        });
+        
+        int readyCount = 0;
+        for (int k = 0; k < pendingCount; k++) {
+            if (ready[k]) {
+                readyList[readyCount++] = pending[k];
+            }
+        }
+        return readyCount;
+    }
+    
+    /**
+     * Add the allocations of every ready process to work
+     */
+    private void fold(int[] allocation, int[] work, int readyCount) {
+        int blocks = (numResources + COLUMNS_PER_BLOCK - 1) / COLUMNS_PER_BLOCK;
+        if (blocks < 2 || (long) readyCount * numResources < CELLS_PER_TASK) {
+            for (int k = 0; k < readyCount; k++) {
+                kernel.accumulate(allocation, readyList[k] * numResources, work, numResources);
+            }
+            return;
+        }
+        
+        // Each task owns a block of columns, so no two tasks write the same work entry
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            int from = b * COLUMNS_PER_BLOCK;
+            int to = Math.min(numResources, from + COLUMNS_PER_BLOCK);
+            for (int k = 0; k < readyCount; k++) {
+                int row = readyList[k] * numResources;
+                for (int j = from; j < to; j++) {
+                    work[j] += allocation[row + j];
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,58 @@
+package deadlock;
+
+/**
+ * Represents a process in the system.
+ * A process is a lightweight view of one row of a {@link SystemState}.
+ */
+public class Process {
+    private final SystemState state;
+    private final int index;
+    
+    Process(SystemState state, int index) {
+        this.state = state;
+        this.index = index;
+    }
+    
+    public int getIndex() {
+        return index;
+    }
+    
+    public String getName() {
+        return "P" + index;
+    }
+    
+    public void setMaxNeed(Resource resource, int units) {
+        state.setMax(index, resource.getIndex(), units);
+    }
+    
+    public int getMaxNeed(Resource resource) {
+        return state.getMax(index, resource.getIndex());
+    }
+    
+    public int getAllocation(Resource resource) {
+        return state.getAllocation(index, resource.getIndex());
+    }
+    
+    public int getNeed(Resource resource) {
+        return state.getNeed(index, resource.getIndex());
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Process)) {
+            return false;
+        }
+        Process other = (Process) o;
+        return other.state == state && other.index == index;
+    }
+    
+    @Override
+    public int hashCode() {
+        return index;
+    }
+    
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,66 @@
+package deadlock;
+
+/**
+ * Represents a resource in the system.
+ * A resource is a lightweight view of one column of a {@link SystemState}.
+ */
+public class Resource {
+    private final SystemState state;
+    private final int index;
+    
+    Resource(SystemState state, int index) {
+        this.state = state;
+        this.index = index;
+    }
+    
+    public int getIndex() {
+        return index;
+    }
+    
+    public String getName() {
+        return "R" + index;
+    }
+    
+    public int getTotalUnits() {
+        return state.getTotal(index);
+    }
+    
+    public int getAvailableUnits() {
+        return state.getAvailable(index);
+    }
+    
+    public int getAllocation(Process process) {
+        return state.getAllocation(process.getIndex(), index);
+    }
+    
+    public void allocateUnits(Process process, int units) {
+        state.allocate(process.getIndex(), index, units);
+    }
+    
+    public void deallocateUnits(Process process, int units) {
+        state.release(process.getIndex(), index, units);
+    }
+    
+    public void resetAllocations() {
+        state.clearAllocations(index);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Resource)) {
+            return false;
+        }
+        Resource other = (Resource) o;
+        return other.state == state && other.index == index;
+    }
+    
+    @Override
+    public int hashCode() {
+        return index;
+    }
+    
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
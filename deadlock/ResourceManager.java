@@ -0,0 +1,519 @@
+package deadlock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe allocator that only grants requests that keep the system in a safe state.
+ *
+ * Clients call {@link #acquire} and {@link #release} concurrently. Instead of every
+ * client running its own safety check under one global monitor, operations are pushed
+ * onto a lock-free queue and applied in admission rounds: whichever client finds the
+ * admission lock free drains the queue, applies all releases, admits as many pending
+ * requests as stay safe together with {@link BatchAdmission} and wakes the clients whose
+ * requests were granted. Other clients just enqueue and park, so one round serves a
+ * whole burst of operations with one safety check for most of its requests.
+ *
+ * A request that would leave the state unsafe waits. It is only retried after a round
+ * that released units: granting a request never makes a state that was unsafe for
+ * another request safe, so retrying after a grant would be wasted work. The failed check
+ * also tells how many units of each type have to come back before the request can pass
+ * (see {@link BatchAdmission}), and the request is skipped until that many were released,
+ * so a waiting request costs O(R) per round instead of a safety check.
+ */
+public class ResourceManager {
+    
+    private static final int PENDING = 0;
+    private static final int DONE = 1;
+    private static final int CANCELLED = 2;
+    
+    private final SystemState state;
+    private final int numResources;
+    
+    private final ConcurrentLinkedQueue<Operation> incoming = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock admissionLock = new ReentrantLock();
+    
+    // Guarded by admissionLock
+    private final ArrayDeque<Operation> waiting = new ArrayDeque<>();
+    private final List<Operation> arrivals = new ArrayList<>();
+    private final List<Operation> candidates = new ArrayList<>();
+    private final BatchAdmission admission;
+    private int[] batchProcesses = new int[16];
+    private int[][] batchRequests = new int[16][];
+    private boolean[] batchGranted = new boolean[16];
+    private int[][] batchGaps = new int[16][];
+    private final List<Operation> rejected = new ArrayList<>();
+    private final List<Operation> retained = new ArrayList<>();
+    // Units released so far, per resource type
+    private final long[] releasedUnits;
+    private final long[] latencyBuckets = new long[64];
+    private long grantCount;
+    private long releaseCount;
+    private long roundCount;
+    private long safetyCheckCount;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+    private final long startNanos = System.nanoTime();
+    
+    // Run by the combining thread between an admission check and handing out its grants,
+    // so tests can let a client time out inside that window
+    Runnable admissionHook;
+    
+    /**
+     * @param state initial state; it is owned by the manager from now on
+     * @throws IllegalArgumentException if the state is invalid or not safe
+     */
+    public ResourceManager(SystemState state) {
+        state.validate();
+        this.state = state;
+        this.admission = new BatchAdmission(state);
+        this.numResources = state.getNumResources();
+        this.releasedUnits = new long[numResources];
+        for (int k = 0; k < batchGaps.length; k++) {
+            batchGaps[k] = new int[numResources];
+        }
+        if (!new WorklistSafetyChecker(state).checkSafeState()) {
+            throw new IllegalArgumentException("Initial state is not safe");
+        }
+    }
+    
+    /**
+     * Block until the request can be granted without making the state unsafe
+     *
+     * @throws IllegalArgumentException if the request is negative or exceeds the remaining need
+     */
+    public void acquire(int processIndex, int[] request) throws InterruptedException {
+        Operation op = submit(processIndex, request, true);
+        await(op, 0, false);
+    }
+    
+    /**
+     * Like {@link #acquire}, but give up after the timeout
+     *
+     * @return true if the request was granted, false if it timed out and was withdrawn
+     */
+    public boolean tryAcquire(int processIndex, int[] request, long timeout, TimeUnit unit) throws InterruptedException {
+        Operation op = submit(processIndex, request, true);
+        return await(op, System.nanoTime() + unit.toNanos(timeout), true);
+    }
+    
+    /**
+     * Return units held by a process and retry the waiting requests
+     *
+     * @throws IllegalArgumentException if the vector is negative or exceeds the current allocation
+     */
+    public void release(int processIndex, int[] units) {
+        Operation op = submit(processIndex, units, false);
+        boolean interrupted = false;
+        while (op.status.get() == PENDING) {
+            combine();
+            if (op.status.get() == PENDING) {
+                LockSupport.park(this);
+                interrupted |= Thread.interrupted();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        op.rethrow();
+    }
+    
+    private Operation submit(int processIndex, int[] units, boolean request) {
+        if (processIndex < 0 || processIndex >= state.getNumProcesses()) {
+            throw new IllegalArgumentException("No such process P" + processIndex);
+        }
+        if (units.length != numResources) {
+            throw new IllegalArgumentException("Expected " + numResources + " resource types, got " + units.length);
+        }
+        Operation op = new Operation(processIndex, units.clone(), request);
+        incoming.add(op);
+        return op;
+    }
+    
+    private boolean await(Operation op, long deadline, boolean timed) throws InterruptedException {
+        while (true) {
+            combine();
+            if (op.status.get() == DONE) {
+                op.rethrow();
+                return true;
+            }
+            if (Thread.interrupted()) {
+                if (op.status.compareAndSet(PENDING, CANCELLED)) {
+                    throw new InterruptedException();
+                }
+                // Granted in the meantime; keep the grant and the interrupt
+                Thread.currentThread().interrupt();
+                continue;
+            }
+            if (timed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    if (op.status.compareAndSet(PENDING, CANCELLED)) {
+                        return false;
+                    }
+                    continue;
+                }
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+    }
+    
+    /**
+     * Run admission rounds while there is work and nobody else is running one. Checking
+     * the queue again after unlocking covers operations enqueued during the last round.
+     */
+    private void combine() {
+        while (!incoming.isEmpty() && admissionLock.tryLock()) {
+            try {
+                runRound();
+            } finally {
+                admissionLock.unlock();
+            }
+        }
+    }
+    
+    private void runRound() {
+        roundCount++;
+        boolean released = false;
+        Operation op;
+        while ((op = incoming.poll()) != null) {
+            if (op.request) {
+                arrivals.add(op);
+            } else {
+                try {
+                    admission.release(op.processIndex, op.units);
+                    addReleased(op.units);
+                    releaseCount++;
+                    released = true;
+                } catch (IllegalArgumentException e) {
+                    op.error = e;
+                }
+                op.complete();
+            }
+        }
+        
+        // A grant whose client timed out meanwhile is returned at once. Those units may be
+        // what a waiting request, or one rejected in the same pass, is parked for, and no
+        // later release is guaranteed, so retry the waiting queue before the round ends.
+        while (admitCandidates(released)) {
+            released = true;
+        }
+    }
+    
+    /**
+     * Run one admission check over the waiting requests that may pass now and the new
+     * arrivals, hand out the grants and requeue the rest
+     *
+     * @param released whether units came back since the waiting queue was last retried
+     * @return whether a grant was returned because its client had given up
+     */
+    private boolean admitCandidates(boolean released) {
+        // Older requests first, so a released unit goes to the longest waiter that fits.
+        // Waiting requests only need another try after a release, and only once enough
+        // units came back for them.
+        candidates.clear();
+        if (released) {
+            for (Iterator<Operation> it = waiting.iterator(); it.hasNext(); ) {
+                Operation request = it.next();
+                if (request.status.get() == CANCELLED) {
+                    it.remove();
+                } else if (enoughReleased(request)) {
+                    candidates.add(request);
+                    it.remove();
+                }
+            }
+        }
+        candidates.addAll(arrivals);
+        arrivals.clear();
+        
+        int count = 0;
+        for (Operation request : candidates) {
+            if (request.status.get() == CANCELLED || !isValid(request)) {
+                continue;
+            }
+            if (count == batchProcesses.length) {
+                batchProcesses = Arrays.copyOf(batchProcesses, count * 2);
+                batchRequests = Arrays.copyOf(batchRequests, count * 2);
+                batchGranted = new boolean[count * 2];
+                batchGaps = Arrays.copyOf(batchGaps, count * 2);
+                for (int k = count; k < batchGaps.length; k++) {
+                    batchGaps[k] = new int[numResources];
+                }
+            }
+            batchProcesses[count] = request.processIndex;
+            batchRequests[count] = request.units;
+            candidates.set(count++, request);
+        }
+        
+        long checks = admission.getFullCheckCount();
+        admission.admit(batchProcesses, batchRequests, count, batchGranted, batchGaps);
+        safetyCheckCount += admission.getFullCheckCount() - checks;
+        if (admissionHook != null) {
+            admissionHook.run();
+        }
+        
+        boolean returned = false;
+        for (int k = 0; k < count; k++) {
+            Operation request = candidates.get(k);
+            batchRequests[k] = null;
+            if (!batchGranted[k]) {
+                // Still valid unless an earlier grant in this round used up the remaining need
+                if (isValid(request)) {
+                    request.waitFor(batchGaps[k], releasedUnits);
+                    rejected.add(request);
+                }
+            } else if (!request.status.compareAndSet(PENDING, DONE)) {
+                // The client timed out while the round was running
+                returned = true;
+            } else {
+                recordLatency(System.nanoTime() - request.submitNanos);
+                LockSupport.unpark(request.thread);
+            }
+        }
+        if (returned) {
+            // Counted as released only now, after the rejected requests noted their gaps
+            for (int k = 0; k < count; k++) {
+                Operation request = candidates.get(k);
+                if (batchGranted[k] && request.status.get() == CANCELLED) {
+                    admission.release(request.processIndex, request.units);
+                    addReleased(request.units);
+                }
+            }
+        }
+        candidates.clear();
+        requeue();
+        return returned;
+    }
+    
+    private void addReleased(int[] units) {
+        for (int j = 0; j < numResources; j++) {
+            releasedUnits[j] += units[j];
+        }
+    }
+    
+    private boolean enoughReleased(Operation request) {
+        for (int j = 0; j < numResources; j++) {
+            if (releasedUnits[j] - request.releasedAt[j] < request.gap[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Merge the requests rejected in this round back into the waiting queue by age
+     */
+    private void requeue() {
+        if (rejected.isEmpty()) {
+            return;
+        }
+        retained.addAll(waiting);
+        waiting.clear();
+        int a = 0;
+        int b = 0;
+        while (a < retained.size() || b < rejected.size()) {
+            if (b == rejected.size()
+                || (a < retained.size() && retained.get(a).submitNanos - rejected.get(b).submitNanos <= 0)) {
+                waiting.add(retained.get(a++));
+            } else {
+                waiting.add(rejected.get(b++));
+            }
+        }
+        retained.clear();
+        rejected.clear();
+    }
+    
+    /**
+     * Complete an invalid request with its error
+     */
+    private boolean isValid(Operation request) {
+        try {
+            admission.validate(request.processIndex, request.units);
+            return true;
+        } catch (IllegalArgumentException e) {
+            request.error = e;
+            request.complete();
+            return false;
+        }
+    }
+    
+    private void recordLatency(long nanos) {
+        grantCount++;
+        totalLatencyNanos += nanos;
+        if (nanos > maxLatencyNanos) {
+            maxLatencyNanos = nanos;
+        }
+        latencyBuckets[63 - Long.numberOfLeadingZeros(Math.max(1, nanos))]++;
+    }
+    
+    /**
+     * Copy of the current state
+     */
+    public SystemState snapshot() {
+        admissionLock.lock();
+        try {
+            return state.copy();
+        } finally {
+            admissionLock.unlock();
+        }
+    }
+    
+    /**
+     * Admission counters and latencies so far
+     */
+    public Metrics getMetrics() {
+        admissionLock.lock();
+        try {
+            return new Metrics(this);
+        } finally {
+            admissionLock.unlock();
+        }
+    }
+    
+    /**
+     * Point-in-time copy of the admission counters
+     */
+    public static final class Metrics {
+        private final long grantCount;
+        private final long releaseCount;
+        private final long roundCount;
+        private final long safetyCheckCount;
+        private final int waitingCount;
+        private final long totalLatencyNanos;
+        private final long maxLatencyNanos;
+        private final long elapsedNanos;
+        private final long[] latencyBuckets;
+        
+        private Metrics(ResourceManager manager) {
+            this.grantCount = manager.grantCount;
+            this.releaseCount = manager.releaseCount;
+            this.roundCount = manager.roundCount;
+            this.safetyCheckCount = manager.safetyCheckCount;
+            this.waitingCount = manager.waiting.size();
+            this.totalLatencyNanos = manager.totalLatencyNanos;
+            this.maxLatencyNanos = manager.maxLatencyNanos;
+            this.elapsedNanos = System.nanoTime() - manager.startNanos;
+            this.latencyBuckets = manager.latencyBuckets.clone();
+        }
+        
+        public long getGrantCount() {
+            return grantCount;
+        }
+        
+        public long getReleaseCount() {
+            return releaseCount;
+        }
+        
+        /**
+         * Number of admission rounds; grants + releases per round shows how well bursts are batched
+         */
+        public long getRoundCount() {
+            return roundCount;
+        }
+        
+        public long getSafetyCheckCount() {
+            return safetyCheckCount;
+        }
+        
+        /**
+         * Requests that are waiting for a release
+         */
+        public int getWaitingCount() {
+            return waitingCount;
+        }
+        
+        /**
+         * Granted requests per second since the manager was created
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : grantCount * 1e9 / elapsedNanos;
+        }
+        
+        public long getAverageLatencyNanos() {
+            return grantCount == 0 ? 0 : totalLatencyNanos / grantCount;
+        }
+        
+        public long getMaxLatencyNanos() {
+            return maxLatencyNanos;
+        }
+        
+        /**
+         * Upper bound of the admission latency below which the given fraction of grants fall,
+         * at power-of-two resolution
+         */
+        public long getLatencyPercentileNanos(double fraction) {
+            long target = (long) Math.ceil(fraction * grantCount);
+            long seen = 0;
+            for (int b = 0; b < latencyBuckets.length; b++) {
+                seen += latencyBuckets[b];
+                if (seen >= target && seen > 0) {
+                    return b >= 62 ? Long.MAX_VALUE : (1L << (b + 1)) - 1;
+                }
+            }
+            return 0;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%d grants, %d releases in %d rounds (%d safety checks), %d waiting, " +
+                                 "%.0f grants/s, latency avg %d ns, p50 <= %d ns, p99 <= %d ns, max %d ns",
+                                 grantCount, releaseCount, roundCount, safetyCheckCount, waitingCount,
+                                 getThroughput(), getAverageLatencyNanos(), getLatencyPercentileNanos(0.5),
+                                 getLatencyPercentileNanos(0.99), maxLatencyNanos);
+        }
+    }
+    
+    /**
+     * A queued request or release
+     */
+    private static final class Operation {
+        final int processIndex;
+        final int[] units;
+        final boolean request;
+        final Thread thread = Thread.currentThread();
+        final long submitNanos = System.nanoTime();
+        final AtomicInteger status = new AtomicInteger(PENDING);
+        volatile IllegalArgumentException error;
+        
+        // Set while waiting, guarded by the admission lock: units of each type that have
+        // to be released after releasedAt before the request is worth another try
+        int[] gap;
+        long[] releasedAt;
+        
+        Operation(int processIndex, int[] units, boolean request) {
+            this.processIndex = processIndex;
+            this.units = units;
+            this.request = request;
+        }
+        
+        void waitFor(int[] units, long[] released) {
+            if (gap == null) {
+                gap = new int[units.length];
+                releasedAt = new long[units.length];
+            }
+            System.arraycopy(units, 0, gap, 0, units.length);
+            System.arraycopy(released, 0, releasedAt, 0, released.length);
+        }
+        
+        void complete() {
+            status.set(DONE);
+            LockSupport.unpark(thread);
+        }
+        
+        void rethrow() {
+            if (error != null) {
+                throw new IllegalArgumentException(error.getMessage(), error);
+            }
+        }
+    }
+}
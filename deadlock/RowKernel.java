@@ -0,0 +1,29 @@
+package deadlock;
+
+/**
+ * Inner loops of the classic safety and detection checks over one row of a flat matrix.
+ *
+ * The scalar kernel is always available. A kernel built on the incubating Vector API
+ * ({@code jdk.incubator.vector}) compares and adds several resources per instruction;
+ * it is used when the JVM was started with {@code --add-modules jdk.incubator.vector}.
+ * The system property {@code deadlock.kernel=scalar} forces the scalar kernel.
+ */
+interface RowKernel {
+    
+    /**
+     * Kernel chosen once per JVM
+     */
+    RowKernel INSTANCE = RowKernels.select();
+    
+    /**
+     * Whether need[offset + j] <= work[j] for every j < length
+     */
+    boolean fits(int[] need, int offset, int[] work, int length);
+    
+    /**
+     * work[j] += allocation[offset + j] for every j < length
+     */
+    void accumulate(int[] allocation, int offset, int[] work, int length);
+    
+    String getName();
+}
@@ -0,0 +1,50 @@
+package deadlock;
+
+/**
+ * Runtime selection of the {@link RowKernel} implementation
+ */
+final class RowKernels {
+    static final String PROPERTY = "deadlock.kernel";
+    
+    private static final String VECTOR_KERNEL = "deadlock.VectorRowKernel";
+    
+    private RowKernels() {
+    }
+    
+    static RowKernel select() {
+        if ("scalar".equalsIgnoreCase(System.getProperty(PROPERTY))) {
+            return SCALAR;
+        }
+        // Loaded reflectively so that nothing links against jdk.incubator.vector unless the
+        // module is present; without it the class fails to initialize and we fall back.
+        try {
+            return (RowKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;
+        }
+    }
+    
+    static final RowKernel SCALAR = new RowKernel() {
+        @Override
+        public boolean fits(int[] need, int offset, int[] work, int length) {
+            for (int j = 0; j < length; j++) {
+                if (need[offset + j] > work[j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        public void accumulate(int[] allocation, int offset, int[] work, int length) {
+            for (int j = 0; j < length; j++) {
+                work[j] += allocation[offset + j];
+            }
+        }
+        
+        @Override
+        public String getName() {
+            return "scalar";
+        }
+    };
+}
@@ -0,0 +1,154 @@
+package deadlock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records a safety check trace into a fixed-size ring buffer so it can be rendered
+ * after the check, e.g. by the GUI or a log, instead of writing to the console while
+ * the algorithm runs.
+ *
+ * Each event is packed into one long: the event type in the top 8 bits, a process or
+ * resource index in the next 24 bits and a unit count in the low 32 bits. When the
+ * buffer is full the oldest events are overwritten.
+ */
+public class SafetyTraceBuffer implements SafetyTraceListener {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    
+    private static final int STARTED = 1;
+    private static final int AVAILABLE = 2;
+    private static final int FINISHED = 3;
+    private static final int UPDATED = 4;
+    private static final int SAFE = 5;
+    private static final int UNSAFE = 6;
+    
+    private final long[] events;
+    private final int mask;
+    private long written;
+    
+    public SafetyTraceBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * @param capacity number of events kept, rounded up to a power of two
+     */
+    public SafetyTraceBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.events = new long[size];
+        this.mask = size - 1;
+    }
+    
+    private void record(int type, int index, int units) {
+        events[(int) (written++ & mask)] = ((long) type << 56) | ((long) (index & 0xFFFFFF) << 32) | (units & 0xFFFFFFFFL);
+    }
+    
+    @Override
+    public void checkStarted(int[] work) {
+        record(STARTED, 0, 0);
+        for (int j = 0; j < work.length; j++) {
+            record(AVAILABLE, j, work[j]);
+        }
+    }
+    
+    @Override
+    public void processFinished(int processIndex) {
+        record(FINISHED, processIndex, 0);
+    }
+    
+    @Override
+    public void workUpdated(int resourceIndex, int units) {
+        record(UPDATED, resourceIndex, units);
+    }
+    
+    @Override
+    public void checkFinished(boolean safe) {
+        record(safe ? SAFE : UNSAFE, 0, 0);
+    }
+    
+    public void clear() {
+        written = 0;
+    }
+    
+    /**
+     * Number of events recorded since the last clear, including overwritten ones
+     */
+    public long getEventCount() {
+        return written;
+    }
+    
+    /**
+     * Number of events lost because the buffer wrapped around
+     */
+    public long getDroppedCount() {
+        return Math.max(0, written - events.length);
+    }
+    
+    /**
+     * Render the retained events as text, one step per line
+     */
+    public void render(StringBuilder out) {
+        long dropped = getDroppedCount();
+        if (dropped > 0) {
+            out.append("... ").append(dropped).append(" earlier trace events dropped\n");
+        }
+        
+        List<String> sequence = new ArrayList<>();
+        boolean inAvailableList = false;
+        for (long k = dropped; k < written; k++) {
+            long event = events[(int) (k & mask)];
+            int type = (int) (event >>> 56);
+            int index = (int) (event >>> 32) & 0xFFFFFF;
+            int units = (int) event;
+            
+            if (inAvailableList && type != AVAILABLE) {
+                out.append('\n');
+                inAvailableList = false;
+            }
+            switch (type) {
+                case STARTED:
+                    sequence.clear();
+                    out.append("Starting Banker's Algorithm...\n");
+                    out.append("Available resources:\n");
+                    inAvailableList = true;
+                    break;
+                case AVAILABLE:
+                    out.append('R').append(index).append(':').append(units).append(' ');
+                    inAvailableList = true;
+                    break;
+                case FINISHED:
+                    sequence.add("P" + index);
+                    out.append("Process P").append(index).append(" can complete\n");
+                    break;
+                case UPDATED:
+                    out.append("Resource R").append(index).append(" available units updated to ").append(units).append('\n');
+                    break;
+                case SAFE:
+                    out.append(dropped > 0 ? "Safe sequence (last steps only): " : "Safe sequence: ")
+                        .append(sequence).append('\n');
+                    break;
+                case UNSAFE:
+                    out.append("No process can complete with current available resources\n");
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (inAvailableList) {
+            out.append('\n');
+        }
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        render(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package deadlock;
+
+/**
+ * Receives the step-by-step trace of a Banker's safety check.
+ *
+ * All methods default to doing nothing. {@link #NONE} is the listener used when no
+ * trace is wanted; the algorithm skips the trace calls entirely in that case.
+ */
+public interface SafetyTraceListener {
+    
+    /**
+     * Listener that ignores every event
+     */
+    SafetyTraceListener NONE = new SafetyTraceListener() {
+    };
+    
+    /**
+     * The check starts with the given work vector (the available resources)
+     */
+    default void checkStarted(int[] work) {
+    }
+    
+    /**
+     * A process can complete with the current work vector
+     */
+    default void processFinished(int processIndex) {
+    }
+    
+    /**
+     * The work vector entry of a resource changed after a process released its allocation
+     */
+    default void workUpdated(int resourceIndex, int units) {
+    }
+    
+    /**
+     * The check is over; safe tells whether every process could complete
+     */
+    default void checkFinished(boolean safe) {
+    }
+}
@@ -0,0 +1,203 @@
+package deadlock;
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of Banker's safety verdicts, keyed by {@link SystemState#fingerprint()}
+ * and the state's second, independently salted fingerprint.
+ *
+ * An allocator that keeps granting and releasing the same units walks through the same
+ * few states again and again. Both fingerprints are kept up to date by the state itself
+ * in O(1) per changed entry, so looking a state up costs one hash probe and an O(1) key
+ * compare, whatever the size of the state. The two form a 128-bit key: a hit on a
+ * different state needs both 64-bit fingerprints to collide, with probability about
+ * 2^-128 per lookup, so no copy of the state is kept to confirm it. States that share
+ * only the first fingerprint are kept as separate entries of the same chain. An entry
+ * costs a few words of memory.
+ *
+ * The least recently used entry is evicted when the cache is full; a full cache does not
+ * allocate.
+ */
+public class SafetyVerdictCache {
+    private final SystemState state;
+    private final WorklistSafetyChecker checker;
+    private final int capacity;
+    
+    // Hash chains: buckets[bucket] is the first entry of a bucket, chainNext the next one
+    private final int mask;
+    private final int[] buckets;
+    private final int[] chainNext;
+    
+    // Entries
+    private final long[] keys;
+    private final long[] checkKeys;
+    private final boolean[] verdicts;
+    private int size;
+    
+    // Recency list from newest to oldest
+    private final int[] newer;
+    private final int[] older;
+    private int newest = -1;
+    private int oldest = -1;
+    
+    private long hitCount;
+    private long missCount;
+    private long collisionCount;
+    private long evictionCount;
+    
+    /**
+     * @param state state whose verdicts are cached; it may change freely afterwards
+     * @param capacity maximum number of cached states
+     */
+    public SafetyVerdictCache(SystemState state, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1");
+        }
+        this.state = state;
+        this.checker = new WorklistSafetyChecker(state);
+        this.capacity = capacity;
+        int tableSize = Integer.highestOneBit(Math.max(1, capacity * 2 - 1)) << 1;
+        this.mask = tableSize - 1;
+        this.buckets = new int[tableSize];
+        Arrays.fill(buckets, -1);
+        this.chainNext = new int[capacity];
+        this.keys = new long[capacity];
+        this.checkKeys = new long[capacity];
+        this.verdicts = new boolean[capacity];
+        this.newer = new int[capacity];
+        this.older = new int[capacity];
+    }
+    
+    public SystemState getState() {
+        return state;
+    }
+    
+    /**
+     * Same verdict as {@link WorklistSafetyChecker#checkSafeState()}, from the cache if
+     * the current state was checked before
+     */
+    public boolean checkSafeState() {
+        long key = state.fingerprint();
+        long checkKey = state.checkFingerprint();
+        int bucket = (int) (key ^ (key >>> 32)) & mask;
+        for (int e = buckets[bucket]; e >= 0; e = chainNext[e]) {
+            if (keys[e] != key) {
+                continue;
+            }
+            if (checkKeys[e] == checkKey) {
+                hitCount++;
+                unlink(e);
+                linkNewest(e);
+                return verdicts[e];
+            }
+            collisionCount++;
+        }
+        
+        missCount++;
+        boolean safe = checker.checkSafeState();
+        insert(key, checkKey, bucket, safe);
+        return safe;
+    }
+    
+    private void insert(long key, long checkKey, int bucket, boolean safe) {
+        int e;
+        if (size < capacity) {
+            e = size++;
+        } else {
+            e = oldest;
+            evictionCount++;
+            unlink(e);
+            removeFromChain(e);
+        }
+        keys[e] = key;
+        checkKeys[e] = checkKey;
+        verdicts[e] = safe;
+        chainNext[e] = buckets[bucket];
+        buckets[bucket] = e;
+        linkNewest(e);
+    }
+    
+    private void removeFromChain(int e) {
+        long key = keys[e];
+        int bucket = (int) (key ^ (key >>> 32)) & mask;
+        if (buckets[bucket] == e) {
+            buckets[bucket] = chainNext[e];
+            return;
+        }
+        int previous = buckets[bucket];
+        while (chainNext[previous] != e) {
+            previous = chainNext[previous];
+        }
+        chainNext[previous] = chainNext[e];
+    }
+    
+    private void unlink(int e) {
+        if (newer[e] >= 0) {
+            older[newer[e]] = older[e];
+        } else {
+            newest = older[e];
+        }
+        if (older[e] >= 0) {
+            newer[older[e]] = newer[e];
+        } else {
+            oldest = newer[e];
+        }
+    }
+    
+    private void linkNewest(int e) {
+        newer[e] = -1;
+        older[e] = newest;
+        if (newest >= 0) {
+            newer[newest] = e;
+        } else {
+            oldest = e;
+        }
+        newest = e;
+    }
+    
+    /**
+     * Drop every cached verdict; the metrics are kept
+     */
+    public void clear() {
+        Arrays.fill(buckets, -1);
+        size = 0;
+        newest = -1;
+        oldest = -1;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public long getHitCount() {
+        return hitCount;
+    }
+    
+    public long getMissCount() {
+        return missCount;
+    }
+    
+    /**
+     * Number of lookups that found an entry with the same first fingerprint but a different
+     * second one, i.e. a different state
+     */
+    public long getCollisionCount() {
+        return collisionCount;
+    }
+    
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+    
+    /**
+     * Fraction of lookups answered from the cache, 0 before the first lookup
+     */
+    public double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+}
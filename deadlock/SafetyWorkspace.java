@@ -0,0 +1,134 @@
+package deadlock;
+
+import java.util.Arrays;
+
+/**
+ * Scratch arrays and result buffer of the classic safety and detection loops.
+ *
+ * A {@link BankersAlgorithm} or {@link DeadlockDetector} built without a workspace
+ * allocates its own. A caller that runs many checks passes one workspace to the
+ * constructors or to the static check methods instead, either its own or the calling
+ * thread's from {@link #forCurrentThread()}, and the serial checks then allocate nothing.
+ * The workspace grows to the largest state it has been used for and is reset by every
+ * check; it must not be used by two threads at once.
+ *
+ * The result of the last check is a primitive sequence buffer: its first
+ * {@link #getFinishedCount()} entries are the processes that can finish, in a valid
+ * completion order, and the entries after them, up to the number of processes, are the
+ * processes that cannot, in increasing index order.
+ */
+public final class SafetyWorkspace {
+    
+    private static final ThreadLocal<SafetyWorkspace> CURRENT = ThreadLocal.withInitial(SafetyWorkspace::new);
+    
+    int[] work = new int[0];
+    boolean[] finish = new boolean[0];
+    int[] sequence = new int[0];
+    private int numProcesses;
+    private int finishedCount;
+    
+    public SafetyWorkspace() {
+    }
+    
+    public SafetyWorkspace(int numProcesses, int numResources) {
+        ensureCapacity(numProcesses, numResources);
+    }
+    
+    /**
+     * Workspace of the calling thread, created on first use
+     */
+    public static SafetyWorkspace forCurrentThread() {
+        return CURRENT.get();
+    }
+    
+    /**
+     * Grow the buffers so a state of this size can be checked without allocating
+     */
+    public void ensureCapacity(int numProcesses, int numResources) {
+        if (work.length < numResources) {
+            work = new int[numResources];
+        }
+        if (sequence.length < numProcesses) {
+            finish = new boolean[numProcesses];
+            sequence = new int[numProcesses];
+        }
+    }
+    
+    /**
+     * Prepare a check of the state: work is its available vector and no process is finished
+     */
+    void reset(SystemState state) {
+        numProcesses = state.getNumProcesses();
+        ensureCapacity(numProcesses, state.getNumResources());
+        state.copyAvailable(work);
+        Arrays.fill(finish, 0, numProcesses, false);
+        finishedCount = 0;
+    }
+    
+    /**
+     * The classic rescanning loop: finish every process whose need fits work, in index
+     * order, until a pass finishes nobody. Call {@link #reset} first.
+     *
+     * @return the number of processes that can finish
+     */
+    int reduceSerially(SystemState state) {
+        int numResources = state.getNumResources();
+        int[] need = state.need;
+        int[] allocation = state.allocation;
+        RowKernel kernel = RowKernel.INSTANCE;
+        
+        int count = 0;
+        boolean changed;
+        do {
+            changed = false;
+            for (int i = 0; i < numProcesses; i++) {
+                if (!finish[i]) {
+                    int row = i * numResources;
+                    if (kernel.fits(need, row, work, numResources)) {
+                        kernel.accumulate(allocation, row, work, numResources);
+                        finish[i] = true;
+                        sequence[count++] = i;
+                        changed = true;
+                    }
+                }
+            }
+        } while (changed && count < numProcesses);
+        complete(count);
+        return count;
+    }
+    
+    /**
+     * Record that the first count entries of the sequence finished, and list the
+     * unfinished processes after them
+     */
+    void complete(int count) {
+        finishedCount = count;
+        for (int i = 0; i < numProcesses && count < numProcesses; i++) {
+            if (!finish[i]) {
+                sequence[count++] = i;
+            }
+        }
+    }
+    
+    /**
+     * Sequence buffer of the last check; only the first {@link #getSequenceLength()}
+     * entries belong to it
+     */
+    public int[] getSequence() {
+        return sequence;
+    }
+    
+    /**
+     * Number of processes of the last checked state
+     */
+    public int getSequenceLength() {
+        return numProcesses;
+    }
+    
+    /**
+     * Number of processes that could finish in the last check
+     */
+    public int getFinishedCount() {
+        return finishedCount;
+    }
+}
@@ -0,0 +1,248 @@
+package deadlock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses one recorded scenario per input line into a {@link SystemState}.
+ *
+ * CSV lines hold an id, P, R and then the max matrix, the allocation matrix (both
+ * row-major, P * R values each) and the R total resource counts:
+ *
+ *     id,P,R,max...,allocation...,total...
+ *
+ * JSONL lines hold one object with "max" and "allocation" as arrays of rows, "total" as
+ * an array and an optional "id":
+ *
+ *     {"id": "s1", "max": [[7,5,3],[3,2,2]], "allocation": [[0,1,0],[2,0,0]], "total": [10,5,7]}
+ */
+final class ScenarioParser {
+    
+    /**
+     * A parsed line: the scenario id and its state
+     */
+    static final class Scenario {
+        final String id;
+        final SystemState state;
+        
+        Scenario(String id, SystemState state) {
+            this.id = id;
+            this.state = state;
+        }
+    }
+    
+    private ScenarioParser() {
+    }
+    
+    /**
+     * Whether the line carries no scenario (blank or a # comment)
+     */
+    static boolean isSkipped(String line) {
+        for (int k = 0; k < line.length(); k++) {
+            char c = line.charAt(k);
+            if (!Character.isWhitespace(c)) {
+                return c == '#';
+            }
+        }
+        return true;
+    }
+    
+    static Scenario parse(String line, BatchEvaluator.Format format, String defaultId) {
+        return format == BatchEvaluator.Format.CSV ? parseCsv(line, defaultId) : parseJson(line, defaultId);
+    }
+    
+    private static Scenario parseCsv(String line, String defaultId) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < 3) {
+            throw new IllegalArgumentException("Expected id,P,R,... but found " + fields.length + " fields");
+        }
+        String id = fields[0].trim().isEmpty() ? defaultId : fields[0].trim();
+        int numProcesses = parseInt(fields[1]);
+        int numResources = parseInt(fields[2]);
+        long size = (long) numProcesses * numResources;
+        if (numProcesses < 0 || numResources < 0 || size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Invalid system size: " + numProcesses + " x " + numResources);
+        }
+        int cells = (int) size;
+        long expected = 3 + 2 * size + numResources;
+        if (fields.length != expected) {
+            throw new IllegalArgumentException(
+                "Expected " + expected + " fields for " + numProcesses + " processes and " + numResources +
+                " resources but found " + fields.length);
+        }
+        
+        SystemState state = new SystemState(numProcesses, numResources);
+        int f = 3;
+        for (int j = 0; j < numResources; j++) {
+            state.setTotal(j, parseInt(fields[3 + 2 * cells + j]));
+        }
+        for (int i = 0; i < numProcesses; i++) {
+            for (int j = 0; j < numResources; j++) {
+                state.setMax(i, j, parseInt(fields[f]));
+                state.setAllocation(i, j, parseInt(fields[f + cells]));
+                f++;
+            }
+        }
+        return new Scenario(id, state);
+    }
+    
+    private static int parseInt(String field) {
+        try {
+            return Integer.parseInt(field.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not an integer: '" + field.trim() + "'");
+        }
+    }
+    
+    private static Scenario parseJson(String line, String defaultId) {
+        JsonCursor in = new JsonCursor(line);
+        String id = defaultId;
+        int[][] max = null;
+        int[][] allocation = null;
+        int[] total = null;
+        
+        in.expect('{');
+        if (!in.consume('}')) {
+            do {
+                String key = in.readString();
+                in.expect(':');
+                switch (key) {
+                    case "id":
+                        id = in.peek() == '"' ? in.readString() : String.valueOf(in.readInt());
+                        break;
+                    case "max":
+                        max = in.readMatrix();
+                        break;
+                    case "allocation":
+                        allocation = in.readMatrix();
+                        break;
+                    case "total":
+                        total = in.readVector();
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown key '" + key + "'");
+                }
+            } while (in.consume(','));
+            in.expect('}');
+        }
+        in.expectEnd();
+        
+        if (max == null || allocation == null || total == null) {
+            throw new IllegalArgumentException("Scenario needs \"max\", \"allocation\" and \"total\"");
+        }
+        if (allocation.length != max.length) {
+            throw new IllegalArgumentException("max has " + max.length + " rows but allocation has " + allocation.length);
+        }
+        for (int i = 0; i < max.length; i++) {
+            if (max[i].length != total.length || allocation[i].length != total.length) {
+                throw new IllegalArgumentException("Row " + i + " does not have " + total.length + " resources");
+            }
+        }
+        return new Scenario(id, SystemState.of(max, allocation, total));
+    }
+    
+    /**
+     * Minimal reader for the subset of JSON used by scenario lines
+     */
+    private static final class JsonCursor {
+        private final String text;
+        private int pos;
+        
+        JsonCursor(String text) {
+            this.text = text;
+        }
+        
+        char peek() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw new IllegalArgumentException("Unexpected end of line");
+            }
+            return text.charAt(pos);
+        }
+        
+        boolean consume(char c) {
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+        
+        void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("Expected '" + c + "' at column " + (pos + 1));
+            }
+        }
+        
+        /**
+         * Reject anything but whitespace after the scenario object
+         */
+        void expectEnd() {
+            skipWhitespace();
+            if (pos < text.length()) {
+                throw new IllegalArgumentException("Unexpected '" + text.charAt(pos) + "' after the scenario at column " + (pos + 1));
+            }
+        }
+        
+        String readString() {
+            expect('"');
+            int end = text.indexOf('"', pos);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated string at column " + pos);
+            }
+            String value = text.substring(pos, end);
+            pos = end + 1;
+            return value;
+        }
+        
+        int readInt() {
+            skipWhitespace();
+            int start = pos;
+            if (pos < text.length() && text.charAt(pos) == '-') {
+                pos++;
+            }
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw new IllegalArgumentException("Expected a number at column " + (pos + 1));
+            }
+            return Integer.parseInt(text.substring(start, pos));
+        }
+        
+        int[] readVector() {
+            expect('[');
+            int[] values = new int[8];
+            int size = 0;
+            if (!consume(']')) {
+                do {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    values[size++] = readInt();
+                } while (consume(','));
+                expect(']');
+            }
+            return Arrays.copyOf(values, size);
+        }
+        
+        int[][] readMatrix() {
+            expect('[');
+            List<int[]> rows = new ArrayList<>();
+            if (!consume(']')) {
+                do {
+                    rows.add(readVector());
+                } while (consume(','));
+                expect(']');
+            }
+            return rows.toArray(new int[0][]);
+        }
+        
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
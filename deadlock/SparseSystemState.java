@@ -0,0 +1,171 @@
+package deadlock;
+
+/**
+ * System state for low-density systems, where each process only touches a few of
+ * many resource types.
+ *
+ * Allocation and need are kept as {@link CsrMatrix} instances, so memory, and the time
+ * of the engines that accept a sparse state, scale with the number of non-zero entries
+ * rather than P x R. The max matrix is implied as need + allocation. The state is
+ * immutable; use {@link #toDense()} for the mutable {@link SystemState}.
+ */
+public class SparseSystemState {
+    private final int numProcesses;
+    private final int numResources;
+    
+    // Read directly by the engines in this package
+    final CsrMatrix allocation;
+    final CsrMatrix need;
+    final int[] total;
+    final int[] available;
+    
+    private SparseSystemState(CsrMatrix allocation, CsrMatrix need, int[] total) {
+        this.numProcesses = allocation.getNumRows();
+        this.numResources = allocation.getNumColumns();
+        this.allocation = allocation;
+        this.need = need;
+        this.total = total;
+        this.available = total.clone();
+        for (int k = 0; k < allocation.getNonZeroCount(); k++) {
+            available[allocation.columns[k]] -= allocation.values[k];
+        }
+    }
+    
+    /**
+     * Compress a dense state
+     */
+    public static SparseSystemState of(SystemState state) {
+        return new SparseSystemState(
+            CsrMatrix.fromDense(state.allocation, state.getNumProcesses(), state.getNumResources()),
+            CsrMatrix.fromDense(state.need, state.getNumProcesses(), state.getNumResources()),
+            state.total.clone());
+    }
+    
+    /**
+     * Expand into a dense, mutable state
+     */
+    public SystemState toDense() {
+        SystemState state = new SystemState(numProcesses, numResources);
+        for (int j = 0; j < numResources; j++) {
+            state.setTotal(j, total[j]);
+        }
+        for (int i = 0; i < numProcesses; i++) {
+            for (int k = need.rowStart[i]; k < need.rowStart[i + 1]; k++) {
+                state.setMax(i, need.columns[k], need.values[k]);
+            }
+            for (int k = allocation.rowStart[i]; k < allocation.rowStart[i + 1]; k++) {
+                int j = allocation.columns[k];
+                state.setMax(i, j, state.getMax(i, j) + allocation.values[k]);
+                state.setAllocation(i, j, allocation.values[k]);
+            }
+        }
+        return state;
+    }
+    
+    public int getNumProcesses() {
+        return numProcesses;
+    }
+    
+    public int getNumResources() {
+        return numResources;
+    }
+    
+    public CsrMatrix getAllocationMatrix() {
+        return allocation;
+    }
+    
+    public CsrMatrix getNeedMatrix() {
+        return need;
+    }
+    
+    public int getAllocation(int processIndex, int resourceIndex) {
+        return allocation.get(processIndex, resourceIndex);
+    }
+    
+    public int getNeed(int processIndex, int resourceIndex) {
+        return need.get(processIndex, resourceIndex);
+    }
+    
+    public int getMax(int processIndex, int resourceIndex) {
+        return need.get(processIndex, resourceIndex) + allocation.get(processIndex, resourceIndex);
+    }
+    
+    public int getTotal(int resourceIndex) {
+        return total[resourceIndex];
+    }
+    
+    public int getAvailable(int resourceIndex) {
+        return available[resourceIndex];
+    }
+    
+    /**
+     * Copy the available vector into a caller supplied array
+     */
+    public int[] copyAvailable(int[] dest) {
+        System.arraycopy(available, 0, dest, 0, numResources);
+        return dest;
+    }
+    
+    /**
+     * Check the same invariants as {@link SystemState#validate()}, touching only non-zero entries
+     */
+    public void validate() {
+        for (int i = 0; i < numProcesses; i++) {
+            for (int k = allocation.rowStart[i]; k < allocation.rowStart[i + 1]; k++) {
+                if (allocation.values[k] < 0) {
+                    throw new IllegalArgumentException("Negative value in allocation at row " + i + ", column " + allocation.columns[k]);
+                }
+            }
+            for (int k = need.rowStart[i]; k < need.rowStart[i + 1]; k++) {
+                if (need.values[k] < 0) {
+                    throw new IllegalArgumentException(
+                        "Allocation exceeds max need for process P" + i + " and resource R" + need.columns[k]);
+                }
+            }
+        }
+        for (int j = 0; j < numResources; j++) {
+            if (total[j] < 0) {
+                throw new IllegalArgumentException("Negative value in total resources at column " + j);
+            }
+            if (available[j] < 0) {
+                throw new IllegalArgumentException(
+                    "Total allocation exceeds available instances for resource R" + j +
+                    " (allocated: " + (total[j] - available[j]) + ", total: " + total[j] + ")");
+            }
+        }
+    }
+    
+    /**
+     * Builds a sparse state from the non-zero cells of each process, without a dense pass
+     */
+    public static class Builder {
+        private final CsrMatrix.Builder allocation;
+        private final CsrMatrix.Builder need;
+        private final int[] total;
+        
+        public Builder(int numProcesses, int numResources) {
+            this.allocation = new CsrMatrix.Builder(numProcesses, numResources);
+            this.need = new CsrMatrix.Builder(numProcesses, numResources);
+            this.total = new int[numResources];
+        }
+        
+        public Builder setTotal(int resourceIndex, int units) {
+            total[resourceIndex] = units;
+            return this;
+        }
+        
+        /**
+         * Add the max claim and allocation of one cell. Cells must arrive in row-major
+         * order; omitted cells are 0.
+         */
+        public Builder add(int processIndex, int resourceIndex, int max, int allocated) {
+            allocation.add(processIndex, resourceIndex, allocated);
+            need.add(processIndex, resourceIndex, max - allocated);
+            return this;
+        }
+        
+        public SparseSystemState build() {
+            return new SparseSystemState(allocation.build(), need.build(), total.clone());
+        }
+    }
+}
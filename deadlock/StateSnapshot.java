@@ -0,0 +1,167 @@
+package deadlock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Versioned binary snapshot of a {@link SystemState}, for states too large to type into
+ * the GUI tables or to parse from text.
+ *
+ * A snapshot is a 32 byte header followed by three sections of little-endian 32-bit ints:
+ *
+ *     offset        size       content
+ *     0             4          magic "DLSS"
+ *     4             4          format version, currently 2
+ *     8             4          number of processes P
+ *     12            4          number of resources R
+ *     16            8          fingerprint of the state, see SystemState#fingerprint()
+ *     24            8          second, independent fingerprint of the state
+ *     32            4 * R      total
+ *     32 + 4R       4 * P * R  max, row-major
+ *     32 + 4R + 4PR 4 * P * R  allocation, row-major
+ *
+ * The sections have the layout of the state arrays, so {@link #read} maps the file with
+ * {@link FileChannel#map} and bulk-copies each section into a new state without parsing
+ * anything; only need and available are recomputed, in one sequential pass. A varint
+ * encoding would be smaller for sparse states but would have to be decoded value by
+ * value. The fingerprints are taken over from the header instead of being rehashed.
+ * {@link SafetyVerdictCache} trusts them without comparing contents, but it only ever
+ * compares states derived from the same loaded state; stale fingerprints in an edited
+ * file are off by the same constant for all of those, so they cause no false hits.
+ *
+ * Version 1 files have a 24 byte header without the second fingerprint; both are
+ * rehashed when such a file is loaded, which takes a few times longer.
+ *
+ * Loading does not validate the state; call {@link SystemState#validate()} before
+ * trusting a snapshot from elsewhere.
+ */
+public final class StateSnapshot {
+    
+    public static final String EXTENSION = ".dls";
+    
+    static final int VERSION = 2;
+    
+    private static final byte[] MAGIC = {'D', 'L', 'S', 'S'};
+    private static final int HEADER_BYTES = 32;
+    private static final int VERSION_1_HEADER_BYTES = 24;
+    
+    // Sections are mapped in chunks of at most this many ints (1 GiB)
+    private static final int MAP_CHUNK_INTS = 1 << 28;
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+    
+    private StateSnapshot() {
+    }
+    
+    /**
+     * Write the state to path, replacing any existing file
+     */
+    public static void write(SystemState state, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(state.getNumProcesses());
+            buffer.putInt(state.getNumResources());
+            buffer.putLong(state.fingerprint());
+            buffer.putLong(state.checkFingerprint());
+            buffer.flip();
+            writeFully(channel, buffer);
+            
+            writeInts(channel, buffer, state.total);
+            writeInts(channel, buffer, state.max);
+            writeInts(channel, buffer, state.allocation);
+        }
+    }
+    
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        int chunk = buffer.capacity() / Integer.BYTES;
+        for (int offset = 0; offset < values.length; offset += chunk) {
+            int count = Math.min(chunk, values.length - offset);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, offset, count);
+            buffer.limit(count * Integer.BYTES);
+            writeFully(channel, buffer);
+        }
+    }
+    
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    /**
+     * Load a state written by {@link #write}
+     *
+     * @throws IOException if the file cannot be read, is not a snapshot, has an unsupported
+     *         version or does not have the size its header promises
+     */
+    public static SystemState read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < VERSION_1_HEADER_BYTES) {
+                throw new IOException(path + " is not a system state snapshot");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN);
+            for (byte b : MAGIC) {
+                if (header.get() != b) {
+                    throw new IOException(path + " is not a system state snapshot");
+                }
+            }
+            int version = header.getInt();
+            if (version != VERSION && version != 1) {
+                throw new IOException(path + " has snapshot version " + version + ", expected " + VERSION);
+            }
+            int numProcesses = header.getInt();
+            int numResources = header.getInt();
+            long fingerprint = header.getLong();
+            int headerBytes = version == 1 ? VERSION_1_HEADER_BYTES : HEADER_BYTES;
+            
+            long cells = (long) numProcesses * numResources;
+            if (numProcesses < 0 || numResources < 0 || cells > Integer.MAX_VALUE - 8) {
+                throw new IOException(path + " has an invalid system size: " + numProcesses + " x " + numResources);
+            }
+            long expected = headerBytes + (long) Integer.BYTES * (numResources + 2 * cells);
+            if (size != expected) {
+                throw new IOException(path + " should be " + expected + " bytes for " + numProcesses +
+                                      " processes and " + numResources + " resources but is " + size);
+            }
+            
+            SystemState state = new SystemState(numProcesses, numResources);
+            long position = headerBytes;
+            position = readInts(channel, position, state.total);
+            position = readInts(channel, position, state.max);
+            readInts(channel, position, state.allocation);
+            if (version == 1) {
+                state.restoreDerived();
+            } else {
+                state.restoreDerived(fingerprint, header.getLong());
+            }
+            return state;
+        }
+    }
+    
+    /**
+     * Bulk-copy values.length ints starting at position into values
+     *
+     * @return the position after them
+     */
+    private static long readInts(FileChannel channel, long position, int[] values) throws IOException {
+        for (int offset = 0; offset < values.length; offset += MAP_CHUNK_INTS) {
+            int count = Math.min(MAP_CHUNK_INTS, values.length - offset);
+            long bytes = (long) count * Integer.BYTES;
+            channel.map(FileChannel.MapMode.READ_ONLY, position, bytes)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer()
+                .get(values, offset, count);
+            position += bytes;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,403 @@
+package deadlock;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Headless system state shared by all deadlock algorithms.
+ *
+ * Max needs, allocation and need are stored as contiguous row-major arrays,
+ * so the cell for process p and resource r lives at index p * numResources + r.
+ * The available vector is kept up to date on every allocation change instead of
+ * being re-summed on each query.
+ */
+public class SystemState {
+    private final int numProcesses;
+    private final int numResources;
+    
+    // Flat row-major matrices, read directly by the algorithms in this package
+    final int[] max;
+    final int[] allocation;
+    final int[] need;
+    
+    // Per-resource vectors
+    final int[] total;
+    final int[] available;
+    
+    // Bumped by every change, so engines in this package can tell whether a result they
+    // derived from the state is still current
+    int modCount;
+    
+    // Zobrist-style fingerprints: the XOR of cellKey() over every non-zero max, allocation
+    // and total entry, updated with each change, and the same with checkKey(), whose
+    // salts and key construction are independent of the first
+    private long fingerprint;
+    private long checkFingerprint;
+    
+    private static final long MAX_SALT = 0x9E3779B97F4A7C15L;
+    private static final long ALLOCATION_SALT = 0xC2B2AE3D27D4EB4FL;
+    private static final long TOTAL_SALT = 0x165667B19E3779F9L;
+    private static final long MAX_CHECK_SALT = 0xA0761D6478BD642FL;
+    private static final long ALLOCATION_CHECK_SALT = 0xE7037ED1A0B428DBL;
+    private static final long TOTAL_CHECK_SALT = 0x8EBC6AF09C88C6E3L;
+    
+    public SystemState(int numProcesses, int numResources) {
+        if (numProcesses < 0 || numResources < 0) {
+            throw new IllegalArgumentException("Negative system size: " + numProcesses + " x " + numResources);
+        }
+        if ((long) numProcesses * numResources > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("System too large for one array: " + numProcesses + " x " + numResources);
+        }
+        this.numProcesses = numProcesses;
+        this.numResources = numResources;
+        this.max = new int[numProcesses * numResources];
+        this.allocation = new int[numProcesses * numResources];
+        this.need = new int[numProcesses * numResources];
+        this.total = new int[numResources];
+        this.available = new int[numResources];
+    }
+    
+    private SystemState(SystemState source) {
+        this.numProcesses = source.numProcesses;
+        this.numResources = source.numResources;
+        this.max = source.max.clone();
+        this.allocation = source.allocation.clone();
+        this.need = source.need.clone();
+        this.total = source.total.clone();
+        this.available = source.available.clone();
+        this.fingerprint = source.fingerprint;
+        this.checkFingerprint = source.checkFingerprint;
+    }
+    
+    /**
+     * Build a state from the classic matrix representation used by the GUI tables
+     */
+    public static SystemState of(int[][] maxNeeds, int[][] allocation, int[] totalResources) {
+        SystemState state = new SystemState(maxNeeds.length, totalResources.length);
+        for (int j = 0; j < state.numResources; j++) {
+            state.setTotal(j, totalResources[j]);
+        }
+        for (int i = 0; i < state.numProcesses; i++) {
+            for (int j = 0; j < state.numResources; j++) {
+                state.setMax(i, j, maxNeeds[i][j]);
+                state.setAllocation(i, j, allocation[i][j]);
+            }
+        }
+        return state;
+    }
+    
+    /**
+     * Independent copy of this state, e.g. a snapshot to analyze while the original is edited
+     */
+    public SystemState copy() {
+        return new SystemState(this);
+    }
+    
+    public int getNumProcesses() {
+        return numProcesses;
+    }
+    
+    public int getNumResources() {
+        return numResources;
+    }
+    
+    /**
+     * Offset of the first cell of a process row in the flat matrices
+     */
+    public int rowOffset(int processIndex) {
+        return processIndex * numResources;
+    }
+    
+    public int getMax(int processIndex, int resourceIndex) {
+        return max[processIndex * numResources + resourceIndex];
+    }
+    
+    public void setMax(int processIndex, int resourceIndex, int units) {
+        int cell = processIndex * numResources + resourceIndex;
+        rekey(MAX_SALT, MAX_CHECK_SALT, cell, max[cell], units);
+        max[cell] = units;
+        need[cell] = units - allocation[cell];
+        modCount++;
+    }
+    
+    public int getAllocation(int processIndex, int resourceIndex) {
+        return allocation[processIndex * numResources + resourceIndex];
+    }
+    
+    public void setAllocation(int processIndex, int resourceIndex, int units) {
+        int cell = processIndex * numResources + resourceIndex;
+        rekey(ALLOCATION_SALT, ALLOCATION_CHECK_SALT, cell, allocation[cell], units);
+        available[resourceIndex] += allocation[cell] - units;
+        allocation[cell] = units;
+        need[cell] = max[cell] - units;
+        modCount++;
+    }
+    
+    public int getNeed(int processIndex, int resourceIndex) {
+        return need[processIndex * numResources + resourceIndex];
+    }
+    
+    public int getTotal(int resourceIndex) {
+        return total[resourceIndex];
+    }
+    
+    public void setTotal(int resourceIndex, int units) {
+        rekey(TOTAL_SALT, TOTAL_CHECK_SALT, resourceIndex, total[resourceIndex], units);
+        available[resourceIndex] += units - total[resourceIndex];
+        total[resourceIndex] = units;
+        modCount++;
+    }
+    
+    public int getAvailable(int resourceIndex) {
+        return available[resourceIndex];
+    }
+    
+    /**
+     * Copy the available vector into a caller supplied array
+     */
+    public int[] copyAvailable(int[] dest) {
+        System.arraycopy(available, 0, dest, 0, numResources);
+        return dest;
+    }
+    
+    public void allocate(int processIndex, int resourceIndex, int units) {
+        if (units <= 0) {
+            return;
+        }
+        setAllocation(processIndex, resourceIndex, getAllocation(processIndex, resourceIndex) + units);
+    }
+    
+    public void release(int processIndex, int resourceIndex, int units) {
+        if (units <= 0) {
+            return;
+        }
+        setAllocation(processIndex, resourceIndex, Math.max(0, getAllocation(processIndex, resourceIndex) - units));
+    }
+    
+    /**
+     * Move a whole request vector from the available pool to one process.
+     * The caller is responsible for checking the request against need and available.
+     */
+    public void allocate(int processIndex, int[] units) {
+        int row = processIndex * numResources;
+        for (int j = 0; j < numResources; j++) {
+            int amount = units[j];
+            if (amount != 0) {
+                int cell = row + j;
+                rekey(ALLOCATION_SALT, ALLOCATION_CHECK_SALT, cell, allocation[cell], allocation[cell] + amount);
+                allocation[row + j] += amount;
+                need[row + j] -= amount;
+                available[j] -= amount;
+            }
+        }
+        modCount++;
+    }
+    
+    /**
+     * Return a whole vector of units held by one process to the available pool.
+     * The caller is responsible for checking the vector against the allocation.
+     */
+    public void release(int processIndex, int[] units) {
+        int row = processIndex * numResources;
+        for (int j = 0; j < numResources; j++) {
+            int amount = units[j];
+            if (amount != 0) {
+                int cell = row + j;
+                rekey(ALLOCATION_SALT, ALLOCATION_CHECK_SALT, cell, allocation[cell], allocation[cell] - amount);
+                allocation[row + j] -= amount;
+                need[row + j] += amount;
+                available[j] += amount;
+            }
+        }
+        modCount++;
+    }
+    
+    /**
+     * 64-bit fingerprint of max, allocation and total, kept up to date in O(1) per changed
+     * entry. Equal states have equal fingerprints; different states collide with
+     * probability about 2^-64.
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+    
+    /**
+     * Second 64-bit fingerprint, built like {@link #fingerprint()} from independent keys.
+     * Together they key {@link SafetyVerdictCache} entries with 128 bits, so a cache hit
+     * needs no copy of the state to be confirmed against.
+     */
+    long checkFingerprint() {
+        return checkFingerprint;
+    }
+    
+    private void rekey(long salt, long checkSalt, int cell, int oldUnits, int newUnits) {
+        fingerprint ^= cellKey(salt, cell, oldUnits) ^ cellKey(salt, cell, newUnits);
+        checkFingerprint ^= checkKey(checkSalt, cell, oldUnits) ^ checkKey(checkSalt, cell, newUnits);
+    }
+    
+    /**
+     * Random key of one (cell, units) entry of a matrix; zero units contribute nothing,
+     * so a new all-zero state has fingerprint 0. The keys are computed with the SplitMix64
+     * finalizer instead of being looked up in a table of P * R * units random numbers.
+     */
+    private static long cellKey(long salt, int cell, int units) {
+        if (units == 0) {
+            return 0;
+        }
+        return mix(salt + cell * 0xBF58476D1CE4E5B9L + units * 0x94D049BB133111EBL);
+    }
+    
+    /**
+     * Key of the check fingerprint. The cell is mixed on its own before the units are
+     * added, so two entries whose cellKey() inputs happen to coincide do not also
+     * coincide here.
+     */
+    private static long checkKey(long salt, int cell, int units) {
+        if (units == 0) {
+            return 0;
+        }
+        return mix(mix(salt + cell * 0x9E3779B97F4A7C15L) + units * 0xD1B54A32D192ED03L);
+    }
+    
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * Whether max, allocation and total equal the given arrays
+     */
+    boolean contentEquals(int[] otherMax, int[] otherAllocation, int[] otherTotal) {
+        return Arrays.equals(allocation, otherAllocation) && Arrays.equals(max, otherMax)
+            && Arrays.equals(total, otherTotal);
+    }
+    
+    /**
+     * Recompute need and available after max, allocation and total were filled in bulk by
+     * {@link StateSnapshot}, and take over the fingerprints saved with them instead of
+     * rehashing every entry
+     */
+    void restoreDerived(long savedFingerprint, long savedCheckFingerprint) {
+        restoreNeedAndAvailable();
+        fingerprint = savedFingerprint;
+        checkFingerprint = savedCheckFingerprint;
+        modCount++;
+    }
+    
+    /**
+     * Like {@link #restoreDerived(long, long)}, rehashing both fingerprints, for snapshots
+     * that were saved without the check fingerprint
+     */
+    void restoreDerived() {
+        restoreNeedAndAvailable();
+        long key = 0;
+        long check = 0;
+        for (int j = 0; j < numResources; j++) {
+            key ^= cellKey(TOTAL_SALT, j, total[j]);
+            check ^= checkKey(TOTAL_CHECK_SALT, j, total[j]);
+        }
+        for (int cell = 0; cell < max.length; cell++) {
+            key ^= cellKey(MAX_SALT, cell, max[cell]) ^ cellKey(ALLOCATION_SALT, cell, allocation[cell]);
+            check ^= checkKey(MAX_CHECK_SALT, cell, max[cell]) ^ checkKey(ALLOCATION_CHECK_SALT, cell, allocation[cell]);
+        }
+        fingerprint = key;
+        checkFingerprint = check;
+        modCount++;
+    }
+    
+    private void restoreNeedAndAvailable() {
+        System.arraycopy(total, 0, available, 0, numResources);
+        for (int i = 0; i < numProcesses; i++) {
+            int row = i * numResources;
+            for (int j = 0; j < numResources; j++) {
+                need[row + j] = max[row + j] - allocation[row + j];
+                available[j] -= allocation[row + j];
+            }
+        }
+    }
+    
+    /**
+     * Return every allocated unit of one resource type to the available pool
+     */
+    public void clearAllocations(int resourceIndex) {
+        for (int i = 0; i < numProcesses; i++) {
+            setAllocation(i, resourceIndex, 0);
+        }
+    }
+    
+    /**
+     * Check the same invariants the GUI enforces on its input tables
+     */
+    public void validate() {
+        for (int i = 0; i < numProcesses; i++) {
+            int row = i * numResources;
+            for (int j = 0; j < numResources; j++) {
+                if (max[row + j] < 0) {
+                    throw new IllegalArgumentException("Negative value in max needs at row " + i + ", column " + j);
+                }
+                if (allocation[row + j] < 0) {
+                    throw new IllegalArgumentException("Negative value in allocation at row " + i + ", column " + j);
+                }
+                if (allocation[row + j] > max[row + j]) {
+                    throw new IllegalArgumentException(
+                        "Allocation exceeds max need for process P" + i + " and resource R" + j);
+                }
+            }
+        }
+        for (int j = 0; j < numResources; j++) {
+            if (total[j] < 0) {
+                throw new IllegalArgumentException("Negative value in total resources at column " + j);
+            }
+            if (available[j] < 0) {
+                throw new IllegalArgumentException(
+                    "Total allocation exceeds available instances for resource R" + j +
+                    " (allocated: " + (total[j] - available[j]) + ", total: " + total[j] + ")");
+            }
+        }
+    }
+    
+    public Process getProcess(int processIndex) {
+        return new Process(this, processIndex);
+    }
+    
+    public Resource getResource(int resourceIndex) {
+        return new Resource(this, resourceIndex);
+    }
+    
+    /**
+     * Process views, created on demand so no per-process objects are kept
+     */
+    public List<Process> getProcesses() {
+        return new AbstractList<Process>() {
+            @Override
+            public Process get(int index) {
+                return getProcess(index);
+            }
+            
+            @Override
+            public int size() {
+                return numProcesses;
+            }
+        };
+    }
+    
+    /**
+     * Resource views, created on demand so no per-resource objects are kept
+     */
+    public List<Resource> getResources() {
+        return new AbstractList<Resource>() {
+            @Override
+            public Resource get(int index) {
+                return getResource(index);
+            }
+            
+            @Override
+            public int size() {
+                return numResources;
+            }
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package deadlock;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link RowKernel} that processes as many resources per step as the preferred vector
+ * shape of the CPU holds, with a scalar loop for the tail. Only loaded through
+ * {@link RowKernels#select()}.
+ */
+final class VectorRowKernel implements RowKernel {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    
+    @Override
+    public boolean fits(int[] need, int offset, int[] work, int length) {
+        int j = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; j < bound; j += SPECIES.length()) {
+            IntVector needs = IntVector.fromArray(SPECIES, need, offset + j);
+            IntVector available = IntVector.fromArray(SPECIES, work, j);
+            if (needs.compare(VectorOperators.GT, available).anyTrue()) {
+                return false;
+            }
+        }
+        for (; j < length; j++) {
+            if (need[offset + j] > work[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public void accumulate(int[] allocation, int offset, int[] work, int length) {
+        int j = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; j < bound; j += SPECIES.length()) {
+            IntVector released = IntVector.fromArray(SPECIES, allocation, offset + j);
+            IntVector.fromArray(SPECIES, work, j).add(released).intoArray(work, j);
+        }
+        for (; j < length; j++) {
+            work[j] += allocation[offset + j];
+        }
+    }
+    
+    @Override
+    public String getName() {
+        return "vector (" + SPECIES.vectorBitSize() + "-bit)";
+    }
+}
@@ -0,0 +1,221 @@
+package deadlock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable wait-for graph stored as compressed adjacency lists.
+ *
+ * Node v waits for every node in targets[edgeStart[v]..edgeStart[v + 1]). The reverse
+ * lists are kept as well so the nodes blocked behind a cycle can be found without a
+ * second pass over the forward edges. Memory is O(V + E), there is no V x V matrix.
+ */
+public class WaitForGraph {
+    private final int numNodes;
+    private final int[] edgeStart;
+    private final int[] targets;
+    private final int[] reverseStart;
+    private final int[] sources;
+    
+    private WaitForGraph(int numNodes, int[] from, int[] to, int numEdges) {
+        this.numNodes = numNodes;
+        this.edgeStart = new int[numNodes + 1];
+        this.targets = new int[numEdges];
+        this.reverseStart = new int[numNodes + 1];
+        this.sources = new int[numEdges];
+        
+        // Counting sort of the edge list into forward and reverse adjacency arrays
+        for (int e = 0; e < numEdges; e++) {
+            edgeStart[from[e] + 1]++;
+            reverseStart[to[e] + 1]++;
+        }
+        for (int v = 0; v < numNodes; v++) {
+            edgeStart[v + 1] += edgeStart[v];
+            reverseStart[v + 1] += reverseStart[v];
+        }
+        int[] forwardFill = Arrays.copyOf(edgeStart, numNodes);
+        int[] reverseFill = Arrays.copyOf(reverseStart, numNodes);
+        for (int e = 0; e < numEdges; e++) {
+            targets[forwardFill[from[e]]++] = to[e];
+            sources[reverseFill[to[e]]++] = from[e];
+        }
+    }
+    
+    public int getNumNodes() {
+        return numNodes;
+    }
+    
+    public int getNumEdges() {
+        return targets.length;
+    }
+    
+    public int getOutDegree(int node) {
+        return edgeStart[node + 1] - edgeStart[node];
+    }
+    
+    /**
+     * The index-th node that the given node waits for
+     */
+    public int getSuccessor(int node, int index) {
+        return targets[edgeStart[node] + index];
+    }
+    
+    /**
+     * Find every strongly connected component that contains a cycle, i.e. every
+     * group of nodes that wait for each other. Uses an iterative version of Tarjan's
+     * algorithm, so long wait chains cannot overflow the call stack. O(V + E).
+     *
+     * @return one array of node indices per deadlock cycle
+     */
+    public List<int[]> findCycles() {
+        List<int[]> cycles = new ArrayList<>();
+        int[] index = new int[numNodes];
+        int[] lowLink = new int[numNodes];
+        boolean[] onStack = new boolean[numNodes];
+        int[] stack = new int[numNodes];
+        int[] callStack = new int[numNodes];
+        int[] nextEdge = new int[numNodes];
+        Arrays.fill(index, -1);
+        
+        int counter = 0;
+        int stackSize = 0;
+        
+        for (int root = 0; root < numNodes; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            
+            int depth = 0;
+            callStack[depth++] = root;
+            index[root] = lowLink[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            nextEdge[root] = edgeStart[root];
+            
+            while (depth > 0) {
+                int v = callStack[depth - 1];
+                
+                if (nextEdge[v] < edgeStart[v + 1]) {
+                    int w = targets[nextEdge[v]++];
+                    if (index[w] == -1) {
+                        // Descend into an unvisited successor
+                        callStack[depth++] = w;
+                        index[w] = lowLink[w] = counter++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        nextEdge[w] = edgeStart[w];
+                    } else if (onStack[w] && index[w] < lowLink[v]) {
+                        lowLink[v] = index[w];
+                    }
+                    continue;
+                }
+                
+                // All successors done, return to the caller
+                depth--;
+                if (depth > 0) {
+                    int caller = callStack[depth - 1];
+                    if (lowLink[v] < lowLink[caller]) {
+                        lowLink[caller] = lowLink[v];
+                    }
+                }
+                
+                if (lowLink[v] == index[v]) {
+                    int start = stackSize;
+                    do {
+                        start--;
+                        onStack[stack[start]] = false;
+                    } while (stack[start] != v);
+                    
+                    int[] component = Arrays.copyOfRange(stack, start, stackSize);
+                    stackSize = start;
+                    if (component.length > 1 || hasSelfLoop(v)) {
+                        Arrays.sort(component);
+                        cycles.add(component);
+                    }
+                }
+            }
+        }
+        
+        return cycles;
+    }
+    
+    private boolean hasSelfLoop(int node) {
+        for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+            if (targets[e] == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Find the nodes that are not on a cycle but wait, directly or through a chain,
+     * for a node on one of the given cycles. O(V + E).
+     */
+    public int[] findBlockedBehind(List<int[]> cycles) {
+        boolean[] reached = new boolean[numNodes];
+        int[] queue = new int[numNodes];
+        int tail = 0;
+        for (int[] cycle : cycles) {
+            for (int v : cycle) {
+                if (!reached[v]) {
+                    reached[v] = true;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        
+        int onCycles = tail;
+        int head = 0;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int e = reverseStart[v]; e < reverseStart[v + 1]; e++) {
+                int waiter = sources[e];
+                if (!reached[waiter]) {
+                    reached[waiter] = true;
+                    queue[tail++] = waiter;
+                }
+            }
+        }
+        
+        int[] blocked = Arrays.copyOfRange(queue, onCycles, tail);
+        Arrays.sort(blocked);
+        return blocked;
+    }
+    
+    /**
+     * Accumulates wait-for edges and freezes them into a {@link WaitForGraph}
+     */
+    public static class Builder {
+        private final int numNodes;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int numEdges;
+        
+        public Builder(int numNodes) {
+            this.numNodes = numNodes;
+        }
+        
+        /**
+         * Record that node waiter waits for node holder
+         */
+        public Builder addEdge(int waiter, int holder) {
+            if (waiter < 0 || waiter >= numNodes || holder < 0 || holder >= numNodes) {
+                throw new IllegalArgumentException("Edge " + waiter + " -> " + holder + " outside graph of " + numNodes + " nodes");
+            }
+            if (numEdges == from.length) {
+                from = Arrays.copyOf(from, numEdges * 2);
+                to = Arrays.copyOf(to, numEdges * 2);
+            }
+            from[numEdges] = waiter;
+            to[numEdges] = holder;
+            numEdges++;
+            return this;
+        }
+        
+        public WaitForGraph build() {
+            return new WaitForGraph(numNodes, from, to, numEdges);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package deadlock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implements deadlock detection using Wait-For Graph for single instance resources.
+ *
+ * The graph is kept as adjacency lists and searched with an iterative Tarjan SCC pass,
+ * so every deadlock cycle is reported, together with the processes blocked behind one,
+ * in O(P + E) time and memory.
+ */
+public class WaitForGraphDetector {
+    private final SystemState state;
+    private final WaitForGraph waitForGraph;
+    private final List<List<Process>> deadlockCycles;
+    private final List<Process> blockedProcesses;
+    private final List<Process> deadlockedProcesses;
+    
+    public WaitForGraphDetector(SystemState state) {
+        this.state = state;
+        this.deadlockCycles = new ArrayList<>();
+        this.blockedProcesses = new ArrayList<>();
+        this.deadlockedProcesses = new ArrayList<>();
+        
+        this.waitForGraph = constructWaitForGraph();
+    }
+    
+    private WaitForGraph constructWaitForGraph() {
+        int numProcesses = state.getNumProcesses();
+        int numResources = state.getNumResources();
+        int[] allocation = state.allocation;
+        int[] need = state.need;
+        
+        // Find which process holds each resource
+        int[] holder = new int[numResources];
+        Arrays.fill(holder, -1);
+        for (int i = 0; i < numProcesses; i++) {
+            int row = i * numResources;
+            for (int j = 0; j < numResources; j++) {
+                if (allocation[row + j] > 0 && holder[j] == -1) {
+                    holder[j] = i;
+                }
+            }
+        }
+        
+        // If process i needs a resource held by process h, then process i waits for process h
+        WaitForGraph.Builder builder = new WaitForGraph.Builder(numProcesses);
+        for (int i = 0; i < numProcesses; i++) {
+            int row = i * numResources;
+            for (int j = 0; j < numResources; j++) {
+                int h = holder[j];
+                if (h != -1 && h != i && need[row + j] > 0) {
+                    builder.addEdge(i, h);
+                }
+            }
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Build the wait-for graph of a sparse state with the same rule as the dense
+     * constructor, visiting only the non-zero allocation and need entries
+     */
+    public static WaitForGraph buildWaitForGraph(SparseSystemState state) {
+        int numProcesses = state.getNumProcesses();
+        CsrMatrix allocation = state.allocation;
+        CsrMatrix need = state.need;
+        
+        // Find which process holds each resource
+        int[] holder = new int[state.getNumResources()];
+        Arrays.fill(holder, -1);
+        for (int i = 0; i < numProcesses; i++) {
+            for (int k = allocation.rowStart[i]; k < allocation.rowStart[i + 1]; k++) {
+                int j = allocation.columns[k];
+                if (allocation.values[k] > 0 && holder[j] == -1) {
+                    holder[j] = i;
+                }
+            }
+        }
+        
+        WaitForGraph.Builder builder = new WaitForGraph.Builder(numProcesses);
+        for (int i = 0; i < numProcesses; i++) {
+            for (int k = need.rowStart[i]; k < need.rowStart[i + 1]; k++) {
+                int h = holder[need.columns[k]];
+                if (h != -1 && h != i && need.values[k] > 0) {
+                    builder.addEdge(i, h);
+                }
+            }
+        }
+        return builder.build();
+    }
+    
+    public boolean detectDeadlock() {
+        deadlockCycles.clear();
+        blockedProcesses.clear();
+        deadlockedProcesses.clear();
+        
+        List<int[]> cycles = waitForGraph.findCycles();
+        for (int[] cycle : cycles) {
+            List<Process> members = new ArrayList<>(cycle.length);
+            for (int i : cycle) {
+                members.add(state.getProcess(i));
+            }
+            deadlockCycles.add(members);
+            deadlockedProcesses.addAll(members);
+        }
+        
+        // Processes waiting on a deadlocked process can never proceed either
+        for (int i : waitForGraph.findBlockedBehind(cycles)) {
+            Process p = state.getProcess(i);
+            blockedProcesses.add(p);
+            deadlockedProcesses.add(p);
+        }
+        
+        return !deadlockCycles.isEmpty();
+    }
+    
+    public WaitForGraph getWaitForGraph() {
+        return waitForGraph;
+    }
+    
+    /**
+     * Every group of processes that wait for each other in a cycle
+     */
+    public List<List<Process>> getDeadlockCycles() {
+        return deadlockCycles;
+    }
+    
+    /**
+     * Processes that are not on a cycle but wait for a process on one
+     */
+    public List<Process> getBlockedProcesses() {
+        return blockedProcesses;
+    }
+    
+    /**
+     * Processes on a cycle followed by the processes blocked behind one
+     */
+    public List<Process> getDeadlockedProcesses() {
+        return deadlockedProcesses;
+    }
+}
@@ -0,0 +1,82 @@
+package deadlock;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Worklist-driven Banker's safety check.
+ *
+ * The classic loop in {@link BankersAlgorithm} rescans every unfinished process on each
+ * pass, which is O(P^2 * R) when processes become runnable one at a time. This engine
+ * keeps, for every process, the number of resource types whose need still exceeds
+ * work, and for every resource type the waiting processes sorted by need. When a
+ * process finishes and work[j] grows, only the waiters whose need threshold was just
+ * crossed are touched, so a full check costs O(P * R + N log P), where N is the number
+ * of non-zero need entries. The bookkeeping is shared with {@link GraphReductionDetector}.
+ *
+ * The verdict is the same as the classic loop. The safe sequence is valid but may
+ * list processes in a different order.
+ *
+ * A {@link SparseSystemState} can be checked directly; only its non-zero entries are
+ * visited. Its safe sequence is available as indices only, because {@link Process}
+ * views belong to a dense state.
+ */
+public class WorklistSafetyChecker {
+    private final SystemState state;
+    private final SparseSystemState sparseState;
+    private final int numProcesses;
+    private final GraphReduction reduction;
+    private int sequenceLength;
+    
+    public WorklistSafetyChecker(SystemState state) {
+        this.state = state;
+        this.sparseState = null;
+        this.numProcesses = state.getNumProcesses();
+        this.reduction = new GraphReduction(state.getNumProcesses(), state.getNumResources());
+    }
+    
+    public WorklistSafetyChecker(SparseSystemState state) {
+        this.state = null;
+        this.sparseState = state;
+        this.numProcesses = state.getNumProcesses();
+        this.reduction = new GraphReduction(state.getNumProcesses(), state.getNumResources());
+    }
+    
+    public boolean checkSafeState() {
+        if (state != null) {
+            reduction.load(state);
+        } else {
+            reduction.load(sparseState);
+        }
+        sequenceLength = reduction.reduce();
+        return sequenceLength == numProcesses;
+    }
+    
+    /**
+     * Indices of the processes in the safe sequence found by the last check
+     */
+    public int[] getSafeSequenceIndices() {
+        return Arrays.copyOf(reduction.order, sequenceLength);
+    }
+    
+    /**
+     * @throws IllegalStateException if the checker was built for a sparse state
+     */
+    public List<Process> getSafeSequence() {
+        if (state == null) {
+            throw new IllegalStateException("Process views need a dense SystemState; use getSafeSequenceIndices()");
+        }
+        return new AbstractList<Process>() {
+            @Override
+            public Process get(int index) {
+                return state.getProcess(reduction.order[index]);
+            }
+            
+            @Override
+            public int size() {
+                return sequenceLength;
+            }
+        };
+    }
+}
@@ -0,0 +1,841 @@
+package deadlock;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Headless discrete-event simulation of processes that request and release resources
+ * under one of three deadlock handling policies.
+ *
+ * Every process slot has a fixed max claim drawn from the seed, as the Banker's algorithm
+ * expects. A process thinks for a random time, then runs a job: it acquires its claim in
+ * a number of steps, holds what it has for a random time after each step and finally
+ * releases everything. A step that cannot be granted waits until a release (or a
+ * recovery) makes room. The policies differ in how a step is granted:
+ *
+ *     AVOIDANCE   only if the state stays safe ({@link BatchAdmission}); never deadlocks
+ *     DETECTION   whenever the units are free; a periodic {@link DeadlockRecovery} pass
+ *                 finds deadlocked waiters and aborts the one holding the fewest units
+ *                 until none are left
+ *     PREVENTION  the whole claim in one step, so no process holds units while it waits
+ *                 (no hold and wait); never deadlocks
+ *
+ * Events are kept in a primitive {@link EventQueue} and all per-process state in arrays
+ * sized up front, so the loop allocates nothing in steady state. The same seed and
+ * configuration always give the same run.
+ */
+public class WorkloadSimulator {
+    
+    public enum Policy {
+        AVOIDANCE,
+        DETECTION,
+        PREVENTION
+    }
+    
+    /**
+     * Source of random durations
+     */
+    public interface Distribution {
+        double sample(SplittableRandom random);
+        
+        static Distribution constant(double value) {
+            if (!(value >= 0 && value < Double.POSITIVE_INFINITY)) {
+                throw new IllegalArgumentException("Constant duration must be finite and non-negative: " + value);
+            }
+            return random -> value;
+        }
+        
+        static Distribution exponential(double mean) {
+            if (!(mean > 0 && mean < Double.POSITIVE_INFINITY)) {
+                throw new IllegalArgumentException("Exponential mean must be finite and positive: " + mean);
+            }
+            return random -> -mean * Math.log(1.0 - random.nextDouble());
+        }
+        
+        static Distribution uniform(double min, double max) {
+            if (!(min >= 0 && min <= max && max < Double.POSITIVE_INFINITY)) {
+                throw new IllegalArgumentException("Uniform bounds must satisfy 0 <= min <= max < infinity: " + min + ", " + max);
+            }
+            return random -> min + (max - min) * random.nextDouble();
+        }
+        
+        /**
+         * Parse "const:V", "exp:MEAN" or "uniform:MIN:MAX"
+         *
+         * @throws IllegalArgumentException if spec is malformed or its parameters are out of
+         *         range for the distribution
+         */
+        static Distribution parse(String spec) {
+            String[] parts = spec.split(":");
+            try {
+                switch (parts[0].toLowerCase(Locale.ROOT)) {
+                    case "const":
+                        if (parts.length == 2) {
+                            return constant(Double.parseDouble(parts[1]));
+                        }
+                        break;
+                    case "exp":
+                        if (parts.length == 2) {
+                            return exponential(Double.parseDouble(parts[1]));
+                        }
+                        break;
+                    case "uniform":
+                        if (parts.length == 3) {
+                            return uniform(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("Invalid distribution '" + spec + "'; use const:V, exp:MEAN or uniform:MIN:MAX");
+        }
+    }
+    
+    // Event kinds
+    private static final int ARRIVAL = 0;
+    private static final int STEP = 1;
+    private static final int FINISH = 2;
+    private static final int DETECT = 3;
+    
+    // Process phases
+    private static final int THINKING = 0;
+    private static final int RUNNING = 1;
+    private static final int WAITING = 2;
+    
+    private final Builder config;
+    private final int numProcesses;
+    private final int numResources;
+    private final SplittableRandom random;
+    private final SystemState state;
+    private final EventQueue events;
+    
+    // Per-process job state
+    private final int[] phase;
+    private final int[] step;
+    private final double[] jobStart;
+    private final double[] waitStart;
+    private final int[][] pending;
+    
+    // Waiting processes in arrival order, with their pending requests for BatchAdmission
+    private final int[] waitList;
+    private final int[][] waitRequests;
+    private final boolean[] waitGranted;
+    private int waitingCount;
+    
+    // AVOIDANCE
+    private final BatchAdmission admission;
+    private final int[] singleProcess = new int[1];
+    private final int[][] singleRequest = new int[1][];
+    private final boolean[] singleGranted = new boolean[1];
+    
+    // DETECTION: allocation mirrored from state, need = pending request of waiters
+    private final SystemState requestState;
+    private final DeadlockRecovery recovery;
+    
+    // Metrics
+    private long eventCount;
+    private long jobsCompleted;
+    private long grantCount;
+    private long waitCount;
+    private long deadlockCount;
+    private long abortCount;
+    private double lostWork;
+    private double totalWait;
+    private final long[] waitBuckets = new long[WAIT_BUCKETS];
+    private long algorithmNanos;
+    private long algorithmCalls;
+    private long allocatedUnits;
+    private long totalUnits;
+    private double allocatedArea;
+    private double now;
+    
+    private WorkloadSimulator(Builder config) {
+        this.config = config;
+        this.numProcesses = config.processes;
+        this.numResources = config.resources;
+        this.random = new SplittableRandom(config.seed);
+        this.state = new SystemState(numProcesses, numResources);
+        this.events = new EventQueue(numProcesses + 2);
+        this.phase = new int[numProcesses];
+        this.step = new int[numProcesses];
+        this.jobStart = new double[numProcesses];
+        this.waitStart = new double[numProcesses];
+        this.pending = new int[numProcesses][numResources];
+        this.waitList = new int[numProcesses];
+        this.waitRequests = new int[numProcesses][];
+        this.waitGranted = new boolean[numProcesses];
+        
+        for (int j = 0; j < numResources; j++) {
+            state.setTotal(j, config.unitsPerResource);
+            totalUnits += config.unitsPerResource;
+        }
+        for (int i = 0; i < numProcesses; i++) {
+            int first = random.nextInt(numResources);
+            for (int j = 0; j < numResources; j++) {
+                if (j == first || random.nextDouble() < config.claimDensity) {
+                    state.setMax(i, j, Math.min(config.unitsPerResource, 1 + random.nextInt(config.maxClaim)));
+                }
+            }
+        }
+        
+        this.admission = config.policy == Policy.AVOIDANCE ? new BatchAdmission(state) : null;
+        if (config.policy == Policy.DETECTION) {
+            this.requestState = new SystemState(numProcesses, numResources);
+            for (int j = 0; j < numResources; j++) {
+                requestState.setTotal(j, config.unitsPerResource);
+            }
+            this.recovery = new DeadlockRecovery(requestState);
+        } else {
+            this.requestState = null;
+            this.recovery = null;
+        }
+    }
+    
+    /**
+     * Run the simulation until the event or time limit of the configuration is reached
+     */
+    public static Report run(Builder config) {
+        return new WorkloadSimulator(config).run();
+    }
+    
+    private Report run() {
+        long wallStart = System.nanoTime();
+        for (int i = 0; i < numProcesses; i++) {
+            events.add(config.thinkTime.sample(random), ARRIVAL, i);
+        }
+        if (config.policy == Policy.DETECTION) {
+            events.add(config.detectionInterval, DETECT, -1);
+        }
+        
+        while (!events.isEmpty() && eventCount < config.maxEvents) {
+            double time = events.peekTime();
+            if (time > config.maxTime) {
+                break;
+            }
+            int kind = events.peekKind();
+            int process = events.peekProcess();
+            events.poll();
+            eventCount++;
+            
+            allocatedArea += allocatedUnits * (time - now);
+            now = time;
+            switch (kind) {
+                case ARRIVAL:
+                    jobStart[process] = now;
+                    step[process] = 0;
+                    requestStep(process);
+                    break;
+                case STEP:
+                    requestStep(process);
+                    break;
+                case FINISH:
+                    finish(process);
+                    break;
+                case DETECT:
+                    detectAndRecover();
+                    events.add(now + config.detectionInterval, DETECT, -1);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown event kind " + kind);
+            }
+        }
+        return new Report(this, System.nanoTime() - wallStart);
+    }
+    
+    private int stepsPerJob() {
+        return config.policy == Policy.PREVENTION ? 1 : config.stepsPerJob;
+    }
+    
+    /**
+     * Request the next share of the remaining claim of a process
+     */
+    private void requestStep(int i) {
+        int stepsLeft = stepsPerJob() - step[i];
+        int row = state.rowOffset(i);
+        int[] request = pending[i];
+        for (int j = 0; j < numResources; j++) {
+            int need = state.need[row + j];
+            request[j] = (need + stepsLeft - 1) / stepsLeft;
+        }
+        if (tryGrant(i)) {
+            advance(i);
+        } else {
+            phase[i] = WAITING;
+            waitStart[i] = now;
+            waitList[waitingCount] = i;
+            waitRequests[waitingCount++] = request;
+            if (requestState != null) {
+                syncRequestState(i);
+            }
+        }
+    }
+    
+    private boolean tryGrant(int i) {
+        long start = System.nanoTime();
+        boolean granted;
+        if (admission != null) {
+            singleProcess[0] = i;
+            singleRequest[0] = pending[i];
+            granted = admission.admit(singleProcess, singleRequest, 1, singleGranted) == 1;
+        } else {
+            granted = fitsAvailable(pending[i]);
+            if (granted) {
+                state.allocate(i, pending[i]);
+            }
+        }
+        algorithmNanos += System.nanoTime() - start;
+        algorithmCalls++;
+        if (granted) {
+            grantCount++;
+            allocatedUnits += sum(pending[i]);
+        }
+        return granted;
+    }
+    
+    private boolean fitsAvailable(int[] request) {
+        for (int j = 0; j < numResources; j++) {
+            if (request[j] > state.available[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Schedule what follows a granted step
+     */
+    private void advance(int i) {
+        phase[i] = RUNNING;
+        step[i]++;
+        if (requestState != null) {
+            syncRequestState(i);
+        }
+        double hold = config.holdTime.sample(random);
+        events.add(now + hold, step[i] < stepsPerJob() ? STEP : FINISH, i);
+    }
+    
+    private void finish(int i) {
+        jobsCompleted++;
+        releaseAll(i);
+        phase[i] = THINKING;
+        events.add(now + config.thinkTime.sample(random), ARRIVAL, i);
+        retryWaiting();
+    }
+    
+    private void releaseAll(int i) {
+        int row = state.rowOffset(i);
+        int[] units = pending[i];
+        for (int j = 0; j < numResources; j++) {
+            units[j] = state.allocation[row + j];
+        }
+        allocatedUnits -= sum(units);
+        if (admission != null) {
+            admission.release(i, units);
+        } else {
+            state.release(i, units);
+        }
+        if (requestState != null) {
+            syncRequestState(i);
+        }
+    }
+    
+    /**
+     * Grant every waiting request that can go now, oldest first
+     */
+    private void retryWaiting() {
+        if (waitingCount == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (admission != null) {
+            admission.admit(waitList, waitRequests, waitingCount, waitGranted);
+        } else {
+            for (int k = 0; k < waitingCount; k++) {
+                int i = waitList[k];
+                waitGranted[k] = fitsAvailable(pending[i]);
+                if (waitGranted[k]) {
+                    state.allocate(i, pending[i]);
+                }
+            }
+        }
+        algorithmNanos += System.nanoTime() - start;
+        algorithmCalls++;
+        
+        int remaining = 0;
+        int count = waitingCount;
+        waitingCount = 0;
+        for (int k = 0; k < count; k++) {
+            int i = waitList[k];
+            if (waitGranted[k]) {
+                grantCount++;
+                allocatedUnits += sum(pending[i]);
+                recordWait(now - waitStart[i]);
+                advance(i);
+            } else {
+                waitList[remaining] = i;
+                waitRequests[remaining++] = pending[i];
+            }
+        }
+        waitingCount = remaining;
+    }
+    
+    /**
+     * Find deadlocked waiters and abort the cheapest one until none are left. The
+     * recovery clears the victims in requestState itself; abort() does the job bookkeeping.
+     */
+    private void detectAndRecover() {
+        long start = System.nanoTime();
+        int victims = recovery.recover();
+        algorithmNanos += System.nanoTime() - start;
+        algorithmCalls++;
+        if (victims == 0) {
+            return;
+        }
+        deadlockCount++;
+        for (int k = 0; k < victims; k++) {
+            abort(recovery.getVictim(k));
+        }
+        retryWaiting();
+    }
+    
+    private void abort(int i) {
+        abortCount++;
+        lostWork += now - jobStart[i];
+        for (int k = 0; k < waitingCount; k++) {
+            if (waitList[k] == i) {
+                System.arraycopy(waitList, k + 1, waitList, k, waitingCount - k - 1);
+                System.arraycopy(waitRequests, k + 1, waitRequests, k, waitingCount - k - 1);
+                waitingCount--;
+                break;
+            }
+        }
+        phase[i] = THINKING;
+        releaseAll(i);
+        events.add(now + config.thinkTime.sample(random), ARRIVAL, i);
+    }
+    
+    /**
+     * Mirror the allocation of a process and expose its pending request, if it waits, as need
+     */
+    private void syncRequestState(int i) {
+        int row = state.rowOffset(i);
+        boolean waiting = phase[i] == WAITING;
+        for (int j = 0; j < numResources; j++) {
+            int allocated = state.allocation[row + j];
+            requestState.setAllocation(i, j, allocated);
+            requestState.setMax(i, j, allocated + (waiting ? pending[i][j] : 0));
+        }
+    }
+    
+    private void recordWait(double wait) {
+        waitCount++;
+        totalWait += wait;
+        waitBuckets[waitBucket(wait)]++;
+    }
+    
+    private static long sum(int[] units) {
+        long total = 0;
+        for (int u : units) {
+            total += u;
+        }
+        return total;
+    }
+    
+    // Wait times are kept in WAIT_SUB_BUCKETS buckets per power of two from 2^MIN_EXPONENT on
+    private static final int MIN_EXPONENT = -20;
+    private static final int MAX_EXPONENT = 43;
+    private static final int WAIT_SUB_BUCKETS = 8;
+    private static final int WAIT_BUCKETS = (MAX_EXPONENT - MIN_EXPONENT + 1) * WAIT_SUB_BUCKETS + 1;
+    
+    private static int waitBucket(double wait) {
+        if (!(wait >= Math.scalb(1.0, MIN_EXPONENT))) {
+            return 0;
+        }
+        int exponent = Math.min(MAX_EXPONENT, Math.getExponent(wait));
+        double mantissa = Math.min(1.999, wait / Math.scalb(1.0, exponent));
+        return 1 + (exponent - MIN_EXPONENT) * WAIT_SUB_BUCKETS + (int) ((mantissa - 1.0) * WAIT_SUB_BUCKETS);
+    }
+    
+    private static double waitBucketUpperBound(int bucket) {
+        if (bucket == 0) {
+            return Math.scalb(1.0, MIN_EXPONENT);
+        }
+        int exponent = (bucket - 1) / WAIT_SUB_BUCKETS + MIN_EXPONENT;
+        int sub = (bucket - 1) % WAIT_SUB_BUCKETS;
+        return Math.scalb(1.0 + (sub + 1) / (double) WAIT_SUB_BUCKETS, exponent);
+    }
+    
+    /**
+     * Simulation parameters. Times are in arbitrary simulated units.
+     */
+    public static class Builder {
+        private Policy policy = Policy.AVOIDANCE;
+        private int processes = 100;
+        private int resources = 8;
+        private int unitsPerResource = 100;
+        private double claimDensity = 0.5;
+        private int maxClaim = 10;
+        private int stepsPerJob = 3;
+        private Distribution thinkTime = Distribution.exponential(20);
+        private Distribution holdTime = Distribution.exponential(1);
+        private double detectionInterval = 5;
+        private long maxEvents = 1_000_000;
+        private double maxTime = Double.POSITIVE_INFINITY;
+        private long seed = 42;
+        
+        public Builder policy(Policy policy) {
+            this.policy = policy;
+            return this;
+        }
+        
+        public Builder processes(int processes) {
+            if (processes < 1) {
+                throw new IllegalArgumentException("Need at least one process");
+            }
+            this.processes = processes;
+            return this;
+        }
+        
+        public Builder resources(int resources) {
+            if (resources < 1) {
+                throw new IllegalArgumentException("Need at least one resource type");
+            }
+            this.resources = resources;
+            return this;
+        }
+        
+        public Builder unitsPerResource(int units) {
+            if (units < 1) {
+                throw new IllegalArgumentException("Need at least one unit per resource type");
+            }
+            this.unitsPerResource = units;
+            return this;
+        }
+        
+        /**
+         * Probability that a process claims a resource type besides the one it always claims
+         */
+        public Builder claimDensity(double density) {
+            if (!(density >= 0 && density <= 1)) {
+                throw new IllegalArgumentException("Claim density must be in [0, 1]: " + density);
+            }
+            this.claimDensity = density;
+            return this;
+        }
+        
+        /**
+         * Largest claim of a process for one resource type; claims are uniform in 1..maxClaim
+         */
+        public Builder maxClaim(int units) {
+            if (units < 1) {
+                throw new IllegalArgumentException("Max claim must be at least 1");
+            }
+            this.maxClaim = units;
+            return this;
+        }
+        
+        /**
+         * Number of requests in which a job acquires its claim (always 1 under PREVENTION)
+         */
+        public Builder stepsPerJob(int steps) {
+            if (steps < 1) {
+                throw new IllegalArgumentException("A job needs at least one step");
+            }
+            this.stepsPerJob = steps;
+            return this;
+        }
+        
+        /**
+         * Time between jobs of a process, i.e. the inter-arrival time of its jobs
+         */
+        public Builder thinkTime(Distribution distribution) {
+            if (distribution == null) {
+                throw new IllegalArgumentException("Think time distribution is required");
+            }
+            this.thinkTime = distribution;
+            return this;
+        }
+        
+        /**
+         * Time a process holds its units after each granted step
+         */
+        public Builder holdTime(Distribution distribution) {
+            if (distribution == null) {
+                throw new IllegalArgumentException("Hold time distribution is required");
+            }
+            this.holdTime = distribution;
+            return this;
+        }
+        
+        public Builder detectionInterval(double interval) {
+            if (!(interval > 0)) {
+                throw new IllegalArgumentException("Detection interval must be positive");
+            }
+            this.detectionInterval = interval;
+            return this;
+        }
+        
+        public Builder maxEvents(long events) {
+            if (events < 1) {
+                throw new IllegalArgumentException("Need at least one event");
+            }
+            this.maxEvents = events;
+            return this;
+        }
+        
+        public Builder maxTime(double time) {
+            if (!(time > 0)) {
+                throw new IllegalArgumentException("Max time must be positive: " + time);
+            }
+            this.maxTime = time;
+            return this;
+        }
+        
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+        
+        public Report run() {
+            return WorkloadSimulator.run(this);
+        }
+    }
+    
+    /**
+     * Outcome of one simulation run
+     */
+    public static final class Report {
+        private final Policy policy;
+        private final long events;
+        private final double simulatedTime;
+        private final long wallNanos;
+        private final long jobsCompleted;
+        private final long grants;
+        private final long waits;
+        private final double totalWait;
+        private final long[] waitBuckets;
+        private final long deadlocks;
+        private final long aborts;
+        private final double lostWork;
+        private final double utilization;
+        private final long algorithmNanos;
+        private final long algorithmCalls;
+        
+        private Report(WorkloadSimulator sim, long wallNanos) {
+            this.policy = sim.config.policy;
+            this.events = sim.eventCount;
+            this.simulatedTime = sim.now;
+            this.wallNanos = wallNanos;
+            this.jobsCompleted = sim.jobsCompleted;
+            this.grants = sim.grantCount;
+            this.waits = sim.waitCount;
+            this.totalWait = sim.totalWait;
+            this.waitBuckets = sim.waitBuckets.clone();
+            this.deadlocks = sim.deadlockCount;
+            this.aborts = sim.abortCount;
+            this.lostWork = sim.lostWork;
+            this.utilization = sim.now > 0 ? sim.allocatedArea / (sim.totalUnits * sim.now) : 0;
+            this.algorithmNanos = sim.algorithmNanos;
+            this.algorithmCalls = sim.algorithmCalls;
+        }
+        
+        public long getEvents() {
+            return events;
+        }
+        
+        public double getSimulatedTime() {
+            return simulatedTime;
+        }
+        
+        public double getEventsPerSecond() {
+            return wallNanos == 0 ? 0 : events * 1e9 / wallNanos;
+        }
+        
+        public long getJobsCompleted() {
+            return jobsCompleted;
+        }
+        
+        /**
+         * Completed jobs per unit of simulated time
+         */
+        public double getThroughput() {
+            return simulatedTime > 0 ? jobsCompleted / simulatedTime : 0;
+        }
+        
+        /**
+         * Time-averaged fraction of all resource units that were allocated
+         */
+        public double getUtilization() {
+            return utilization;
+        }
+        
+        public long getGrants() {
+            return grants;
+        }
+        
+        /**
+         * Number of requests that had to wait before they were granted
+         */
+        public long getWaits() {
+            return waits;
+        }
+        
+        public double getAverageWait() {
+            return waits == 0 ? 0 : totalWait / waits;
+        }
+        
+        /**
+         * Upper bound of the wait below which the given fraction of the waiting requests
+         * fall, at 1/8 of a power of two resolution
+         */
+        public double getWaitPercentile(double fraction) {
+            long target = (long) Math.ceil(fraction * waits);
+            long seen = 0;
+            for (int b = 0; b < waitBuckets.length; b++) {
+                seen += waitBuckets[b];
+                if (seen >= target && seen > 0) {
+                    return waitBucketUpperBound(b);
+                }
+            }
+            return 0;
+        }
+        
+        public long getDeadlocks() {
+            return deadlocks;
+        }
+        
+        public long getAborts() {
+            return aborts;
+        }
+        
+        /**
+         * Simulated time of the jobs that were aborted to break deadlocks
+         */
+        public double getLostWork() {
+            return lostWork;
+        }
+        
+        /**
+         * Wall-clock time spent in admission and detection
+         */
+        public long getAlgorithmNanos() {
+            return algorithmNanos;
+        }
+        
+        public long getAlgorithmCalls() {
+            return algorithmCalls;
+        }
+        
+        public long getWallNanos() {
+            return wallNanos;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                "Policy:        %s%n" +
+                "Events:        %d in %.1f simulated time units (%.2f M events/s)%n" +
+                "Jobs:          %d completed, %.3f per time unit%n" +
+                "Utilization:   %.1f%%%n" +
+                "Requests:      %d granted, %d waited%n" +
+                "Wait:          avg %.3f, p50 <= %.3f, p90 <= %.3f, p99 <= %.3f%n" +
+                "Deadlocks:     %d, %d aborts, %.1f time units of work lost%n" +
+                "Algorithms:    %d calls, %.1f ms (%.1f%% of %.1f ms wall time)",
+                policy, events, simulatedTime, getEventsPerSecond() / 1e6,
+                jobsCompleted, getThroughput(), utilization * 100,
+                grants, waits,
+                getAverageWait(), getWaitPercentile(0.5), getWaitPercentile(0.9), getWaitPercentile(0.99),
+                deadlocks, aborts, lostWork,
+                algorithmCalls, algorithmNanos / 1e6, wallNanos == 0 ? 0 : 100.0 * algorithmNanos / wallNanos, wallNanos / 1e6);
+        }
+    }
+    
+    private static final String USAGE =
+        "Usage: java -cp deadlock-system.jar deadlock.WorkloadSimulator [options]\n" +
+        "  --policy avoidance|detection|prevention   deadlock handling policy (default avoidance)\n" +
+        "  --processes N                             process slots (default 100)\n" +
+        "  --resources R                             resource types (default 8)\n" +
+        "  --units U                                 units per resource type (default 100)\n" +
+        "  --claim-density D                         chance of claiming each further resource type (default 0.5)\n" +
+        "  --max-claim C                             largest claim per resource type (default 10)\n" +
+        "  --steps S                                 requests per job (default 3)\n" +
+        "  --think DIST                              time between jobs (default exp:20)\n" +
+        "  --hold DIST                               hold time after each step (default exp:1)\n" +
+        "  --detect-interval T                       detection period under detection (default 5)\n" +
+        "  --events N                                events to simulate (default 1000000)\n" +
+        "  --time T                                  simulated time limit\n" +
+        "  --seed S                                  random seed (default 42)\n" +
+        "DIST is const:V, exp:MEAN or uniform:MIN:MAX";
+    
+    public static void main(String[] args) {
+        Builder builder = new Builder();
+        try {
+            for (int k = 0; k < args.length; k++) {
+                String arg = args[k];
+                switch (arg) {
+                    case "--policy":
+                        builder.policy(Policy.valueOf(value(args, ++k).toUpperCase(Locale.ROOT)));
+                        break;
+                    case "--processes":
+                        builder.processes(Integer.parseInt(value(args, ++k)));
+                        break;
+                    case "--resources":
+                        builder.resources(Integer.parseInt(value(args, ++k)));
+                        break;
+                    case "--units":
+                        builder.unitsPerResource(Integer.parseInt(value(args, ++k)));
+                        break;
+                    case "--claim-density":
+                        builder.claimDensity(Double.parseDouble(value(args, ++k)));
+                        break;
+                    case "--max-claim":
+                        builder.maxClaim(Integer.parseInt(value(args, ++k)));
+                        break;
+                    case "--steps":
+                        builder.stepsPerJob(Integer.parseInt(value(args, ++k)));
+                        break;
+                    case "--think":
+                        builder.thinkTime(Distribution.parse(value(args, ++k)));
+                        break;
+                    case "--hold":
+                        builder.holdTime(Distribution.parse(value(args, ++k)));
+                        break;
+                    case "--detect-interval":
+                        builder.detectionInterval(Double.parseDouble(value(args, ++k)));
+                        break;
+                    case "--events":
+                        builder.maxEvents(Long.parseLong(value(args, ++k)));
+                        break;
+                    case "--time":
+                        builder.maxTime(Double.parseDouble(value(args, ++k)));
+                        break;
+                    case "--seed":
+                        builder.seed(Long.parseLong(value(args, ++k)));
+                        break;
+                    case "-h":
+                    case "--help":
+                        System.out.println(USAGE);
+                        return;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        System.out.println(builder.run());
+    }
+    
+    private static String value(String[] args, int k) {
+        if (k >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[k - 1]);
+        }
+        return args[k];
+    }
+}
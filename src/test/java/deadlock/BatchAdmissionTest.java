@@ -0,0 +1,219 @@
+package deadlock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class BatchAdmissionTest {
+    
+    private static final int BATCHES = 1_500;
+    // Release orders tried per gap; which process gives back the budgeted units matters
+    private static final int RELEASE_ORDERS = 5;
+    
+    /**
+     * Random batches admitted on one state must grant exactly the requests that one
+     * requestResources call per request, in batch order, grants on a copy of it. Units
+     * are released between batches through both, and the occasional max change made
+     * behind BatchAdmission's back forces it to start the next batch with a full check.
+     */
+    @ParameterizedTest
+    @CsvSource({
+        "1, 5, 2",
+        "2, 60, 3",
+        "3, 200, 3"
+    })
+    void grantsSameSubsetAsSequentialRequests(long seed, int numProcesses, int numResources) {
+        Random random = new Random(seed);
+        SystemState batched = randomState(random, numProcesses, numResources);
+        SystemState sequential = batched.copy();
+        BatchAdmission admission = new BatchAdmission(batched);
+        BankersAlgorithm bankers = new BankersAlgorithm(sequential);
+        
+        int maxBatch = Math.max(4, numProcesses / 4);
+        int[] processes = new int[maxBatch];
+        int[][] requests = new int[maxBatch][numResources];
+        boolean[] granted = new boolean[maxBatch];
+        int[] units = new int[numResources];
+        long grants = 0;
+        long rejections = 0;
+        
+        for (int batch = 0; batch < BATCHES; batch++) {
+            int count = 1 + random.nextInt(maxBatch);
+            for (int k = 0; k < count; k++) {
+                int p = random.nextInt(numProcesses);
+                int row = batched.rowOffset(p);
+                processes[k] = p;
+                for (int j = 0; j < numResources; j++) {
+                    requests[k][j] = random.nextInt(2) == 0 ? random.nextInt(batched.need[row + j] + 1) : 0;
+                }
+            }
+            
+            admission.admit(processes, requests, count, granted);
+            for (int k = 0; k < count; k++) {
+                boolean expected = fitsNeed(sequential, processes[k], requests[k])
+                    && bankers.requestResources(processes[k], requests[k]);
+                assertEquals(expected, granted[k], "request " + k + " of batch " + batch);
+                if (expected) {
+                    grants++;
+                } else {
+                    rejections++;
+                }
+            }
+            assertTrue(batched.contentEquals(sequential.max, sequential.allocation, sequential.total),
+                       "states differ after batch " + batch);
+            
+            int releases = random.nextInt(3);
+            for (int r = 0; r < releases; r++) {
+                int p = random.nextInt(numProcesses);
+                int row = batched.rowOffset(p);
+                for (int j = 0; j < numResources; j++) {
+                    units[j] = random.nextInt(batched.allocation[row + j] + 1);
+                }
+                admission.release(p, units);
+                bankers.releaseResources(p, units);
+            }
+            
+            if (random.nextInt(20) == 0) {
+                // Out-of-band: a process changes its claim, in both states alike
+                int p = random.nextInt(numProcesses);
+                int j = random.nextInt(numResources);
+                int max = batched.getAllocation(p, j) + random.nextInt(batched.getTotal(j) - batched.getAllocation(p, j) + 1);
+                batched.setMax(p, j, max);
+                sequential.setMax(p, j, max);
+            }
+        }
+        
+        assertTrue(grants > 0 && rejections > 0, grants + " grants, " + rejections + " rejections");
+        assertTrue(admission.getSequenceGrantCount() > 0, "no request was granted from the sequence slack");
+        assertTrue(admission.getCheckedGrantCount() > 0, "no request needed a full check");
+    }
+    
+    /**
+     * The gap reported for a rejected request is a lower bound: releasing fewer units of
+     * one type than its gap, however much of the other types comes back with them, must
+     * never make the request grantable; otherwise ResourceManager would park a request
+     * that could pass. Releases are taken greedily, in several random process orders, so
+     * each frees as much as the budget allows, and checked by requestResources on a copy
+     * of the state the request was rejected in.
+     */
+    @ParameterizedTest
+    @CsvSource({
+        "4, 8, 2",
+        "5, 40, 3",
+        "6, 150, 2"
+    })
+    void gapsNeverExceedUnitsNeeded(long seed, int numProcesses, int numResources) {
+        Random random = new Random(seed);
+        SystemState batched = randomState(random, numProcesses, numResources);
+        SystemState sequential = batched.copy();
+        BatchAdmission admission = new BatchAdmission(batched);
+        BankersAlgorithm bankers = new BankersAlgorithm(sequential);
+        
+        int maxBatch = Math.max(4, numProcesses / 4);
+        int[] processes = new int[maxBatch];
+        int[][] requests = new int[maxBatch][numResources];
+        boolean[] granted = new boolean[maxBatch];
+        int[][] gaps = new int[maxBatch][numResources];
+        int[] units = new int[numResources];
+        long trials = 0;
+        
+        for (int batch = 0; batch < BATCHES; batch++) {
+            int count = 1 + random.nextInt(maxBatch);
+            for (int k = 0; k < count; k++) {
+                int p = random.nextInt(numProcesses);
+                int row = batched.rowOffset(p);
+                processes[k] = p;
+                for (int j = 0; j < numResources; j++) {
+                    requests[k][j] = random.nextInt(2) == 0 ? random.nextInt(batched.need[row + j] + 1) : 0;
+                }
+            }
+            
+            admission.admit(processes, requests, count, granted, gaps);
+            for (int k = 0; k < count; k++) {
+                // sequential is now the state request k was checked in
+                if (!granted[k] && fitsNeed(sequential, processes[k], requests[k])) {
+                    for (int j = 0; j < numResources; j++) {
+                        int held = sequential.getTotal(j) - sequential.getAvailable(j);
+                        assertTrue(gaps[k][j] <= held, "gap " + gaps[k][j] + " of R" + j + " exceeds the " + held + " units held");
+                        if (gaps[k][j] > 0) {
+                            for (int t = 0; t < RELEASE_ORDERS; t++) {
+                                assertFalse(grantedAfterRelease(random, sequential, j, gaps[k][j] - 1, processes[k], requests[k]),
+                                            "request " + k + " of batch " + batch + " passed with " + (gaps[k][j] - 1) +
+                                            " units of R" + j + " released, below its gap " + gaps[k][j]);
+                            }
+                            trials++;
+                        }
+                    }
+                }
+                boolean expected = fitsNeed(sequential, processes[k], requests[k])
+                    && bankers.requestResources(processes[k], requests[k]);
+                assertEquals(expected, granted[k], "request " + k + " of batch " + batch);
+            }
+            
+            int releases = random.nextInt(3);
+            for (int r = 0; r < releases; r++) {
+                int p = random.nextInt(numProcesses);
+                int row = batched.rowOffset(p);
+                for (int j = 0; j < numResources; j++) {
+                    units[j] = random.nextInt(batched.allocation[row + j] + 1);
+                }
+                admission.release(p, units);
+                bankers.releaseResources(p, units);
+            }
+        }
+        
+        assertTrue(trials > 100, "only " + trials + " rejections had a gap to test");
+    }
+    
+    /**
+     * Release up to budget units of resource j, and everything of the other types, from
+     * processes in random order on a copy of the state, then try the request there
+     */
+    private static boolean grantedAfterRelease(Random random, SystemState state, int j, int budget,
+                                               int processIndex, int[] request) {
+        SystemState trial = state.copy();
+        int numProcesses = trial.getNumProcesses();
+        int[] units = new int[trial.getNumResources()];
+        int start = random.nextInt(numProcesses);
+        for (int n = 0; n < numProcesses; n++) {
+            int p = (start + n) % numProcesses;
+            int row = trial.rowOffset(p);
+            System.arraycopy(trial.allocation, row, units, 0, units.length);
+            units[j] = Math.min(units[j], budget);
+            budget -= units[j];
+            trial.release(p, units);
+        }
+        return new BankersAlgorithm(trial).requestResources(processIndex, request);
+    }
+    
+    /**
+     * Whether the request still fits the need left after earlier grants of the batch;
+     * requestResources throws where BatchAdmission just rejects
+     */
+    private static boolean fitsNeed(SystemState state, int processIndex, int[] request) {
+        int row = state.rowOffset(processIndex);
+        for (int j = 0; j < request.length; j++) {
+            if (request[j] > state.need[row + j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static SystemState randomState(Random random, int numProcesses, int numResources) {
+        SystemState state = new SystemState(numProcesses, numResources);
+        for (int j = 0; j < numResources; j++) {
+            int total = 4 + numProcesses / 10;
+            state.setTotal(j, total);
+            for (int i = 0; i < numProcesses; i++) {
+                state.setMax(i, j, random.nextInt(total / 2 + 1));
+            }
+        }
+        return state;
+    }
+}
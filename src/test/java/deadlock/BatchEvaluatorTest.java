@@ -0,0 +1,55 @@
+package deadlock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+class BatchEvaluatorTest {
+    
+    private static final String SAFE_JSON =
+        "{\"id\": \"s1\", \"max\": [[7,5,3],[3,2,2]], \"allocation\": [[0,1,0],[2,0,0]], \"total\": [10,5,7]}";
+    
+    @Test
+    void oversizedCsvScenarioIsRejectedInsteadOfWrapping() {
+        StringBuilder line = new StringBuilder("big,65536,65536");
+        for (int k = 0; k < 65536; k++) {
+            line.append(",0");
+        }
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> ScenarioParser.parse(line.toString(), BatchEvaluator.Format.CSV, "1"));
+        assertTrue(e.getMessage().contains("65536 x 65536"), e.getMessage());
+    }
+    
+    @Test
+    void jsonAfterTheScenarioObjectIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> ScenarioParser.parse(SAFE_JSON + " {\"id\": \"s2\"}", BatchEvaluator.Format.JSONL, "1"));
+        assertThrows(IllegalArgumentException.class,
+            () -> ScenarioParser.parse(SAFE_JSON + "x", BatchEvaluator.Format.JSONL, "1"));
+        assertEquals("s1", ScenarioParser.parse(SAFE_JSON + "  ", BatchEvaluator.Format.JSONL, "1").id);
+    }
+    
+    @Test
+    void badLineOnlyFailsItsOwnScenario() throws IOException {
+        String input = "a,1,1,0,0,1\n" + "big,65536,65536,0\n" + "c,1,1,1,1,1\n";
+        BatchEvaluator evaluator = new BatchEvaluator(BatchEvaluator.Algorithm.BANKERS, BatchEvaluator.Format.CSV, 2);
+        StringWriter out = new StringWriter();
+        evaluator.evaluate(new BufferedReader(new StringReader(input)), out);
+        
+        String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length, out.toString());
+        assertEquals("a,SAFE,P0", lines[0]);
+        // The id is not parsed yet, so the error is reported under the line number
+        assertTrue(lines[1].startsWith("2,ERROR,"), lines[1]);
+        assertEquals("c,SAFE,P0", lines[2]);
+        assertEquals(3, evaluator.getScenarioCount());
+        assertEquals(1, evaluator.getErrorCount());
+    }
+}
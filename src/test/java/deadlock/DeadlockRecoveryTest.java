@@ -0,0 +1,40 @@
+package deadlock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class DeadlockRecoveryTest {
+    
+    /**
+     * P0 and P1 each hold the unit the other one needs
+     */
+    private static SystemState deadlockedPair() {
+        return SystemState.of(new int[][] {{1, 1}, {1, 1}, {0, 0}}, new int[][] {{1, 0}, {0, 1}, {0, 0}}, new int[] {1, 1});
+    }
+    
+    @Test
+    void perProcessCostsOfWrongLengthAreRejectedBeforeAnyRelease() {
+        for (double[] costs : new double[][] {{1, 2}, {1, 2, 3, 4}}) {
+            SystemState state = deadlockedPair();
+            long fingerprint = state.fingerprint();
+            DeadlockRecovery recovery = new DeadlockRecovery(state);
+            recovery.setCostFunction(DeadlockRecovery.perProcess(costs));
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, recovery::recover);
+            assertTrue(e.getMessage().contains("Expected 3 process costs"), e.getMessage());
+            assertEquals(fingerprint, state.fingerprint(), "a victim was released");
+        }
+    }
+    
+    @Test
+    void perProcessCostsPickTheCheapestVictim() {
+        SystemState state = deadlockedPair();
+        DeadlockRecovery recovery = new DeadlockRecovery(state);
+        recovery.setCostFunction(DeadlockRecovery.perProcess(new double[] {5, 2, 9}));
+        assertEquals(1, recovery.recover());
+        assertEquals(0, state.getAllocation(1, 1));
+        assertEquals(1, state.getAllocation(0, 0));
+    }
+}
@@ -0,0 +1,113 @@
+package deadlock;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class IncrementalDeadlockDetectorTest {
+    
+    private static final int DELTAS = 4_000;
+    
+    /**
+     * Random request, cancel, grant and release deltas, with the occasional change made
+     * behind the detector's back. After every few deltas the incremental verdict must
+     * match a graph reduction of the same state from scratch, and a deadlock is broken by
+     * aborting one of its processes through the detector, so the workload keeps moving in
+     * and out of deadlock. The sizes cover a single slack block and several.
+     */
+    @ParameterizedTest
+    @CsvSource({
+        "1, 4, 2",
+        "2, 40, 3",
+        "3, 150, 4",
+        "4, 300, 3"
+    })
+    void matchesGraphReductionFromScratch(long seed, int numProcesses, int numResources) {
+        Random random = new Random(seed);
+        SystemState state = randomState(random, numProcesses, numResources);
+        IncrementalDeadlockDetector detector = new IncrementalDeadlockDetector(state);
+        int[] units = new int[numResources];
+        int checks = 0;
+        int deadlocks = 0;
+        
+        for (int delta = 0; delta < DELTAS; delta++) {
+            int p = random.nextInt(numProcesses);
+            int row = state.rowOffset(p);
+            int op = random.nextInt(10);
+            if (op < 4) {
+                for (int j = 0; j < numResources; j++) {
+                    units[j] = random.nextInt(4) == 0 ? 1 + random.nextInt(2) : 0;
+                }
+                detector.request(p, units);
+            } else if (op < 5) {
+                for (int j = 0; j < numResources; j++) {
+                    units[j] = random.nextInt(state.need[row + j] + 1);
+                }
+                detector.cancelRequest(p, units);
+            } else if (op < 8) {
+                boolean all = random.nextBoolean();
+                for (int j = 0; j < numResources; j++) {
+                    int grantable = Math.min(state.need[row + j], state.available[j]);
+                    units[j] = all ? grantable : random.nextInt(grantable + 1);
+                }
+                detector.allocate(p, units);
+            } else {
+                boolean all = random.nextBoolean();
+                for (int j = 0; j < numResources; j++) {
+                    units[j] = all ? state.allocation[row + j] : random.nextInt(state.allocation[row + j] + 1);
+                }
+                detector.release(p, units);
+            }
+            
+            if (random.nextInt(200) == 0) {
+                // Out-of-band edit: the detector has to notice and rebuild
+                int j = random.nextInt(numResources);
+                boolean shrink = state.getAvailable(j) > 0 && random.nextBoolean();
+                state.setTotal(j, state.getTotal(j) + (shrink ? -1 : 1));
+            }
+            
+            if (random.nextInt(3) == 0) {
+                GraphReductionDetector reference = new GraphReductionDetector(state);
+                boolean expected = reference.detectDeadlock();
+                assertEquals(expected, detector.detectDeadlock(), "verdict after delta " + delta);
+                int[] deadlocked = reference.getDeadlockedProcessIndices();
+                assertArrayEquals(deadlocked, detector.getDeadlockedProcessIndices(),
+                                  "deadlocked processes after delta " + delta);
+                checks++;
+                if (expected) {
+                    deadlocks++;
+                    abort(detector, state, deadlocked[random.nextInt(deadlocked.length)], units);
+                }
+            }
+        }
+        
+        assertTrue(deadlocks > checks / 20, "only " + deadlocks + " of " + checks + " checks found a deadlock");
+        assertTrue(deadlocks < checks / 2, deadlocks + " of " + checks + " checks found a deadlock");
+    }
+    
+    private static void abort(IncrementalDeadlockDetector detector, SystemState state, int victim, int[] units) {
+        int row = state.rowOffset(victim);
+        System.arraycopy(state.allocation, row, units, 0, units.length);
+        detector.release(victim, units);
+        System.arraycopy(state.need, row, units, 0, units.length);
+        detector.cancelRequest(victim, units);
+    }
+    
+    private static SystemState randomState(Random random, int numProcesses, int numResources) {
+        SystemState state = new SystemState(numProcesses, numResources);
+        for (int j = 0; j < numResources; j++) {
+            state.setTotal(j, 3 + numProcesses / 50);
+            for (int i = 0; i < numProcesses; i++) {
+                int held = Math.min(random.nextInt(2), state.getAvailable(j));
+                state.setMax(i, j, held + random.nextInt(2));
+                state.setAllocation(i, j, held);
+            }
+        }
+        return state;
+    }
+}
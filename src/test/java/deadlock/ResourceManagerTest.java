@@ -0,0 +1,130 @@
+package deadlock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ResourceManagerTest {
+    
+    /**
+     * B and A arrive in the same round for the only unit: B is granted and A rejected,
+     * then B times out before the grant reaches it. The unit B gives back must go to A
+     * even though nobody releases anything afterwards.
+     */
+    @Test
+    void grantReturnedByTimedOutClientWakesWaitingAcquire() throws Exception {
+        SystemState state = SystemState.of(new int[][] {{1}, {1}}, new int[][] {{0}, {0}}, new int[] {1});
+        ResourceManager manager = new ResourceManager(state);
+        
+        AtomicBoolean timedOutGrant = new AtomicBoolean();
+        AtomicBoolean acquired = new AtomicBoolean();
+        AtomicInteger rounds = new AtomicInteger();
+        Thread[] clients = new Thread[2];
+        
+        manager.admissionHook = () -> {
+            try {
+                int round = rounds.getAndIncrement();
+                if (round == 0) {
+                    // Queue B, then A, while this thread holds the admission lock
+                    clients[0] = new Thread(() -> {
+                        try {
+                            timedOutGrant.set(manager.tryAcquire(0, new int[] {1}, 200, TimeUnit.MILLISECONDS));
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                    clients[0].setDaemon(true);
+                    clients[0].start();
+                    awaitState(clients[0], Thread.State.TIMED_WAITING);
+                    clients[1] = new Thread(() -> {
+                        try {
+                            manager.acquire(1, new int[] {1});
+                            acquired.set(true);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                    clients[1].setDaemon(true);
+                    clients[1].start();
+                    awaitState(clients[1], Thread.State.WAITING);
+                } else if (round == 1) {
+                    // B has been granted; let it give up before it hears about it
+                    clients[0].join();
+                }
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        };
+        
+        // Releasing nothing just runs a round on this thread
+        manager.release(0, new int[] {0});
+        manager.admissionHook = null;
+        
+        clients[1].join(5_000);
+        assertFalse(timedOutGrant.get(), "tryAcquire should have timed out");
+        assertTrue(acquired.get(), "acquire stayed parked on the returned unit");
+        assertEquals(1, manager.snapshot().getAllocation(1, 0));
+        assertEquals(0, manager.snapshot().getAllocation(0, 0));
+    }
+    
+    /**
+     * P1 asks for units that are available but would leave P0 and P1 both short, so the
+     * request waits. P0 then hands its units back one at a time, and the request has to be
+     * granted by the very release that makes it safe; a gap above the units it actually
+     * needs would leave it parked with nothing more to come back.
+     */
+    @Test
+    void requestRejectedAsUnsafeIsGrantedOnceEnoughUnitsReturn() throws Exception {
+        SystemState state = SystemState.of(new int[][] {{4, 4}, {4, 4}}, new int[][] {{2, 2}, {0, 0}}, new int[] {4, 4});
+        SystemState model = state.copy();
+        ResourceManager manager = new ResourceManager(state);
+        int[] request = {2, 2};
+        
+        AtomicBoolean acquired = new AtomicBoolean();
+        Thread client = new Thread(() -> {
+            try {
+                manager.acquire(1, request);
+                acquired.set(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        client.setDaemon(true);
+        client.start();
+        awaitState(client, Thread.State.WAITING);
+        assertEquals(1, manager.getMetrics().getWaitingCount());
+        
+        int[][] steps = {{1, 0}, {0, 1}, {1, 0}, {0, 1}};
+        for (int[] step : steps) {
+            manager.release(0, step);
+            model.release(0, step);
+            // The releasing thread runs the round, so the grant is decided by now
+            boolean expected = new BankersAlgorithm(model.copy()).requestResources(1, request);
+            assertEquals(expected, manager.snapshot().getAllocation(1, 0) == 2,
+                         "with P0 holding " + model.getAllocation(0, 0) + ", " + model.getAllocation(0, 1));
+            if (expected) {
+                break;
+            }
+        }
+        
+        client.join(5_000);
+        assertTrue(acquired.get(), "acquire stayed parked after enough units came back");
+        assertEquals(0, manager.getMetrics().getWaitingCount());
+    }
+    
+    private static void awaitState(Thread thread, Thread.State expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != expected) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(thread.getName() + " is " + thread.getState() + ", expected " + expected);
+            }
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package deadlock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class SafetyVerdictCacheTest {
+    
+    private static final int STEPS = 5_000;
+    
+    /**
+     * A random walk that keeps revisiting a few states: every cached verdict must match a
+     * fresh check of the same state, and the small capacity forces evictions
+     */
+    @ParameterizedTest
+    @CsvSource({
+        "1, 4, 2, 8",
+        "2, 30, 3, 64"
+    })
+    void cachedVerdictsMatchFreshChecks(long seed, int numProcesses, int numResources, int capacity) {
+        Random random = new Random(seed);
+        SystemState state = randomState(random, numProcesses, numResources);
+        SafetyVerdictCache cache = new SafetyVerdictCache(state, capacity);
+        
+        for (int step = 0; step < STEPS; step++) {
+            int p = random.nextInt(numProcesses);
+            int j = random.nextInt(numResources);
+            if (random.nextBoolean() && state.getNeed(p, j) > 0 && state.getAvailable(j) > 0) {
+                state.allocate(p, j, 1);
+            } else if (state.getAllocation(p, j) > 0) {
+                state.release(p, j, 1);
+            }
+            boolean expected = new WorklistSafetyChecker(state.copy()).checkSafeState();
+            assertEquals(expected, cache.checkSafeState(), "verdict after step " + step);
+        }
+        
+        assertTrue(cache.getHitCount() > STEPS / 4, cache.getHitCount() + " hits");
+        assertTrue(cache.getEvictionCount() > 0, "no entry was evicted");
+    }
+    
+    @Test
+    void snapshotKeepsBothFingerprints(@TempDir Path dir) throws IOException {
+        SystemState state = randomState(new Random(3), 20, 4);
+        Path path = dir.resolve("state" + StateSnapshot.EXTENSION);
+        StateSnapshot.write(state, path);
+        
+        SystemState loaded = StateSnapshot.read(path);
+        assertEquals(state.fingerprint(), loaded.fingerprint());
+        assertEquals(state.checkFingerprint(), loaded.checkFingerprint());
+        
+        // A version 1 file has no second fingerprint; both are rehashed on load
+        byte[] bytes = Files.readAllBytes(path);
+        byte[] version1 = new byte[bytes.length - Long.BYTES];
+        System.arraycopy(bytes, 0, version1, 0, 24);
+        System.arraycopy(bytes, 32, version1, 24, bytes.length - 32);
+        ByteBuffer.wrap(version1).order(ByteOrder.LITTLE_ENDIAN).putInt(4, 1);
+        Path oldPath = dir.resolve("old" + StateSnapshot.EXTENSION);
+        Files.write(oldPath, version1);
+        
+        SystemState rehashed = StateSnapshot.read(oldPath);
+        assertEquals(state.fingerprint(), rehashed.fingerprint());
+        assertEquals(state.checkFingerprint(), rehashed.checkFingerprint());
+        assertTrue(Arrays.equals(state.need, rehashed.need) && Arrays.equals(state.available, rehashed.available));
+    }
+    
+    private static SystemState randomState(Random random, int numProcesses, int numResources) {
+        SystemState state = new SystemState(numProcesses, numResources);
+        for (int j = 0; j < numResources; j++) {
+            state.setTotal(j, 2 + numProcesses / 4);
+            for (int i = 0; i < numProcesses; i++) {
+                int held = Math.min(random.nextInt(2), state.getAvailable(j));
+                state.setMax(i, j, held + random.nextInt(3));
+                state.setAllocation(i, j, held);
+            }
+        }
+        return state;
+    }
+}
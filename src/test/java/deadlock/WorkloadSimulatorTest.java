@@ -0,0 +1,51 @@
+package deadlock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import deadlock.WorkloadSimulator.Distribution;
+
+class WorkloadSimulatorTest {
+    
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "const:-1", "const:NaN", "const:Infinity",
+        "exp:0", "exp:-3", "exp:NaN", "exp:Infinity",
+        "uniform:-1:2", "uniform:5:2", "uniform:NaN:2", "uniform:1:NaN", "uniform:0:Infinity",
+        "exp", "exp:1:2", "normal:1", "const:x"
+    })
+    void invalidDistributionIsRejected(String spec) {
+        assertThrows(IllegalArgumentException.class, () -> Distribution.parse(spec));
+    }
+    
+    @Test
+    void validDistributionsSampleInRange() {
+        SplittableRandom random = new SplittableRandom(1);
+        assertEquals(0.0, Distribution.parse("const:0").sample(random));
+        Distribution uniform = Distribution.parse("uniform:2:2");
+        assertEquals(2.0, uniform.sample(random));
+        Distribution exponential = Distribution.parse("exp:0.5");
+        for (int k = 0; k < 1_000; k++) {
+            double sample = exponential.sample(random);
+            assertTrue(sample >= 0 && sample < Double.POSITIVE_INFINITY, "sample " + sample);
+        }
+    }
+    
+    @Test
+    void builderRejectsMissingDistributionsAndEventBudget() {
+        WorkloadSimulator.Builder builder = new WorkloadSimulator.Builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.thinkTime(null));
+        assertThrows(IllegalArgumentException.class, () -> builder.holdTime(null));
+        assertThrows(IllegalArgumentException.class, () -> builder.maxEvents(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.maxEvents(-1));
+        assertThrows(IllegalArgumentException.class, () -> builder.maxTime(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> builder.maxTime(0));
+    }
+}